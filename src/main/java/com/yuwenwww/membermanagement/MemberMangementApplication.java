@@ -2,8 +2,10 @@ package com.yuwenwww.membermanagement;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling // 金鑰使用次數的定期寫回
 public class MemberMangementApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,78 @@
+package com.yuwenwww.membermanagement.config;
+
+import com.yuwenwww.membermanagement.service.AuthenticatedCredentialCache;
+import com.yuwenwww.membermanagement.service.MemberMetrics;
+import com.yuwenwww.membermanagement.service.MemberService;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Optional;
+
+/**
+ * 先查詢 AuthenticatedCredentialCache，命中時不查資料庫也不執行 BCrypt；
+ * 未命中時交給原本的 DaoAuthenticationProvider，成功後再寫入快取。
+ * 快取項目記錄驗證後的會員用戶名：以 email 或大小寫不同的名稱登入時，principal 仍是資料庫中的用戶名，
+ * 密碼變更時也能依用戶名使這些項目失效。
+ * 舊雜湊的升級也在這裡於驗證成功後進行 (而非 DaoAuthenticationProvider 的 UserDetailsPasswordService)：
+ * 雜湊池滿或資料庫錯誤只記錄警告，不會讓已通過驗證的登入變成 503。
+ */
+public class CachingAuthenticationProvider implements AuthenticationProvider {
+
+    private final AuthenticationProvider delegate;
+    private final AuthenticatedCredentialCache credentialCache;
+    private final MemberService memberService;
+    private final MemberMetrics memberMetrics;
+
+    public CachingAuthenticationProvider(AuthenticationProvider delegate, AuthenticatedCredentialCache credentialCache,
+                                         MemberService memberService, MemberMetrics memberMetrics) {
+        this.delegate = delegate;
+        this.credentialCache = credentialCache;
+        this.memberService = memberService;
+        this.memberMetrics = memberMetrics;
+    }
+
+    @Override
+    public Authentication authenticate(Authentication authentication) throws AuthenticationException {
+        String loginName = authentication.getName();
+        Object credentials = authentication.getCredentials();
+        if (credentials == null) {
+            return delegate.authenticate(authentication);
+        }
+        String rawPassword = credentials.toString();
+
+        Optional<AuthenticatedCredentialCache.CachedLogin> cached = credentialCache.lookup(loginName, rawPassword);
+        if (cached.isPresent()) {
+            memberMetrics.authenticationSucceeded(true);
+            User principal = new User(cached.get().username(), "", cached.get().authorities());
+            return UsernamePasswordAuthenticationToken.authenticated(principal, null, principal.getAuthorities());
+        }
+
+        long loadSequence = credentialCache.beginLoad(); // 在讀取密碼雜湊之前
+        Authentication result;
+        try {
+            result = delegate.authenticate(authentication);
+        } catch (AuthenticationException e) {
+            memberMetrics.authenticationFailed();
+            throw e;
+        }
+        if (result != null && result.isAuthenticated()) {
+            memberMetrics.authenticationSucceeded(false);
+            // principal 的密碼此時仍是驗證用的雜湊 (ProviderManager 在回傳後才清除)
+            if (result.getPrincipal() instanceof UserDetails user && user.getPassword() != null) {
+                memberService.rehashPasswordIfOutdated(user.getUsername(), user.getPassword(), rawPassword);
+            }
+            // result.getName() 為 UserDetails 的用戶名 (資料庫中的原始大小寫)，不是登入時輸入的名稱
+            credentialCache.put(loginName, rawPassword, result.getName(), result.getAuthorities(), loadSequence);
+        }
+        return result;
+    }
+
+    @Override
+    public boolean supports(Class<?> authentication) {
+        return delegate.supports(authentication);
+    }
+}
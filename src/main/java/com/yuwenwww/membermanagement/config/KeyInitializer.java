@@ -1,75 +1,71 @@
 package com.yuwenwww.membermanagement.config;
 
 import com.yuwenwww.membermanagement.entity.KeyMaterial;
+import com.yuwenwww.membermanagement.repository.KeyMaterialJdbcRepository;
 import com.yuwenwww.membermanagement.repository.KeyMaterialRepository;
+import com.yuwenwww.membermanagement.service.BlindIndexService;
+import com.yuwenwww.membermanagement.service.EnvelopeKeyService;
+import com.yuwenwww.membermanagement.service.KeyRotationService;
+import com.yuwenwww.membermanagement.service.PiiKeyGenerator;
 import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
-import javax.crypto.KeyGenerator;
-import javax.crypto.SecretKey;
-import java.security.SecureRandom;
 import java.security.Security;
 import java.util.Optional;
 
 @Configuration
 public class KeyInitializer {
 
+    private static final Logger log = LoggerFactory.getLogger(KeyInitializer.class);
+
     // 靜態區塊，確保 Bouncy Castle Provider 在任何密碼學操作前被註冊
     static {
         if (Security.getProvider("BC") == null) {
             Security.addProvider(new BouncyCastleProvider());
-            System.out.println("Bouncy Castle Provider registered for KeyInitializer.");
+            log.info("Bouncy Castle Provider registered");
         }
     }
 
     /**
      * 創建一個 CommandLineRunner Bean，在應用程式啟動後執行。
-     * 檢查 PII 加密金鑰是否存在，如果不存在則生成並儲存。
+     * 先調整既有資料庫的 key_material 欄位定義，再檢查 PII 加密金鑰與盲索引金鑰是否存在，如果不存在則生成並儲存；
+     * 並以目前的主金鑰包裝尚未包裝 (或以舊主金鑰包裝) 的資料金鑰。
      * @param keyMaterialRepository KeyMaterialRepository 的實例，用於資料庫操作
+     * @param keyMaterialJdbcRepository 調整 key_material 欄位定義
+     * @param piiKeyGenerator 產生金鑰材料
+     * @param envelopeKeyService 包裝資料金鑰
      * @return CommandLineRunner 實例
      */
     @Bean
-    public CommandLineRunner initPiiKey(KeyMaterialRepository keyMaterialRepository) {
+    public CommandLineRunner initPiiKey(KeyMaterialRepository keyMaterialRepository, KeyMaterialJdbcRepository keyMaterialJdbcRepository,
+                                        PiiKeyGenerator piiKeyGenerator, EnvelopeKeyService envelopeKeyService) {
         return args -> {
-            final String PII_KEY_LABEL = "pii_aes_key";
-            final int KEY_SIZE = 256; // AES-256 位元金鑰
-
-            Optional<KeyMaterial> existingKey = keyMaterialRepository.findByKeyLabel(PII_KEY_LABEL);
-
-            if (existingKey.isEmpty()) {
-                System.out.println("Initializing PII encryption key: " + PII_KEY_LABEL);
-                try {
-                    // 1. 生成 AES SecretKey
-                    KeyGenerator keyGen = KeyGenerator.getInstance("AES", "BC");
-                    keyGen.init(KEY_SIZE, new SecureRandom()); // 使用安全亂數生成
-                    SecretKey secretKey = keyGen.generateKey();
-                    byte[] keyValue = secretKey.getEncoded(); // 獲取金鑰的原始位元組
-
-                    // 2. 生成一個 IV (用於 KeyMaterial 自身的元數據 IV，雖然本場景不直接用於金鑰加密)
-                    byte[] ivBytes = new byte[16]; // AES 區塊大小為 16 位元組 (128 位元)
-                    new SecureRandom().nextBytes(ivBytes); // 使用安全亂數生成 IV
+            keyMaterialJdbcRepository.upgradeLegacyColumns(); // 包裝後的金鑰較長，須在 rewrapAll 之前
+            envelopeKeyService.rewrapAll();
+            initKey(keyMaterialRepository, piiKeyGenerator, KeyRotationService.INITIAL_PII_KEY_LABEL);
+            initKey(keyMaterialRepository, piiKeyGenerator, BlindIndexService.BLIND_INDEX_KEY_LABEL); // 盲索引 HMAC 使用獨立的金鑰
+        };
+    }
 
-                    // 3. 創建 KeyMaterial 實體
-                    KeyMaterial piiKeyMaterial = new KeyMaterial();
-                    piiKeyMaterial.setKeyLabel(PII_KEY_LABEL);
-                    piiKeyMaterial.setKeyValue(keyValue);
-                    piiKeyMaterial.setIv(ivBytes);
-                    piiKeyMaterial.setKeySize(KEY_SIZE);
+    private void initKey(KeyMaterialRepository keyMaterialRepository, PiiKeyGenerator piiKeyGenerator, String keyLabel) {
+        Optional<KeyMaterial> existingKey = keyMaterialRepository.findByKeyLabel(keyLabel);
 
-                    // 4. 儲存到資料庫
-                    keyMaterialRepository.save(piiKeyMaterial);
-                    System.out.println("PII encryption key '" + PII_KEY_LABEL + "' generated and stored successfully.");
+        if (existingKey.isEmpty()) {
+            log.info("Initializing PII encryption key: {}", keyLabel);
+            try {
+                keyMaterialRepository.save(piiKeyGenerator.generate(keyLabel));
+                log.info("PII encryption key '{}' generated and stored successfully", keyLabel);
 
-                } catch (Exception e) {
-                    System.err.println("Error generating or storing PII encryption key: " + e.getMessage());
-                    e.printStackTrace();
-                    // 在生產環境中，這裡應該有更健壯的錯誤處理，例如應用程式啟動失敗或發送告警
-                }
-            } else {
-                System.out.println("PII encryption key '" + PII_KEY_LABEL + "' already exists. Skipping initialization.");
+            } catch (Exception e) {
+                log.error("Error generating or storing PII encryption key '{}'", keyLabel, e);
+                // 在生產環境中，這裡應該有更健壯的錯誤處理，例如應用程式啟動失敗或發送告警
             }
-        };
+        } else {
+            log.info("PII encryption key '{}' already exists. Skipping initialization.", keyLabel);
+        }
     }
 }
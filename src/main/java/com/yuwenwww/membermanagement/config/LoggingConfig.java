@@ -0,0 +1,24 @@
+package com.yuwenwww.membermanagement.config;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class LoggingConfig {
+
+    /**
+     * 抽樣比例大於 0 時，為 Hibernate 註冊 SQL 抽樣記錄器。
+     * @param sampleRate 0 表示關閉 (不註冊，不增加任何成本)
+     */
+    @Bean
+    public HibernatePropertiesCustomizer sqlSamplingCustomizer(@Value("${member.logging.sql-sample-rate:0}") double sampleRate) {
+        return properties -> {
+            if (sampleRate > 0) {
+                properties.put(AvailableSettings.STATEMENT_INSPECTOR, new SqlSamplingStatementInspector(Math.min(sampleRate, 1.0)));
+            }
+        };
+    }
+}
@@ -0,0 +1,72 @@
+package com.yuwenwww.membermanagement.config;
+
+import com.yuwenwww.membermanagement.service.AuthenticatedCredentialCache;
+import com.yuwenwww.membermanagement.service.BcryptCostCalibrator;
+import com.yuwenwww.membermanagement.service.BoundedPasswordEncoder;
+import com.yuwenwww.membermanagement.service.MemberProfileCache;
+import com.yuwenwww.membermanagement.service.PiiKeyCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.function.ToDoubleFunction;
+
+/**
+ * 將既有元件已在維護的統計 (快取命中、執行緒池深度) 以 MeterBinder 輸出為度量。
+ * FunctionCounter / Gauge 只在抓取 (scrape) 時讀取計數器，熱路徑上沒有額外成本。
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public MeterBinder piiKeyCacheMetrics(PiiKeyCache piiKeyCache) {
+        return registry -> {
+            cacheRequests(registry, "member.pii.key.cache", piiKeyCache, "hit", PiiKeyCache::getHitCount);
+            cacheRequests(registry, "member.pii.key.cache", piiKeyCache, "miss", PiiKeyCache::getMissCount);
+            FunctionCounter.builder("member.pii.key.cache.evictions", piiKeyCache, PiiKeyCache::getEvictionCount)
+                    .register(registry);
+            Gauge.builder("member.pii.key.cache.size", piiKeyCache, PiiKeyCache::size).register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder authCacheMetrics(AuthenticatedCredentialCache credentialCache) {
+        return registry -> {
+            cacheRequests(registry, "member.auth.cache", credentialCache, "hit", AuthenticatedCredentialCache::getHitCount);
+            cacheRequests(registry, "member.auth.cache", credentialCache, "miss", AuthenticatedCredentialCache::getMissCount);
+            Gauge.builder("member.auth.cache.size", credentialCache, AuthenticatedCredentialCache::size).register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder profileCacheMetrics(MemberProfileCache memberProfileCache) {
+        return registry -> {
+            cacheRequests(registry, "member.profile.cache", memberProfileCache, "hit", MemberProfileCache::getHitCount);
+            cacheRequests(registry, "member.profile.cache", memberProfileCache, "miss", MemberProfileCache::getMissCount);
+            Gauge.builder("member.profile.cache.size", memberProfileCache, MemberProfileCache::size).register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder passwordHashingPoolMetrics(BoundedPasswordEncoder passwordEncoder, BcryptCostCalibrator costCalibrator) {
+        return registry -> {
+            Gauge.builder("member.password.hashing.strength", costCalibrator, BcryptCostCalibrator::getStrength)
+                    .description("BCrypt cost used for new password hashes")
+                    .register(registry);
+            Gauge.builder("member.password.hashing.queue.depth", passwordEncoder, BoundedPasswordEncoder::getQueueDepth)
+                    .register(registry);
+            Gauge.builder("member.password.hashing.active", passwordEncoder, BoundedPasswordEncoder::getActiveCount)
+                    .register(registry);
+            FunctionCounter.builder("member.password.hashing.rejected", passwordEncoder, BoundedPasswordEncoder::getRejectedCount)
+                    .description("Requests rejected with 503 because the hashing queue was full")
+                    .register(registry);
+        };
+    }
+
+    private static <T> void cacheRequests(MeterRegistry registry, String name, T cache, String result, ToDoubleFunction<T> count) {
+        FunctionCounter.builder(name + ".requests", cache, count).tag("result", result).register(registry);
+    }
+}
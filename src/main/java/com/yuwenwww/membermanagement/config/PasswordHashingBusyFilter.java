@@ -0,0 +1,33 @@
+package com.yuwenwww.membermanagement.config;
+
+import com.yuwenwww.membermanagement.service.PasswordHashingBusyException;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * 將 HTTP Basic 認證過程中的 PasswordHashingBusyException 轉為 503 + Retry-After，
+ * 而不是讓它變成 500 錯誤。
+ */
+public class PasswordHashingBusyFilter extends OncePerRequestFilter {
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        try {
+            filterChain.doFilter(request, response);
+        } catch (PasswordHashingBusyException e) {
+            if (response.isCommitted()) {
+                throw e;
+            }
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()));
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), e.getMessage());
+        }
+    }
+}
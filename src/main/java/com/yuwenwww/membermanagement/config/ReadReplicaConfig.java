@@ -0,0 +1,115 @@
+package com.yuwenwww.membermanagement.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * 讀寫分離：設定 member.datasource.replica-urls 時啟用，未設定時沿用 Spring Boot 自動設定的單一 DataSource。
+ * <p>
+ * 應用程式使用的 DataSource 是 LazyConnectionDataSourceProxy：交易開始時不取得實際連線，
+ * 第一個查詢執行時才依交易是否為 readOnly 決定使用主庫或 ReplicaRoutingDataSource。
+ * 因此 @Transactional(readOnly = true) 的方法 (以及 Spring Data 的唯讀查詢) 走讀取副本，其餘交易與 JdbcTemplate 寫入走主庫。
+ * 讀取量增加時只需增加副本並加入 replica-urls。
+ * <p>
+ * 限制：read-your-writes 視窗 (ReadYourWritesTracker) 只記錄在處理寫入的實例的記憶體中，不會傳到其他實例。
+ * 多個實例在負載平衡器後面時，寫入後的下一個請求若被送到另一個實例，仍可能從副本讀到複寫延遲前的舊資料
+ * (例如註冊後立即登入失敗)。部署多個實例時應讓同一用戶端的請求固定送到同一實例 (sticky session)，
+ * 或讓用戶端在寫入後稍候重試；否則不要啟用讀取副本。
+ * 同時設定分片 (member.sharding.additional-shard-urls) 時不啟用，由 ShardingConfig 回報設定錯誤。
+ */
+@Configuration
+@ConditionalOnExpression("!'${member.datasource.replica-urls:}'.isBlank() and '${member.sharding.additional-shard-urls:}'.isBlank()")
+public class ReadReplicaConfig {
+
+    /**
+     * 主庫連線池，沿用 spring.datasource.* 與 spring.datasource.hikari.* 設定。
+     */
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    /**
+     * 讀取副本的連線池與路由。副本在啟動時無法連線不會讓應用程式啟動失敗，只會先被視為不健康。
+     * @param replicaUrls 以逗號分隔的副本 JDBC URL
+     * @param poolSize 每個副本的連線池大小
+     * @param connectionTimeout 向副本取得連線的逾時，逾時即改用主庫，應小於主庫的逾時
+     */
+    @Bean
+    public ReplicaRoutingDataSource replicaDataSource(@Qualifier("primaryDataSource") HikariDataSource primaryDataSource,
+                                                      DataSourceProperties properties,
+                                                      @Value("${member.datasource.replica-urls}") List<String> replicaUrls,
+                                                      @Value("${member.datasource.replica-username:${spring.datasource.username:}}") String username,
+                                                      @Value("${member.datasource.replica-password:${spring.datasource.password:}}") String password,
+                                                      @Value("${member.datasource.replica-pool-size:20}") int poolSize,
+                                                      @Value("${member.datasource.replica-connection-timeout:PT1S}") Duration connectionTimeout,
+                                                      @Value("${member.datasource.replica-validation-timeout:PT1S}") Duration validationTimeout,
+                                                      MeterRegistry meterRegistry) {
+        List<HikariDataSource> pools = new ArrayList<>(replicaUrls.size());
+        for (int i = 0; i < replicaUrls.size(); i++) {
+            HikariDataSource pool = new HikariDataSource();
+            pool.setPoolName("replica-" + i);
+            pool.setJdbcUrl(replicaUrls.get(i).trim());
+            pool.setUsername(username);
+            pool.setPassword(password);
+            pool.setDriverClassName(properties.determineDriverClassName());
+            pool.setMaximumPoolSize(poolSize);
+            pool.setMinimumIdle(poolSize);
+            pool.setConnectionTimeout(connectionTimeout.toMillis());
+            pool.setReadOnly(true);
+            pool.setInitializationFailTimeout(-1); // 副本暫時無法連線時仍可啟動
+            pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry)); // hikaricp.connections{pool=replica-N}
+            pools.add(pool);
+        }
+        return new ReplicaRoutingDataSource(primaryDataSource, pools, (int) Math.max(1, validationTimeout.toSeconds()));
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") HikariDataSource primaryDataSource,
+                                 ReplicaRoutingDataSource replicaDataSource) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primaryDataSource);
+        dataSource.setReadOnlyDataSource(replicaDataSource);
+        return dataSource;
+    }
+
+    @Bean
+    public MeterBinder replicaRoutingMetrics(ReplicaRoutingDataSource replicaDataSource) {
+        return registry -> {
+            Gauge.builder("member.datasource.replicas.healthy", replicaDataSource, ReplicaRoutingDataSource::getHealthyReplicaCount)
+                    .description("Read replicas currently receiving read-only traffic")
+                    .register(registry);
+            routedConnections(registry, replicaDataSource, "replica", ReplicaRoutingDataSource::getReplicaConnectionCount);
+            routedConnections(registry, replicaDataSource, "primary_fallback", ReplicaRoutingDataSource::getPrimaryFallbackCount);
+            routedConnections(registry, replicaDataSource, "read_your_writes", ReplicaRoutingDataSource::getReadYourWritesRouteCount);
+        };
+    }
+
+    private static void routedConnections(MeterRegistry registry, ReplicaRoutingDataSource dataSource, String target,
+                                          ToDoubleFunction<ReplicaRoutingDataSource> count) {
+        FunctionCounter.builder("member.datasource.read.connections", dataSource, count)
+                .tag("target", target)
+                .description("Connections handed out to read-only transactions")
+                .register(registry);
+    }
+}
@@ -0,0 +1,169 @@
+package com.yuwenwww.membermanagement.config;
+
+import com.yuwenwww.membermanagement.service.ReadYourWritesTracker;
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 唯讀交易使用的 DataSource (LazyConnectionDataSourceProxy 的 readOnlyDataSource)。
+ * 以輪詢方式分散到健康的讀取副本；以下情況改用主庫：
+ * <ul>
+ *     <li>ReadYourWritesTracker 要求 (會員剛寫入，副本可能尚未複寫)</li>
+ *     <li>沒有健康的副本，或向副本取得連線失敗 (該副本同時被標記為不健康)</li>
+ * </ul>
+ * 不健康的副本由定期健康檢查在恢復後重新加入。
+ */
+public class ReplicaRoutingDataSource extends AbstractDataSource implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final int validationTimeoutSeconds;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    private volatile List<Replica> healthyReplicas;
+
+    private final LongAdder replicaConnections = new LongAdder();
+    private final LongAdder primaryFallbacks = new LongAdder();
+    private final LongAdder readYourWritesRoutes = new LongAdder();
+
+    private static final class Replica {
+        private final String name;
+        private final HikariDataSource dataSource;
+        private volatile boolean healthy = true;
+
+        private Replica(String name, HikariDataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+    }
+
+    /**
+     * @param primary 主庫
+     * @param replicaPools 讀取副本的連線池 (依設定順序)
+     * @param validationTimeoutSeconds 健康檢查 Connection.isValid 的逾時
+     */
+    public ReplicaRoutingDataSource(DataSource primary, List<HikariDataSource> replicaPools, int validationTimeoutSeconds) {
+        this.primary = primary;
+        List<Replica> list = new ArrayList<>(replicaPools.size());
+        for (HikariDataSource pool : replicaPools) {
+            list.add(new Replica(pool.getPoolName(), pool));
+        }
+        this.replicas = List.copyOf(list);
+        this.healthyReplicas = this.replicas;
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (ReadYourWritesTracker.isPrimaryRequired()) {
+            readYourWritesRoutes.increment();
+            return primary.getConnection();
+        }
+        List<Replica> candidates = healthyReplicas;
+        if (!candidates.isEmpty()) {
+            Replica replica = candidates.get(Math.floorMod(nextReplica.getAndIncrement(), candidates.size()));
+            try {
+                Connection connection = replica.dataSource.getConnection();
+                replicaConnections.increment();
+                return connection;
+            } catch (SQLException e) {
+                markUnhealthy(replica, e);
+            }
+        }
+        primaryFallbacks.increment();
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new UnsupportedOperationException("Replica routing uses the configured pool credentials");
+    }
+
+    /**
+     * 檢查所有副本並更新健康清單；不健康的副本恢復後重新加入輪詢。
+     */
+    @Scheduled(fixedDelayString = "${member.datasource.replica-health-interval:PT5S}")
+    public void checkHealth() {
+        boolean changed = false;
+        for (Replica replica : replicas) {
+            boolean healthy;
+            try (Connection connection = replica.dataSource.getConnection()) {
+                healthy = connection.isValid(validationTimeoutSeconds);
+            } catch (SQLException e) {
+                healthy = false;
+            }
+            if (healthy != replica.healthy) {
+                replica.healthy = healthy;
+                changed = true;
+                if (healthy) {
+                    log.info("Read replica {} is healthy again", replica.name);
+                } else {
+                    log.warn("Read replica {} failed its health check, routing its reads to the primary", replica.name);
+                }
+            }
+        }
+        if (changed) {
+            refreshHealthyReplicas();
+        }
+    }
+
+    private void markUnhealthy(Replica replica, SQLException e) {
+        if (replica.healthy) {
+            replica.healthy = false;
+            refreshHealthyReplicas();
+            log.warn("Read replica {} is unavailable, routing its reads to the primary: {}", replica.name, e.getMessage());
+        }
+    }
+
+    private void refreshHealthyReplicas() {
+        healthyReplicas = replicas.stream().filter(replica -> replica.healthy).toList();
+    }
+
+    public int getReplicaCount() {
+        return replicas.size();
+    }
+
+    public int getHealthyReplicaCount() {
+        return healthyReplicas.size();
+    }
+
+    public long getReplicaConnectionCount() {
+        return replicaConnections.sum();
+    }
+
+    public long getPrimaryFallbackCount() {
+        return primaryFallbacks.sum();
+    }
+
+    public long getReadYourWritesRouteCount() {
+        return readYourWritesRoutes.sum();
+    }
+
+    /**
+     * @return 各副本的健康狀態 (依設定順序)
+     */
+    public Map<String, Boolean> getReplicaHealth() {
+        Map<String, Boolean> health = new LinkedHashMap<>();
+        replicas.forEach(replica -> health.put(replica.name, replica.healthy));
+        return health;
+    }
+
+    @Override
+    public void close() {
+        replicas.forEach(replica -> replica.dataSource.close());
+    }
+}
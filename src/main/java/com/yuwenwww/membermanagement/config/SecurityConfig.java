@@ -1,10 +1,16 @@
 package com.yuwenwww.membermanagement.config;
 
 
-import com.yuwenwww.membermanagement.repository.MemberRepository;
-import org.springframework.beans.factory.annotation.Autowired;
+import com.yuwenwww.membermanagement.service.AuthenticatedCredentialCache;
+import com.yuwenwww.membermanagement.service.BcryptCostCalibrator;
+import com.yuwenwww.membermanagement.service.BlindIndexService;
+import com.yuwenwww.membermanagement.service.BoundedPasswordEncoder;
+import com.yuwenwww.membermanagement.service.MemberMetrics;
+import com.yuwenwww.membermanagement.service.MemberService;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
@@ -13,9 +19,14 @@ import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.www.BasicAuthenticationFilter;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.springframework.security.config.Customizer.withDefaults;
@@ -25,19 +36,46 @@ import static org.springframework.security.config.Customizer.withDefaults;
 @EnableMethodSecurity(prePostEnabled = true)
 public class SecurityConfig {
 
-    @Autowired
-    private MemberRepository memberRepository;
-
+    /**
+     * BCrypt 密碼編碼器，雜湊與驗證都在有上限的專用執行緒池上執行。
+     * 新雜湊以 {bcrypt} 前綴加上 BcryptCostCalibrator 決定的 cost 產生；沒有前綴的舊雜湊仍以 BCrypt 驗證。
+     * 舊雜湊或 cost 低於目前設定的雜湊，upgradeEncoding 會回傳 true，於下次成功登入時重新雜湊。
+     * @param threads 雜湊執行緒數，0 表示使用 CPU 核心數
+     * @param queueCapacity 等待佇列上限，超過時回應 503
+     * @param retryAfter 503 回應的 Retry-After
+     */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public BoundedPasswordEncoder passwordEncoder(@Value("${member.password-hashing.threads:0}") int threads,
+                                                  @Value("${member.password-hashing.queue-capacity:64}") int queueCapacity,
+                                                  @Value("${member.password-hashing.retry-after:PT1S}") Duration retryAfter,
+                                                  MemberMetrics memberMetrics,
+                                                  BcryptCostCalibrator costCalibrator) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(costCalibrator.getStrength());
+        DelegatingPasswordEncoder delegating = new DelegatingPasswordEncoder("bcrypt", Map.of("bcrypt", bcrypt));
+        delegating.setDefaultPasswordEncoderForMatches(bcrypt); // 前綴加入前的 $2a$10$... 雜湊
+        return new BoundedPasswordEncoder(delegating, poolSize, queueCapacity, retryAfter, memberMetrics);
     }
 
+    /**
+     * 以用戶名或 email 登入：用戶名找不到且看起來像 email 時，改以 email 盲索引查詢。
+     * 註冊與匯入 (RegisterRequest) 不允許用戶名含 '@'，因此新的用戶名不會遮蔽他人的 email 登入；
+     * '@' 限制加入前已存在的此類用戶名仍會優先比對，應由管理員更名。
+     * email 的唯一性只是盡力而為 (email_bidx 沒有唯一約束)，同一 email 對應多位會員時不允許以 email 登入。
+     */
     @Bean
-    public UserDetailsService userDetailsService() {
+    public UserDetailsService userDetailsService(PasswordEncoder passwordEncoder, BlindIndexService blindIndexService,
+                                                 MemberService memberService) {
+        // 測試用戶的密碼只在啟動時雜湊一次，避免每次載入都執行 BCrypt
+        String testUserPassword = passwordEncoder.encode("testpass");
         return username -> {
-            // 首先嘗試從資料庫載入用戶
-            Optional<com.yuwenwww.membermanagement.entity.Member> memberOptional = memberRepository.findByUsername(username);
+            // 首先嘗試從資料庫載入用戶 (用戶名所在的分片；設定讀取副本時走副本，剛註冊的用戶在 read-your-writes 視窗內走主庫)
+            Optional<com.yuwenwww.membermanagement.entity.Member> memberOptional = memberService.findByUsername(username);
+            if (memberOptional.isEmpty() && username.indexOf('@') > 0) {
+                // 同一 email 對應多位會員 (盲索引加入前的舊資料) 時無法判斷身分，不允許以 email 登入
+                List<com.yuwenwww.membermanagement.entity.Member> byEmail = memberService.findByEmailBidx(blindIndexService.emailIndex(username));
+                memberOptional = byEmail.size() == 1 ? Optional.of(byEmail.get(0)) : Optional.empty();
+            }
             if (memberOptional.isPresent()) {
                 com.yuwenwww.membermanagement.entity.Member member = memberOptional.get();
                 return User.builder()
@@ -54,7 +92,7 @@ public class SecurityConfig {
                 // Use a proper PasswordEncoder to encode the password if it's stored.
                 // For demonstration, using BCryptPasswordEncoder.encode("testpass") here.
                 return User.withUsername("testuser")
-                        .password(passwordEncoder().encode("testpass")) // 使用編碼後的密碼
+                        .password(testUserPassword) // 使用編碼後的密碼
                         .roles("USER", "ADMIN") // 給予測試用戶 ADMIN 角色，以便測試權限
                         .build();
             }
@@ -63,6 +101,21 @@ public class SecurityConfig {
         };
     }
 
+    /**
+     * HTTP Basic 使用的認證提供者：近期驗證過的帳密直接由快取通過，其餘交給 DaoAuthenticationProvider。
+     * 舊雜湊的升級由 CachingAuthenticationProvider 在驗證成功後進行，DaoAuthenticationProvider 不設定 UserDetailsPasswordService。
+     */
+    @Bean
+    public CachingAuthenticationProvider authenticationProvider(UserDetailsService userDetailsService,
+                                                                PasswordEncoder passwordEncoder,
+                                                                AuthenticatedCredentialCache credentialCache,
+                                                                MemberService memberService,
+                                                                MemberMetrics memberMetrics) {
+        DaoAuthenticationProvider daoAuthenticationProvider = new DaoAuthenticationProvider(userDetailsService);
+        daoAuthenticationProvider.setPasswordEncoder(passwordEncoder);
+        return new CachingAuthenticationProvider(daoAuthenticationProvider, credentialCache, memberService, memberMetrics);
+    }
+
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
         http
@@ -70,9 +123,12 @@ public class SecurityConfig {
                 .authorizeHttpRequests(authorize -> authorize
                         .requestMatchers("/api/members/register").permitAll() // 允許所有用戶訪問註冊接口
                         .requestMatchers("/swagger-ui.html", "/swagger-ui/**", "/v3/api-docs/**").permitAll() // 允許訪問 Swagger UI
+                        .requestMatchers("/actuator/health/**").permitAll() // 健康檢查不需要認證
+                        .requestMatchers("/actuator/**").hasRole("ADMIN") // 度量 (含 /actuator/prometheus) 僅限管理員
                         .anyRequest().authenticated() // 其他所有請求都需要身份驗證
                 )
-                .httpBasic(withDefaults()); // 使用 HTTP Basic 認證
+                .httpBasic(withDefaults()) // 使用 HTTP Basic 認證
+                .addFilterBefore(new PasswordHashingBusyFilter(), BasicAuthenticationFilter.class); // 雜湊池滿時回應 503
 
         // 允許 H2-Console 或其他內嵌框架的 frame
         http.headers(headers -> headers.frameOptions(frameOptions -> frameOptions.sameOrigin()));
@@ -0,0 +1,49 @@
+package com.yuwenwww.membermanagement.config;
+
+import com.yuwenwww.membermanagement.service.MemberShardRouter;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 依 MemberShardRouter.currentShard() 選擇分片的 DataSource。
+ * 未指定分片的連線 (金鑰、輪替工作等全域資料表，以及分片前的舊會員) 使用分片 0。
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+
+    private final List<HikariDataSource> additionalShards;
+
+    /**
+     * @param shard0 分片 0 (spring.datasource)
+     * @param additionalShards 分片 1 之後的連線池 (依設定順序)
+     */
+    public ShardRoutingDataSource(HikariDataSource shard0, List<HikariDataSource> additionalShards) {
+        this.additionalShards = List.copyOf(additionalShards);
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(0, shard0);
+        for (int i = 0; i < additionalShards.size(); i++) {
+            targets.put(i + 1, additionalShards.get(i));
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(shard0);
+        setLenientFallback(false); // 指定了不存在的分片時拋出例外，而不是默默使用分片 0
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        Integer shard = MemberShardRouter.currentShard();
+        return shard != null ? shard : 0;
+    }
+
+    /**
+     * 關閉分片 1 之後的連線池；分片 0 由 Spring 管理。
+     */
+    @Override
+    public void close() {
+        additionalShards.forEach(HikariDataSource::close);
+    }
+}
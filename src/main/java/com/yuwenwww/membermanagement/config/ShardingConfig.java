@@ -0,0 +1,92 @@
+package com.yuwenwww.membermanagement.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 會員資料分片：設定 member.sharding.additional-shard-urls 時啟用，未設定時沿用單一 DataSource。
+ * <p>
+ * 分片 0 是 spring.datasource，除了會員資料之外也存放金鑰、輪替工作等全域資料表與分片前的舊會員；
+ * 分片 1 之後只存放會員資料，啟動時套用 schema.sql (spring.sql.init.mode=never 時略過)。
+ * Hibernate 的 ddl-auto 只作用於分片 0，members 的欄位變更須同時寫入 schema.sql。
+ * <p>
+ * 應用程式使用的 DataSource 是包裝 ShardRoutingDataSource 的 LazyConnectionDataSourceProxy，
+ * 第一個查詢執行時才依 MemberShardRouter 指定的分片取得連線。分片數設定後不可變更 (既有會員的分片由用戶名雜湊決定)。
+ * 目前不支援與讀取副本 (member.datasource.replica-urls) 同時使用。
+ */
+@Configuration
+@ConditionalOnExpression("!'${member.sharding.additional-shard-urls:}'.isBlank()")
+public class ShardingConfig {
+
+    /**
+     * 分片 0 的連線池，沿用 spring.datasource.* 與 spring.datasource.hikari.* 設定。
+     */
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties,
+                                              @Value("${member.datasource.replica-urls:}") String replicaUrls) {
+        if (!replicaUrls.isBlank()) {
+            throw new IllegalStateException("member.sharding.additional-shard-urls cannot be combined with member.datasource.replica-urls");
+        }
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    /**
+     * 各分片的連線池與路由。
+     * @param shardUrls 以逗號分隔的分片 1 之後的 JDBC URL
+     * @param poolSize 每個額外分片的連線池大小
+     */
+    @Bean
+    public ShardRoutingDataSource shardRoutingDataSource(@Qualifier("primaryDataSource") HikariDataSource primaryDataSource,
+                                                         DataSourceProperties properties,
+                                                         @Value("${member.sharding.additional-shard-urls}") List<String> shardUrls,
+                                                         @Value("${member.sharding.username:${spring.datasource.username:}}") String username,
+                                                         @Value("${member.sharding.password:${spring.datasource.password:}}") String password,
+                                                         @Value("${member.sharding.pool-size:20}") int poolSize,
+                                                         @Value("${spring.sql.init.mode:embedded}") String sqlInitMode,
+                                                         MeterRegistry meterRegistry) {
+        List<HikariDataSource> pools = new ArrayList<>(shardUrls.size());
+        for (String url : shardUrls) {
+            if (url.isBlank()) {
+                continue;
+            }
+            HikariDataSource pool = new HikariDataSource();
+            pool.setPoolName("shard-" + (pools.size() + 1));
+            pool.setJdbcUrl(url.trim());
+            pool.setUsername(username);
+            pool.setPassword(password);
+            pool.setDriverClassName(properties.determineDriverClassName());
+            pool.setMaximumPoolSize(poolSize);
+            pool.setMinimumIdle(poolSize);
+            pool.setConnectionTimeout(primaryDataSource.getConnectionTimeout());
+            pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry)); // hikaricp.connections{pool=shard-N}
+            if (!"never".equalsIgnoreCase(sqlInitMode)) {
+                new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(pool);
+            }
+            pools.add(pool);
+        }
+        return new ShardRoutingDataSource(primaryDataSource, pools);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ShardRoutingDataSource shardRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(shardRoutingDataSource);
+    }
+}
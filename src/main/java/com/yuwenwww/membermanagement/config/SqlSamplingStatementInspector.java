@@ -0,0 +1,34 @@
+package com.yuwenwww.membermanagement.config;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 依比例抽樣記錄 Hibernate 產生的 SQL (取代記錄全部 SQL 的 show-sql)。
+ * 只記錄 SQL 文字，不含綁定參數，不會把 PII 密文或密碼雜湊寫入日誌。
+ * 慢查詢另由 Hibernate 的 hibernate.log_slow_query 記錄。
+ */
+public class SqlSamplingStatementInspector implements StatementInspector {
+
+    private static final Logger log = LoggerFactory.getLogger("member.sql");
+
+    private final double sampleRate;
+
+    /**
+     * @param sampleRate 0 到 1 之間的抽樣比例
+     */
+    public SqlSamplingStatementInspector(double sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
+    @Override
+    public String inspect(String sql) {
+        if (ThreadLocalRandom.current().nextDouble() < sampleRate && log.isDebugEnabled()) {
+            log.debug("{}", sql);
+        }
+        return sql;
+    }
+}
@@ -0,0 +1,394 @@
+package com.yuwenwww.membermanagement.controller;
+
+import com.yuwenwww.membermanagement.config.ReplicaRoutingDataSource;
+import com.yuwenwww.membermanagement.dto.ImportReport;
+import com.yuwenwww.membermanagement.dto.MemberProfileResponse;
+import com.yuwenwww.membermanagement.service.AuthenticatedCredentialCache;
+import com.yuwenwww.membermanagement.service.BlindIndexBackfillService;
+import com.yuwenwww.membermanagement.service.BcryptCostCalibrator;
+import com.yuwenwww.membermanagement.service.BoundedPasswordEncoder;
+import com.yuwenwww.membermanagement.service.EnvelopeKeyService;
+import com.yuwenwww.membermanagement.service.KeyRotationService;
+import com.yuwenwww.membermanagement.service.KeyUsageCounter;
+import com.yuwenwww.membermanagement.service.MemberImportService;
+import com.yuwenwww.membermanagement.service.MasterKeyProvider;
+import com.yuwenwww.membermanagement.service.MemberProfileCache;
+import com.yuwenwww.membermanagement.service.MemberService;
+import com.yuwenwww.membermanagement.service.MemberShardRouter;
+import com.yuwenwww.membermanagement.service.PasswordHashCostMonitor;
+import com.yuwenwww.membermanagement.service.PiiKeyCache;
+import com.yuwenwww.membermanagement.service.ReadYourWritesTracker;
+import com.yuwenwww.membermanagement.service.SnowflakeIdGenerator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin")
+@PreAuthorize("hasRole('ADMIN')") // 管理接口僅限管理員
+public class AdminController {
+
+    @Autowired
+    private PiiKeyCache piiKeyCache;
+
+    @Autowired
+    private BoundedPasswordEncoder passwordEncoder;
+
+    @Autowired
+    private BcryptCostCalibrator bcryptCostCalibrator;
+
+    @Autowired
+    private PasswordHashCostMonitor passwordHashCostMonitor;
+
+    @Autowired(required = false) // 未設定讀取副本時不存在
+    private ReplicaRoutingDataSource replicaRoutingDataSource;
+
+    @Autowired
+    private ReadYourWritesTracker readYourWritesTracker;
+
+    @Autowired
+    private AuthenticatedCredentialCache credentialCache;
+
+    @Autowired
+    private MemberImportService memberImportService;
+
+    @Autowired
+    private MemberProfileCache memberProfileCache;
+
+    @Autowired
+    private BlindIndexBackfillService blindIndexBackfillService;
+
+    @Autowired
+    private KeyRotationService keyRotationService;
+
+    @Autowired
+    private MasterKeyProvider masterKeyProvider;
+
+    @Autowired
+    private EnvelopeKeyService envelopeKeyService;
+
+    @Autowired
+    private KeyUsageCounter keyUsageCounter;
+
+    @Autowired
+    private MemberService memberService;
+
+    @Autowired
+    private MemberShardRouter memberShardRouter;
+
+    @Autowired
+    private SnowflakeIdGenerator snowflakeIdGenerator;
+
+    /**
+     * 查詢 PII 金鑰快取的命中統計。
+     * 路徑：/api/admin/key-cache
+     * @return 快取大小與命中/未命中次數
+     */
+    @GetMapping("/key-cache")
+    public ResponseEntity<Map<String, Object>> getKeyCacheStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", piiKeyCache.size());
+        stats.put("hits", piiKeyCache.getHitCount());
+        stats.put("misses", piiKeyCache.getMissCount());
+        stats.put("evictions", piiKeyCache.getEvictionCount());
+        return ResponseEntity.ok(stats);
+    }
+
+    /**
+     * 使指定標籤的金鑰快取失效，下一次使用時會重新從 key_material 載入。
+     * 路徑：/api/admin/key-cache/{keyLabel}
+     * @param keyLabel 金鑰標籤
+     */
+    @DeleteMapping("/key-cache/{keyLabel}")
+    public ResponseEntity<Void> invalidateKey(@PathVariable String keyLabel) {
+        piiKeyCache.invalidate(keyLabel);
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * 清空整個金鑰快取。
+     * 路徑：/api/admin/key-cache
+     */
+    @DeleteMapping("/key-cache")
+    public ResponseEntity<Void> invalidateAllKeys() {
+        piiKeyCache.invalidateAll();
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * 查詢密碼雜湊執行緒池的佇列深度與延遲。
+     * 路徑：/api/admin/password-hashing
+     * @return 執行緒池狀態、平均排隊/執行時間、目前的 BCrypt cost 與各 cost 的會員數 (背景排程統計)
+     */
+    @GetMapping("/password-hashing")
+    public ResponseEntity<Map<String, Object>> getPasswordHashingStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("maxThreads", passwordEncoder.getMaxThreads());
+        stats.put("activeThreads", passwordEncoder.getActiveCount());
+        stats.put("queueDepth", passwordEncoder.getQueueDepth());
+        stats.put("completed", passwordEncoder.getCompletedCount());
+        stats.put("rejected", passwordEncoder.getRejectedCount());
+        stats.put("avgQueueWaitMillis", passwordEncoder.getAverageQueueWaitMillis());
+        stats.put("avgExecutionMillis", passwordEncoder.getAverageExecutionMillis());
+        stats.put("strength", bcryptCostCalibrator.getStrength());
+        stats.put("targetVerifyMillis", bcryptCostCalibrator.getTargetVerifyTime().toMillis());
+        stats.put("hashCosts", passwordHashCostMonitor.getLastCounts());
+        stats.put("hashCostsRefreshedAt", passwordHashCostMonitor.getRefreshedAt());
+        return ResponseEntity.ok(stats);
+    }
+
+    /**
+     * 查詢認證快取的命中統計。
+     * 路徑：/api/admin/auth-cache
+     * @return 快取大小與命中/未命中次數
+     */
+    @GetMapping("/auth-cache")
+    public ResponseEntity<Map<String, Object>> getAuthCacheStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", credentialCache.size());
+        stats.put("hits", credentialCache.getHitCount());
+        stats.put("misses", credentialCache.getMissCount());
+        return ResponseEntity.ok(stats);
+    }
+
+    /**
+     * 清空認證快取，所有用戶的下一次請求會重新驗證密碼。
+     * 路徑：/api/admin/auth-cache
+     */
+    @DeleteMapping("/auth-cache")
+    public ResponseEntity<Void> invalidateAuthCache() {
+        credentialCache.invalidateAll();
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * 查詢最近一次大量匯入的報告 (筆數與吞吐量)。
+     * 路徑：/api/admin/import/last
+     * @return 匯入報告，尚未匯入過時回應 404
+     */
+    @GetMapping("/import/last")
+    public ResponseEntity<ImportReport> getLastImportReport() {
+        ImportReport report = memberImportService.getLastReport();
+        return report != null ? ResponseEntity.ok(report) : ResponseEntity.notFound().build();
+    }
+
+    /**
+     * 查詢會員資料快取的命中率與淘汰統計。
+     * 路徑：/api/admin/profile-cache
+     * @return 快取狀態
+     */
+    @GetMapping("/profile-cache")
+    public ResponseEntity<Map<String, Object>> getProfileCacheStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", memberProfileCache.isEnabled());
+        stats.put("size", memberProfileCache.size());
+        stats.put("hits", memberProfileCache.getHitCount());
+        stats.put("misses", memberProfileCache.getMissCount());
+        stats.put("hitRate", memberProfileCache.getHitRate());
+        stats.put("sizeEvictions", memberProfileCache.getSizeEvictionCount());
+        stats.put("expiredEvictions", memberProfileCache.getExpiredEvictionCount());
+        stats.put("explicitEvictions", memberProfileCache.getExplicitEvictionCount());
+        return ResponseEntity.ok(stats);
+    }
+
+    /**
+     * 清空會員資料快取 (並清零快取中的 PII)。
+     * 路徑：/api/admin/profile-cache
+     */
+    @DeleteMapping("/profile-cache")
+    public ResponseEntity<Void> clearProfileCache() {
+        memberProfileCache.clear();
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * 在背景啟動盲索引回填，為既有會員計算 email_bidx / phone_bidx。
+     * 路徑：/api/admin/blind-index/backfill
+     * @return 202 與目前進度；已有回填執行中時回應 409
+     */
+    @PostMapping("/blind-index/backfill")
+    public ResponseEntity<Map<String, Object>> startBlindIndexBackfill() {
+        boolean started = blindIndexBackfillService.start();
+        return ResponseEntity.status(started ? HttpStatus.ACCEPTED : HttpStatus.CONFLICT)
+                .body(blindIndexBackfillService.getStatus());
+    }
+
+    /**
+     * 查詢盲索引回填進度。
+     * 路徑：/api/admin/blind-index/backfill
+     * @return 回填進度
+     */
+    @GetMapping("/blind-index/backfill")
+    public ResponseEntity<Map<String, Object>> getBlindIndexBackfillStatus() {
+        return ResponseEntity.ok(blindIndexBackfillService.getStatus());
+    }
+
+    /**
+     * 產生新的 PII 金鑰並在背景重新加密所有會員。
+     * 路徑：/api/admin/key-rotation?rowsPerSecond=
+     * @param rowsPerSecond 節流上限 (可選)
+     * @return 202 與目前進度；已有輪替進行中時回應 409
+     */
+    @PostMapping("/key-rotation")
+    public ResponseEntity<Map<String, Object>> startKeyRotation(@RequestParam(required = false) Integer rowsPerSecond) {
+        try {
+            keyRotationService.startRotation(rowsPerSecond);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(keyRotationService.getStatus());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(Map.of("error", String.valueOf(e.getMessage())));
+        }
+    }
+
+    /**
+     * 暫停執行中的輪替 (目前批次提交後停止)。
+     * 路徑：/api/admin/key-rotation/pause
+     */
+    @PostMapping("/key-rotation/pause")
+    public ResponseEntity<Map<String, Object>> pauseKeyRotation() {
+        keyRotationService.pauseRotation();
+        return ResponseEntity.accepted().body(keyRotationService.getStatus());
+    }
+
+    /**
+     * 從檢查點繼續暫停或失敗的輪替。
+     * 路徑：/api/admin/key-rotation/resume?rowsPerSecond=
+     * @param rowsPerSecond 新的節流上限 (可選)
+     * @return 202 與目前進度；沒有可繼續的輪替時回應 409
+     */
+    @PostMapping("/key-rotation/resume")
+    public ResponseEntity<Map<String, Object>> resumeKeyRotation(@RequestParam(required = false) Integer rowsPerSecond) {
+        try {
+            keyRotationService.resumeRotation(rowsPerSecond);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(keyRotationService.getStatus());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * 查詢金鑰輪替的進度與吞吐量。
+     * 路徑：/api/admin/key-rotation
+     * @return 輪替進度
+     */
+    @GetMapping("/key-rotation")
+    public ResponseEntity<Map<String, Object>> getKeyRotationStatus() {
+        return ResponseEntity.ok(keyRotationService.getStatus());
+    }
+
+    /**
+     * 查詢讀寫分離的狀態。
+     * 路徑：/api/admin/datasource
+     * @return 各讀取副本的健康狀態與唯讀連線的分配次數；未設定副本時 replicasEnabled 為 false
+     */
+    @GetMapping("/datasource")
+    public ResponseEntity<Map<String, Object>> getDataSourceStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("replicasEnabled", replicaRoutingDataSource != null);
+        if (replicaRoutingDataSource != null) {
+            status.put("replicas", replicaRoutingDataSource.getReplicaHealth());
+            status.put("healthyReplicas", replicaRoutingDataSource.getHealthyReplicaCount());
+            status.put("replicaConnections", replicaRoutingDataSource.getReplicaConnectionCount());
+            status.put("primaryFallbacks", replicaRoutingDataSource.getPrimaryFallbackCount());
+            status.put("readYourWritesRoutes", replicaRoutingDataSource.getReadYourWritesRouteCount());
+            status.put("recentWrites", readYourWritesTracker.size());
+        }
+        return ResponseEntity.ok(status);
+    }
+
+    /**
+     * 依 ID 分頁列出會員 (含解密後的 PII)，設定分片時平行查詢所有分片後合併。
+     * 路徑：/api/admin/members?afterId=0&limit=100
+     * @param afterId 上一頁最後一筆的 ID，第一頁為 0
+     * @param limit 頁大小 (1 至 500)
+     * @return 依 ID 排序的會員資料
+     */
+    @GetMapping("/members")
+    public ResponseEntity<List<MemberProfileResponse>> listMembers(@RequestParam(defaultValue = "0") long afterId,
+                                                                   @RequestParam(defaultValue = "100") int limit) {
+        if (limit < 1 || limit > 500) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(memberService.listProfiles(afterId, limit));
+    }
+
+    /**
+     * 查詢會員資料的分片狀態。
+     * 路徑：/api/admin/sharding
+     * @return 分片數、ID 產生器的節點編號與各分片的會員數
+     */
+    @GetMapping("/sharding")
+    public ResponseEntity<Map<String, Object>> getShardingStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("shardCount", memberShardRouter.getShardCount());
+        status.put("idNodeId", snowflakeIdGenerator.getNodeId());
+        status.put("membersPerShard", memberService.countMembersPerShard());
+        return ResponseEntity.ok(status);
+    }
+
+    /**
+     * 查詢目前使用的主金鑰。
+     * 路徑：/api/admin/master-key
+     * @return 主金鑰別名與已載入的主金鑰數
+     */
+    @GetMapping("/master-key")
+    public ResponseEntity<Map<String, Object>> getMasterKeyStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("activeAlias", masterKeyProvider.getActiveAlias());
+        status.put("loadedKeys", masterKeyProvider.size());
+        return ResponseEntity.ok(status);
+    }
+
+    /**
+     * 輪替主金鑰：產生新主金鑰並重新包裝所有資料金鑰 (不重新加密 PII)。
+     * 路徑：/api/admin/master-key/rotate
+     * @return 新主金鑰別名、重新包裝的資料金鑰數與耗時
+     */
+    @PostMapping("/master-key/rotate")
+    public ResponseEntity<Map<String, Object>> rotateMasterKey() {
+        try {
+            long start = System.nanoTime();
+            String alias = masterKeyProvider.rotate();
+            int rewrapped = envelopeKeyService.rewrapAll();
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("activeAlias", alias);
+            result.put("rewrappedKeys", rewrapped);
+            result.put("elapsedMillis", (System.nanoTime() - start) / 1_000_000);
+            return ResponseEntity.ok(result);
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(Map.of("error", String.valueOf(e.getMessage())));
+        }
+    }
+
+    /**
+     * 查詢 PII 金鑰的使用次數與告警狀態。
+     * 路徑：/api/admin/key-usage
+     * @return 已寫回的次數、尚未寫回的次數與超過門檻的金鑰
+     */
+    @GetMapping("/key-usage")
+    public ResponseEntity<Map<String, Object>> getKeyUsage() {
+        Map<String, Object> usage = new LinkedHashMap<>();
+        usage.put("alertThreshold", keyUsageCounter.getAlertThreshold());
+        usage.put("flushedCounts", keyUsageCounter.getLastKnownCounts());
+        usage.put("pendingCounts", keyUsageCounter.getPendingCounts());
+        usage.put("alertedLabels", keyUsageCounter.getAlertedLabels());
+        return ResponseEntity.ok(usage);
+    }
+
+    /**
+     * 立即將累計的使用次數寫回資料庫。
+     * 路徑：/api/admin/key-usage/flush
+     */
+    @PostMapping("/key-usage/flush")
+    public ResponseEntity<Map<String, Object>> flushKeyUsage() {
+        keyUsageCounter.flush();
+        return getKeyUsage();
+    }
+}
@@ -1,23 +1,62 @@
 package com.yuwenwww.membermanagement.controller;
 
 import com.yuwenwww.membermanagement.entity.Member;
+import com.yuwenwww.membermanagement.service.KeyRotationService;
+import com.yuwenwww.membermanagement.service.MemberExportService;
+import com.yuwenwww.membermanagement.service.MemberImportService;
 import com.yuwenwww.membermanagement.service.MemberService;
+import com.yuwenwww.membermanagement.service.PasswordHashingBusyException;
 import com.yuwenwww.membermanagement.dto.RegisterRequest; // 引入新的 DTO
 import com.yuwenwww.membermanagement.dto.MemberProfileResponse; // 引入新的 DTO
+import com.yuwenwww.membermanagement.dto.BatchProfileRequest;
+import com.yuwenwww.membermanagement.dto.ImportReport;
+import com.yuwenwww.membermanagement.dto.MemberLookupRequest;
+import com.yuwenwww.membermanagement.dto.MemberUpdateRequest;
 import jakarta.validation.Valid; // 引入驗證註解
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.security.access.prepost.PreAuthorize; // 引入 PreAuthorize
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.List;
+import java.util.NoSuchElementException;
+
 @RestController
 @RequestMapping("/api/members")
 public class MemberController {
 
+    private static final Logger log = LoggerFactory.getLogger(MemberController.class);
+
     @Autowired
     private MemberService memberService;
 
+    @Autowired
+    private MemberImportService memberImportService;
+
+    @Autowired
+    private MemberExportService memberExportService;
+
+    @Autowired
+    private KeyRotationService keyRotationService; // 提供目前的 PII 寫入金鑰標籤 (初始金鑰見 KeyInitializer)
+
+    @Value("${member.export.timeout:PT2H}")
+    private Duration exportTimeout; // 匯出串流的非同步逾時
+
     /**
      * 註冊新會員。
      * 路徑：/api/members/register
@@ -33,16 +72,22 @@ public class MemberController {
             newMember.setEmail(request.getEmail() != null ? request.getEmail().getBytes() : null); // 將 String 轉為 byte[]
             newMember.setPhoneNumber(request.getPhoneNumber() != null ? request.getPhoneNumber().getBytes() : null); // 將 String 轉為 byte[]
 
-            // 假設 PII 加密金鑰的標籤為 "pii_aes_key"。這需要提前生成。
-            // 您可以在啟動時或通過其他 API 生成這個金鑰並儲存。
-            String piiKeyLabel = "pii_aes_key";
-            Member registeredMember = memberService.registerNewMember(newMember, piiKeyLabel);
+            Member registeredMember = memberService.registerNewMember(newMember, keyRotationService.getActiveKeyLabel());
 
             return ResponseEntity.status(HttpStatus.CREATED).body("Member registered successfully with ID: " + registeredMember.getId());
+        } catch (PasswordHashingBusyException e) {
+            // 密碼雜湊池已滿，請用戶端稍後重試
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                    .body(e.getMessage());
+        } catch (DataAccessException e) {
+            // 不是用戶名重複的資料庫錯誤：不把 SQL 錯誤訊息回傳給用戶端
+            log.error("Registration failed for username {}", request.getUsername(), e);
+            return ResponseEntity.internalServerError().body("An error occurred during registration.");
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(e.getMessage());
         } catch (Exception e) {
-            e.printStackTrace();
+            log.error("Registration failed for username {}", request.getUsername(), e);
             return ResponseEntity.internalServerError().body("An error occurred during registration.");
         }
     }
@@ -57,26 +102,146 @@ public class MemberController {
     @PreAuthorize("hasRole('USER') or hasRole('ADMIN')") // 只有登入用戶或管理員才能訪問
     public ResponseEntity<MemberProfileResponse> getMemberProfile(@PathVariable Long id) {
         try {
-            Member member = memberService.getMemberByIdAndDecryptPii(id);
-            MemberProfileResponse response = new MemberProfileResponse(
-                    member.getId(),
-                    member.getUsername(),
-                    memberService.bytesToString(member.getEmail()), // 解密後的 email
-                    memberService.bytesToString(member.getPhoneNumber()), // 解密後的 phone
-                    member.getCreatedAt(),
-                    member.getUpdatedAt()
-            );
+            MemberProfileResponse response = memberService.getMemberProfile(id);
             return ResponseEntity.ok(response);
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(null); // 或者返回錯誤訊息 DTO
         } catch (Exception e) {
-            e.printStackTrace();
+            log.error("Failed to load profile for member ID {}", id, e);
             return ResponseEntity.internalServerError().body(null);
         }
     }
 
+    /**
+     * 部分更新會員資料 (本人或管理員)，未提供的欄位維持不變。
+     * 路徑：PATCH /api/members/{id}
+     * @param id 會員 ID
+     * @param request email、phoneNumber、password 其中至少一個
+     * @return 更新後的會員資料；會員不存在為 404，並行更新衝突為 409 (請重新讀取後再試)
+     */
+    @PatchMapping("/{id}")
+    @PreAuthorize("hasRole('ADMIN') or @memberService.isOwner(#id, authentication.name)")
+    public ResponseEntity<?> updateMember(@PathVariable Long id, @Valid @RequestBody MemberUpdateRequest request) {
+        try {
+            memberService.updateMember(id, request, keyRotationService.getActiveKeyLabel());
+            return ResponseEntity.ok(memberService.getMemberProfile(id));
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        } catch (ObjectOptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body("Member was modified concurrently, please retry");
+        } catch (PasswordHashingBusyException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                    .body(e.getMessage());
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    /**
+     * 刪除會員 (本人或管理員)。
+     * 路徑：DELETE /api/members/{id}
+     * @param id 會員 ID
+     * @return 204；會員不存在為 404，並行更新衝突為 409
+     */
+    @DeleteMapping("/{id}")
+    @PreAuthorize("hasRole('ADMIN') or @memberService.isOwner(#id, authentication.name)")
+    public ResponseEntity<?> deleteMember(@PathVariable Long id) {
+        try {
+            memberService.deleteMember(id);
+            return ResponseEntity.noContent().build();
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        } catch (ObjectOptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body("Member was modified concurrently, please retry");
+        }
+    }
+
+    /**
+     * 批次獲取多位會員資料 (僅限管理員)，取代逐一呼叫 GET /api/members/{id}。
+     * 一次可取得 500 位會員解密後的 PII，不開放給一般會員。
+     * 路徑：/api/members/batch
+     * @param request 會員 ID 列表 (最多 500 個)
+     * @return 依請求順序排列的會員資料，找不到的 ID 會被略過
+     */
+    @PostMapping("/batch")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<List<MemberProfileResponse>> getMemberProfiles(@Valid @RequestBody BatchProfileRequest request) {
+        try {
+            return ResponseEntity.ok(memberService.getMemberProfiles(request.getIds()));
+        } catch (RuntimeException e) {
+            return ResponseEntity.internalServerError().body(null);
+        }
+    }
+
+    /**
+     * 依 email 或電話號碼查詢會員 (僅限管理員)，透過盲索引查詢，不需要解密整張表。
+     * 以 POST 傳遞條件，避免 PII 出現在 URL 與存取日誌中。
+     * 路徑：/api/members/lookup
+     * @param request email 或 phoneNumber 其中之一
+     * @return 符合的會員資料
+     */
+    @PostMapping("/lookup")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<List<MemberProfileResponse>> lookupMembers(@Valid @RequestBody MemberLookupRequest request) {
+        try {
+            List<MemberProfileResponse> profiles = request.getEmail() != null
+                    ? memberService.findProfilesByEmail(request.getEmail())
+                    : memberService.findProfilesByPhone(request.getPhoneNumber());
+            return ResponseEntity.ok(profiles);
+        } catch (RuntimeException e) {
+            return ResponseEntity.internalServerError().body(null);
+        }
+    }
+
+    /**
+     * 大量匯入會員 (僅限管理員)。
+     * 路徑：/api/members/import
+     * 請求內容為 NDJSON (application/x-ndjson，每行一個與註冊請求相同的 JSON 物件)
+     * 或 CSV (text/csv，第一行為 username,password,email,phoneNumber 標頭)。
+     * @param contentType 請求的 Content-Type，用於決定解析格式
+     * @param body 請求內容串流
+     * @return 匯入報告，包含逐筆錯誤與吞吐量
+     */
+    @PostMapping(value = "/import", consumes = {"application/x-ndjson", "text/csv"})
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ImportReport> importMembers(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+                                                      InputStream body) throws IOException {
+        MemberImportService.Format format = MediaType.parseMediaType(contentType).isCompatibleWith(MediaType.parseMediaType("text/csv"))
+                ? MemberImportService.Format.CSV
+                : MemberImportService.Format.NDJSON;
+        return ResponseEntity.ok(memberImportService.importMembers(body, format, keyRotationService.getActiveKeyLabel()));
+    }
+
+    /**
+     * 匯出所有會員資料 (僅限管理員)，以串流方式直接寫入回應，不會一次載入全部會員。
+     * 串流在非同步請求中執行，逾時改用 member.export.timeout (預設的非同步逾時只有 30 秒，大量會員的匯出會被截斷)。
+     * 路徑：/api/members/export?format=json|csv
+     * @param format 輸出格式，預設 json
+     * @return 串流回應
+     */
+    @GetMapping("/export")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportMembers(@RequestParam(defaultValue = "json") String format,
+                                                               WebRequest webRequest) {
+        AsyncWebRequest asyncWebRequest = WebAsyncUtils.getAsyncManager(webRequest).getAsyncWebRequest();
+        if (asyncWebRequest != null) {
+            asyncWebRequest.setTimeout(exportTimeout.toMillis()); // 只影響這個請求
+        }
+        MemberExportService.Format exportFormat = "csv".equalsIgnoreCase(format)
+                ? MemberExportService.Format.CSV
+                : MemberExportService.Format.JSON;
+        MediaType mediaType = exportFormat == MemberExportService.Format.CSV
+                ? MediaType.parseMediaType("text/csv;charset=UTF-8")
+                : MediaType.APPLICATION_JSON;
+        String fileName = "members." + exportFormat.name().toLowerCase();
+        StreamingResponseBody body = output -> memberExportService.export(output, exportFormat);
+        return ResponseEntity.ok()
+                .contentType(mediaType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+                .body(body);
+    }
+
     // 您可以根據需要添加其他 API，例如：
-    // - PUT /api/members/{id} (更新會員資料)
-    // - DELETE /api/members/{id} (刪除會員)
     // - POST /api/members/login (登入，但通常由 Spring Security 處理)
 }
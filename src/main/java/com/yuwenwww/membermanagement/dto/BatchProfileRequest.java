@@ -0,0 +1,25 @@
+package com.yuwenwww.membermanagement.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public class BatchProfileRequest {
+
+    @NotEmpty(message = "IDs cannot be empty")
+    @Size(max = 500, message = "At most 500 IDs per request")
+    private List<@NotNull Long> ids;
+
+    // Constructors, Getters, Setters
+    public BatchProfileRequest() {}
+
+    public List<Long> getIds() {
+        return ids;
+    }
+
+    public void setIds(List<Long> ids) {
+        this.ids = ids;
+    }
+}
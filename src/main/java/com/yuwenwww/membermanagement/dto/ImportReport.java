@@ -0,0 +1,86 @@
+package com.yuwenwww.membermanagement.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ImportReport {
+    private long totalRows;
+    private long importedRows;
+    private long failedRows;
+    private long elapsedMillis;
+    private double rowsPerSecond;
+    private List<RowError> errors = new ArrayList<>(); // 只保留前 N 筆錯誤，避免大檔案時記憶體膨脹
+
+    public static class RowError {
+        private long line;
+        private String username;
+        private String message;
+
+        public RowError(long line, String username, String message) {
+            this.line = line;
+            this.username = username;
+            this.message = message;
+        }
+
+        public long getLine() {
+            return line;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+
+    // Getters and Setters
+    public long getTotalRows() {
+        return totalRows;
+    }
+
+    public void setTotalRows(long totalRows) {
+        this.totalRows = totalRows;
+    }
+
+    public long getImportedRows() {
+        return importedRows;
+    }
+
+    public void setImportedRows(long importedRows) {
+        this.importedRows = importedRows;
+    }
+
+    public long getFailedRows() {
+        return failedRows;
+    }
+
+    public void setFailedRows(long failedRows) {
+        this.failedRows = failedRows;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public void setElapsedMillis(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public double getRowsPerSecond() {
+        return rowsPerSecond;
+    }
+
+    public void setRowsPerSecond(double rowsPerSecond) {
+        this.rowsPerSecond = rowsPerSecond;
+    }
+
+    public List<RowError> getErrors() {
+        return errors;
+    }
+
+    public void setErrors(List<RowError> errors) {
+        this.errors = errors;
+    }
+}
@@ -0,0 +1,36 @@
+package com.yuwenwww.membermanagement.dto;
+
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.Email;
+
+public class MemberLookupRequest {
+
+    @Email(message = "Invalid email format")
+    private String email;
+
+    private String phoneNumber;
+
+    // Constructors, Getters, Setters
+    public MemberLookupRequest() {}
+
+    @AssertTrue(message = "Exactly one of email or phoneNumber is required")
+    public boolean isSingleCriterion() {
+        return (email != null) != (phoneNumber != null);
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+    }
+
+    public String getPhoneNumber() {
+        return phoneNumber;
+    }
+
+    public void setPhoneNumber(String phoneNumber) {
+        this.phoneNumber = phoneNumber;
+    }
+}
@@ -0,0 +1,53 @@
+package com.yuwenwww.membermanagement.dto;
+
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.Email;
+import jakarta.validation.constraints.Size;
+
+/**
+ * 部分更新會員資料 (PATCH) 的請求，未提供 (null) 的欄位維持不變。
+ */
+public class MemberUpdateRequest {
+
+    @Email(message = "Invalid email format")
+    @Size(max = 200, message = "Email must be at most 200 characters") // 加密後 (+37 位元組) 仍須放得進 VARBINARY(255)
+    private String email;
+
+    @Size(min = 8, max = 15, message = "Phone number must be between 8 and 15 characters")
+    private String phoneNumber;
+
+    @Size(min = 6, message = "Password must be at least 6 characters long")
+    private String password;
+
+    // Constructors, Getters, Setters
+    public MemberUpdateRequest() {}
+
+    @AssertTrue(message = "At least one of email, phoneNumber or password is required")
+    public boolean isAnyFieldPresent() {
+        return email != null || phoneNumber != null || password != null;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+    }
+
+    public String getPhoneNumber() {
+        return phoneNumber;
+    }
+
+    public void setPhoneNumber(String phoneNumber) {
+        this.phoneNumber = phoneNumber;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    public void setPassword(String password) {
+        this.password = password;
+    }
+}
@@ -2,12 +2,14 @@ package com.yuwenwww.membermanagement.dto;
 
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
 import jakarta.validation.constraints.Size;
 
 public class RegisterRequest {
 
     @NotBlank(message = "Username cannot be empty")
     @Size(min = 3, max = 50, message = "Username must be between 3 and 50 characters")
+    @Pattern(regexp = "[^@]*", message = "Username must not contain '@'") // 含 '@' 的名稱保留給 email 登入，用戶名不可冒用他人 email
     private String username;
 
     @NotBlank(message = "Password cannot be empty")
@@ -15,6 +17,7 @@ public class RegisterRequest {
     private String password;
 
     @Email(message = "Invalid email format")
+    @Size(max = 200, message = "Email must be at most 200 characters") // 加密後 (+37 位元組) 仍須放得進 VARBINARY(255)
     private String email;
 
     @Size(min = 8, max = 15, message = "Phone number must be between 8 and 15 characters")
@@ -9,15 +9,18 @@ import java.sql.Timestamp;
 public class KeyMaterial {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @SnowflakeId
     private Long id;
 
     @Column(name = "key_label", nullable = false, unique = true, length = 50)
     private String keyLabel;
 
-    @Column(name = "key_value", nullable = false)
+    @Column(name = "key_value", nullable = false, length = 64) // 以主金鑰包裝後的資料金鑰 (舊資料列為明文)
     private byte[] keyValue;
 
+    @Column(name = "master_key_alias", length = 50) // 包裝用的主金鑰別名，null 表示尚未包裝
+    private String masterKeyAlias;
+
     @Column(name = "iv", nullable = false, length = 16)
     private byte[] iv;
 
@@ -25,9 +28,14 @@ public class KeyMaterial {
     @Column(name = "key_size", nullable = false)
     private int keySize;
 
-    @Column(name = "usage_count", nullable = false, columnDefinition = "BIGINT DEFAULT 0")
+    // 只由 KeyUsageCounter 以相對更新累加，JPA 儲存實體時不覆寫
+    @Column(name = "usage_count", nullable = false, updatable = false, columnDefinition = "BIGINT DEFAULT 0")
     private long usageCount;
 
+    // 其中的加密次數，同樣只由 KeyUsageCounter 累加
+    @Column(name = "encryption_count", nullable = false, updatable = false, columnDefinition = "BIGINT DEFAULT 0")
+    private long encryptionCount;
+
     @Column(name = "created_at", insertable = false, updatable = false, columnDefinition = "TIMESTAMP DEFAULT CURRENT_TIMESTAMP")
     private Timestamp createdAt;
 
@@ -84,6 +92,14 @@ public class KeyMaterial {
         this.keyValue = keyValue;
     }
 
+    public String getMasterKeyAlias() {
+        return masterKeyAlias;
+    }
+
+    public void setMasterKeyAlias(String masterKeyAlias) {
+        this.masterKeyAlias = masterKeyAlias;
+    }
+
     public byte[] getIv() {
         return iv;
     }
@@ -108,6 +124,10 @@ public class KeyMaterial {
         this.usageCount = usageCount;
     }
 
+    public long getEncryptionCount() {
+        return encryptionCount;
+    }
+
     public Timestamp getCreatedAt() {
         return createdAt;
     }
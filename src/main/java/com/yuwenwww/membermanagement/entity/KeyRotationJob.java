@@ -0,0 +1,164 @@
+package com.yuwenwww.membermanagement.entity;
+
+import jakarta.persistence.*;
+
+import java.sql.Timestamp;
+
+/**
+ * PII 金鑰輪替工作。
+ * 記錄來源/目標金鑰標籤與已處理到的會員 ID (檢查點)，每個批次與會員資料在同一交易中更新，
+ * 應用程式重啟後可以從檢查點繼續。
+ */
+@Entity
+@Table(name = "key_rotation_jobs")
+public class KeyRotationJob {
+
+    public enum Status {
+        RUNNING, PAUSED, COMPLETED, FAILED
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "source_key_label", nullable = false, length = 50) // 輪替前使用中的金鑰標籤
+    private String sourceKeyLabel;
+
+    @Column(name = "target_key_label", nullable = false, length = 50) // 新金鑰標籤，新寫入的資料也使用此金鑰
+    private String targetKeyLabel;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 20)
+    private Status status;
+
+    @Column(name = "last_member_id", nullable = false) // 檢查點：已處理到的會員 ID
+    private long lastMemberId;
+
+    @Column(name = "rotated_rows", nullable = false)
+    private long rotatedRows;
+
+    @Column(name = "failed_rows", nullable = false)
+    private long failedRows;
+
+    @Column(name = "rows_per_second", nullable = false) // 節流設定
+    private int rowsPerSecond;
+
+    @Column(name = "error_message", length = 500)
+    private String errorMessage;
+
+    @Column(name = "completed_at")
+    private Timestamp completedAt;
+
+    @Column(name = "created_at", insertable = false, updatable = false, columnDefinition = "TIMESTAMP DEFAULT CURRENT_TIMESTAMP")
+    private Timestamp createdAt;
+
+    @Column(name = "updated_at", insertable = false, updatable = false, columnDefinition = "TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP")
+    private Timestamp updatedAt;
+
+    // Constructors
+    public KeyRotationJob() {}
+
+    public KeyRotationJob(String sourceKeyLabel, String targetKeyLabel, int rowsPerSecond) {
+        this.sourceKeyLabel = sourceKeyLabel;
+        this.targetKeyLabel = targetKeyLabel;
+        this.rowsPerSecond = rowsPerSecond;
+        this.status = Status.RUNNING;
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getSourceKeyLabel() {
+        return sourceKeyLabel;
+    }
+
+    public void setSourceKeyLabel(String sourceKeyLabel) {
+        this.sourceKeyLabel = sourceKeyLabel;
+    }
+
+    public String getTargetKeyLabel() {
+        return targetKeyLabel;
+    }
+
+    public void setTargetKeyLabel(String targetKeyLabel) {
+        this.targetKeyLabel = targetKeyLabel;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public long getLastMemberId() {
+        return lastMemberId;
+    }
+
+    public void setLastMemberId(long lastMemberId) {
+        this.lastMemberId = lastMemberId;
+    }
+
+    public long getRotatedRows() {
+        return rotatedRows;
+    }
+
+    public void setRotatedRows(long rotatedRows) {
+        this.rotatedRows = rotatedRows;
+    }
+
+    public long getFailedRows() {
+        return failedRows;
+    }
+
+    public void setFailedRows(long failedRows) {
+        this.failedRows = failedRows;
+    }
+
+    public int getRowsPerSecond() {
+        return rowsPerSecond;
+    }
+
+    public void setRowsPerSecond(int rowsPerSecond) {
+        this.rowsPerSecond = rowsPerSecond;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public void setErrorMessage(String errorMessage) {
+        this.errorMessage = errorMessage;
+    }
+
+    public Timestamp getCompletedAt() {
+        return completedAt;
+    }
+
+    public void setCompletedAt(Timestamp completedAt) {
+        this.completedAt = completedAt;
+    }
+
+    public Timestamp getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Timestamp createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public Timestamp getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Timestamp updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -1,14 +1,22 @@
 package com.yuwenwww.membermanagement.entity;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.Generated;
+import org.hibernate.generator.EventType;
+
 import java.sql.Timestamp;
 
 @Entity
-@Table(name = "members")
+@DynamicUpdate // UPDATE 只寫入有變更的欄位，部分更新不必重寫其他欄位的密文
+@Table(name = "members", indexes = {
+        @Index(name = "idx_members_email_bidx", columnList = "email_bidx"),
+        @Index(name = "idx_members_phone_bidx", columnList = "phone_bidx")
+})
 public class Member {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @SnowflakeId // INSERT 前產生，帶有會員所在的分片編號 (依用戶名，見 MemberShardRouter)
     private Long id;
 
     @Column(name = "username", nullable = false, unique = true, length = 50)
@@ -23,18 +31,29 @@ public class Member {
     @Column(name = "phone_number") // 加密後的電話號碼
     private byte[] phoneNumber;
 
-    @Column(name = "email_iv", length = 16) // email 加密使用的 IV
+    @Column(name = "email_iv", length = 16) // 舊版 AES-CBC email 加密使用的 IV (AES-GCM 資料列為 null)
     private byte[] emailIv;
 
-    @Column(name = "phone_iv", length = 16) // phone_number 加密使用的 IV
+    @Column(name = "phone_iv", length = 16) // 舊版 AES-CBC phone_number 加密使用的 IV (AES-GCM 資料列為 null)
     private byte[] phoneIv;
 
     @Column(name = "encryption_key_label", length = 50) // 參考用於 PII 加密的金鑰標籤
     private String encryptionKeyLabel;
 
+    @Column(name = "email_bidx", length = 32) // email 的盲索引 (HMAC-SHA256)，用於等值查詢
+    private byte[] emailBidx;
+
+    @Column(name = "phone_bidx", length = 32) // phone_number 的盲索引 (HMAC-SHA256)，用於等值查詢
+    private byte[] phoneBidx;
+
+    @Version
+    @Column(name = "version", nullable = false, columnDefinition = "BIGINT NOT NULL DEFAULT 0") // 樂觀鎖版本，每次更新遞增
+    private Long version;
+
     @Column(name = "created_at", insertable = false, updatable = false, columnDefinition = "TIMESTAMP DEFAULT CURRENT_TIMESTAMP")
     private Timestamp createdAt;
 
+    @Generated(event = EventType.UPDATE) // 由資料庫的 ON UPDATE 產生，更新後重新讀取，回應中的 updatedAt 才是新值
     @Column(name = "updated_at", insertable = false, updatable = false, columnDefinition = "TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP")
     private Timestamp updatedAt;
 
@@ -106,6 +125,30 @@ public class Member {
         this.encryptionKeyLabel = encryptionKeyLabel;
     }
 
+    public byte[] getEmailBidx() {
+        return emailBidx;
+    }
+
+    public void setEmailBidx(byte[] emailBidx) {
+        this.emailBidx = emailBidx;
+    }
+
+    public byte[] getPhoneBidx() {
+        return phoneBidx;
+    }
+
+    public void setPhoneBidx(byte[] phoneBidx) {
+        this.phoneBidx = phoneBidx;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     public Timestamp getCreatedAt() {
         return createdAt;
     }
@@ -0,0 +1,19 @@
+package com.yuwenwww.membermanagement.entity;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 主鍵由 SnowflakeIdGenerator 在 INSERT 前產生 (取代 GenerationType.IDENTITY)。
+ * Hibernate 不必為了取得主鍵立即執行 INSERT，同一次 flush 的 INSERT 可合併為 JDBC batch；
+ * ID 大致依時間遞增，新資料列仍寫在 B-tree 的尾端。
+ */
+@IdGeneratorType(SnowflakeIdentifierGenerator.class)
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.METHOD})
+public @interface SnowflakeId {
+}
@@ -0,0 +1,38 @@
+package com.yuwenwww.membermanagement.entity;
+
+import com.yuwenwww.membermanagement.service.MemberShardRouter;
+import com.yuwenwww.membermanagement.service.SnowflakeIdGenerator;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.hibernate.generator.EventTypeSets;
+
+import java.util.EnumSet;
+
+/**
+ * @SnowflakeId 的 Hibernate 主鍵產生器。
+ * Hibernate 透過 Spring 的 bean container 建立此產生器並注入單例的 SnowflakeIdGenerator，
+ * 與 JDBC 匯入共用同一份序號狀態，同一毫秒內兩邊產生的 ID 不會重複；
+ * 會員的分片依用戶名決定，其他實體 (key_material) 位於分片 0。
+ */
+public class SnowflakeIdentifierGenerator implements BeforeExecutionGenerator {
+
+    private final transient SnowflakeIdGenerator idGenerator;
+    private final transient MemberShardRouter shardRouter;
+
+    public SnowflakeIdentifierGenerator(SnowflakeIdGenerator idGenerator, MemberShardRouter shardRouter) {
+        this.idGenerator = idGenerator;
+        this.shardRouter = shardRouter;
+    }
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object owner, Object currentValue, EventType eventType) {
+        int shard = owner instanceof Member member ? shardRouter.shardForUsername(member.getUsername()) : 0;
+        return idGenerator.nextId(shard);
+    }
+
+    @Override
+    public EnumSet<EventType> getEventTypes() {
+        return EventTypeSets.INSERT_ONLY;
+    }
+}
@@ -0,0 +1,107 @@
+package com.yuwenwww.membermanagement.repository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * key_material 表的 JDBC 存取，用於使用次數的批次累加。
+ * usage_count 與 encryption_count 只透過這裡的相對更新 (usage_count = usage_count + ?) 修改，
+ * 不經過 JPA 實體，避免覆蓋其他實例累加的值。
+ */
+@Repository
+public class KeyMaterialJdbcRepository {
+
+    private static final Logger log = LoggerFactory.getLogger(KeyMaterialJdbcRepository.class);
+
+    private static final int WRAPPED_KEY_COLUMN_SIZE = 64;
+
+    private static final String ADD_USAGE_SQL =
+            "UPDATE key_material SET usage_count = usage_count + ?, encryption_count = encryption_count + ? WHERE key_label = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    /**
+     * 金鑰的使用次數。
+     * @param uses 加解密總次數
+     * @param encryptions 其中的加密次數 (每次加密取用一個新的隨機 nonce)
+     */
+    public record KeyUsage(long uses, long encryptions) {
+    }
+
+    /**
+     * 以一次 JDBC batch 累加多個金鑰的使用次數。
+     * @param deltas 金鑰標籤 → 增加的次數
+     */
+    public void addUsageCounts(Map<String, KeyUsage> deltas) {
+        List<Map.Entry<String, KeyUsage>> entries = new ArrayList<>(deltas.entrySet());
+        jdbcTemplate.batchUpdate(ADD_USAGE_SQL, entries, entries.size(), (ps, entry) -> {
+            ps.setLong(1, entry.getValue().uses());
+            ps.setLong(2, entry.getValue().encryptions());
+            ps.setString(3, entry.getKey());
+        });
+    }
+
+    /**
+     * @param keyLabels 金鑰標籤
+     * @return 金鑰標籤 → 資料庫中的使用次數
+     */
+    public Map<String, KeyUsage> findUsageCounts(Collection<String> keyLabels) {
+        Map<String, KeyUsage> counts = new HashMap<>();
+        namedParameterJdbcTemplate.query(
+                "SELECT key_label, usage_count, encryption_count FROM key_material WHERE key_label IN (:labels)",
+                Map.of("labels", keyLabels),
+                rs -> {
+                    counts.put(rs.getString("key_label"),
+                            new KeyUsage(rs.getLong("usage_count"), rs.getLong("encryption_count")));
+                });
+        return counts;
+    }
+
+    /**
+     * 把既有資料庫的 key_material 欄位調整為目前的定義，已符合時不執行任何 DDL (每次啟動都可安全呼叫)：
+     * key_value 需容納包裝後的 40 位元組資料金鑰，id 需容納 snowflake ID。
+     * Hibernate 的 ddl-auto=update 只新增欄位、不修改既有欄位的型別，因此由這裡處理；
+     * MySQL 的 ALTER TABLE ... MODIFY 會重建整張表，不放在每次啟動都執行的 schema.sql。
+     */
+    public void upgradeLegacyColumns() {
+        Map<String, int[]> columns = jdbcTemplate.execute((ConnectionCallback<Map<String, int[]>>) connection -> {
+            DatabaseMetaData metaData = connection.getMetaData();
+            String table = metaData.storesUpperCaseIdentifiers() ? "KEY_MATERIAL" : "key_material";
+            Map<String, int[]> found = new HashMap<>();
+            try (ResultSet rs = metaData.getColumns(connection.getCatalog(), connection.getSchema(), table, null)) {
+                while (rs.next()) {
+                    found.put(rs.getString("COLUMN_NAME").toLowerCase(), new int[]{rs.getInt("DATA_TYPE"), rs.getInt("COLUMN_SIZE")});
+                }
+            }
+            return found;
+        });
+        int[] keyValue = columns.get("key_value");
+        if (keyValue != null && keyValue[1] < WRAPPED_KEY_COLUMN_SIZE) {
+            log.info("Widening key_material.key_value from {} to {} bytes", keyValue[1], WRAPPED_KEY_COLUMN_SIZE);
+            jdbcTemplate.execute("ALTER TABLE key_material MODIFY key_value VARBINARY(" + WRAPPED_KEY_COLUMN_SIZE + ") NOT NULL");
+        }
+        int[] id = columns.get("id");
+        if (id != null && id[0] != Types.BIGINT) {
+            log.info("Changing key_material.id to BIGINT for snowflake IDs");
+            jdbcTemplate.execute("ALTER TABLE key_material MODIFY id BIGINT NOT NULL AUTO_INCREMENT"); // 舊資料列的 ID 不變
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.yuwenwww.membermanagement.repository;
+
+import com.yuwenwww.membermanagement.entity.KeyRotationJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface KeyRotationJobRepository extends JpaRepository<KeyRotationJob, Long> {
+    Optional<KeyRotationJob> findFirstByOrderByIdDesc(); // 最近一次輪替工作 (決定目前的寫入金鑰)
+}
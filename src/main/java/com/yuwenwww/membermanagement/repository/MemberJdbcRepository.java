@@ -0,0 +1,219 @@
+package com.yuwenwww.membermanagement.repository;
+
+import com.yuwenwww.membermanagement.entity.Member;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * members 表的 JDBC 存取，用於批次匯入、分頁匯出等不適合經過 JPA 持久化上下文的大量操作。
+ */
+@Repository
+public class MemberJdbcRepository {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO members (id, username, password, email, phone_number, email_iv, phone_iv, encryption_key_label, email_bidx, phone_bidx) "
+                    + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String SELECT_PAGE_SQL =
+            "SELECT id, username, email, phone_number, email_iv, phone_iv, encryption_key_label, version, created_at, updated_at "
+                    + "FROM members WHERE id > ? ORDER BY id LIMIT ?";
+
+    private static final String SELECT_MISSING_BLIND_INDEX_SQL =
+            "SELECT id, username, email, phone_number, email_iv, phone_iv, encryption_key_label, version, created_at, updated_at "
+                    + "FROM members WHERE id > ? "
+                    + "AND ((email IS NOT NULL AND email_bidx IS NULL) OR (phone_number IS NOT NULL AND phone_bidx IS NULL)) "
+                    + "ORDER BY id LIMIT ?";
+
+    private static final String SELECT_ROTATION_PAGE_SQL =
+            "SELECT id, username, email, phone_number, email_iv, phone_iv, encryption_key_label, version, created_at, updated_at "
+                    + "FROM members WHERE id > ? AND encryption_key_label IS NOT NULL AND encryption_key_label <> ? "
+                    + "ORDER BY id LIMIT ?";
+
+    // 密文已改變，遞增 version，讓讀取較早的 JPA 更新以樂觀鎖失敗而不是覆蓋
+    private static final String UPDATE_ENCRYPTED_PII_SQL =
+            "UPDATE members SET email = ?, email_iv = ?, phone_number = ?, phone_iv = ?, encryption_key_label = ?, "
+                    + "version = version + 1, updated_at = updated_at WHERE id = ? AND version = ?";
+
+    // updated_at = updated_at：回填索引不算資料變更，不觸發 ON UPDATE CURRENT_TIMESTAMP；
+    // 以 version 為條件，讀取後 email / 電話已被更新的資料列不寫入舊值的索引
+    private static final String UPDATE_BLIND_INDEX_SQL =
+            "UPDATE members SET email_bidx = ?, phone_bidx = ?, updated_at = updated_at WHERE id = ? AND version = ?";
+
+    // 登入時重新雜湊：以舊雜湊作為條件，並行的登入或密碼變更已改寫時不覆蓋；不算資料變更，不更新 updated_at
+    private static final String UPDATE_PASSWORD_HASH_SQL =
+            "UPDATE members SET password = ?, updated_at = updated_at WHERE username = ? AND password = ?";
+
+    // BCrypt 雜湊格式為 [{bcrypt}]$2a$NN$...，cost 為第一個 '$' 之後第 4、5 個字元
+    private static final String COUNT_PASSWORD_HASH_COSTS_SQL =
+            "SELECT CASE WHEN password LIKE '{%' THEN 'prefixed' ELSE 'legacy' END AS hash_format, "
+                    + "SUBSTRING(password, LOCATE('$', password) + 4, 2) AS hash_cost, COUNT(*) AS members "
+                    + "FROM members GROUP BY hash_format, hash_cost";
+
+    private static final int MYSQL_DUPLICATE_ENTRY = 1062;
+    private static final String SQLSTATE_UNIQUE_VIOLATION = "23505"; // H2 / 標準 SQLState
+
+    // 不含密碼雜湊的會員資料列對應
+    private static final RowMapper<Member> PROFILE_ROW_MAPPER = (rs, rowNum) -> {
+        Member member = new Member();
+        member.setId(rs.getLong("id"));
+        member.setUsername(rs.getString("username"));
+        member.setEmail(rs.getBytes("email"));
+        member.setPhoneNumber(rs.getBytes("phone_number"));
+        member.setEmailIv(rs.getBytes("email_iv"));
+        member.setPhoneIv(rs.getBytes("phone_iv"));
+        member.setEncryptionKeyLabel(rs.getString("encryption_key_label"));
+        member.setVersion(rs.getLong("version"));
+        member.setCreatedAt(rs.getTimestamp("created_at"));
+        member.setUpdatedAt(rs.getTimestamp("updated_at"));
+        return member;
+    };
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * 以 JDBC batch 插入多筆會員 (MySQL 搭配 rewriteBatchedStatements=true 會改寫為多列 INSERT)。
+     * @param members 已指派 ID、雜湊密碼並加密 PII 的會員
+     */
+    public void batchInsert(List<Member> members) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, members, members.size(), this::bindInsert);
+    }
+
+    /**
+     * 插入單筆會員。
+     * @param member 已指派 ID、雜湊密碼並加密 PII 的會員
+     */
+    public void insert(Member member) {
+        jdbcTemplate.update(INSERT_SQL, ps -> bindInsert(ps, member));
+    }
+
+    /**
+     * 以 keyset 分頁讀取會員 (WHERE id > ? ORDER BY id LIMIT ?)，fetch size 與頁大小相同，
+     * 每頁的查詢成本不隨偏移量增加。返回的 Member 不受 JPA 管理，且不含密碼雜湊。
+     * @param afterId 上一頁最後一筆的 ID (第一頁傳 0)
+     * @param limit 頁大小
+     * @return 依 ID 排序的會員
+     */
+    public List<Member> findPageAfter(long afterId, int limit) {
+        return jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(SELECT_PAGE_SQL);
+            ps.setFetchSize(limit);
+            ps.setLong(1, afterId);
+            ps.setInt(2, limit);
+            return ps;
+        }, PROFILE_ROW_MAPPER);
+    }
+
+    /**
+     * 以 keyset 分頁讀取尚未計算盲索引的會員 (用於回填)。
+     * @param afterId 上一頁最後一筆的 ID (第一頁傳 0)
+     * @param limit 頁大小
+     * @return 依 ID 排序的會員，不含密碼雜湊
+     */
+    public List<Member> findPageMissingBlindIndex(long afterId, int limit) {
+        return jdbcTemplate.query(SELECT_MISSING_BLIND_INDEX_SQL, PROFILE_ROW_MAPPER, afterId, limit);
+    }
+
+    /**
+     * 以 JDBC batch 更新多筆會員的盲索引，讀取後已被更新的資料列會被略過。
+     * @param members 已設定 emailBidx / phoneBidx 的會員 (version 為讀取時的值)
+     */
+    public void batchUpdateBlindIndexes(List<Member> members) {
+        jdbcTemplate.batchUpdate(UPDATE_BLIND_INDEX_SQL, members, members.size(), (ps, member) -> {
+            ps.setBytes(1, member.getEmailBidx());
+            ps.setBytes(2, member.getPhoneBidx());
+            ps.setLong(3, member.getId());
+            ps.setLong(4, member.getVersion());
+        });
+    }
+
+    /**
+     * 以 keyset 分頁讀取尚未使用目標金鑰加密的會員 (用於金鑰輪替)。
+     * @param afterId 檢查點 (上一批最後一筆的 ID)
+     * @param targetKeyLabel 目標金鑰標籤，已使用此金鑰的資料列會被略過
+     * @param limit 批次大小
+     * @return 依 ID 排序的會員，不含密碼雜湊
+     */
+    public List<Member> findPageForRotation(long afterId, String targetKeyLabel, int limit) {
+        return jdbcTemplate.query(SELECT_ROTATION_PAGE_SQL, PROFILE_ROW_MAPPER, afterId, targetKeyLabel, limit);
+    }
+
+    /**
+     * 以 JDBC batch 寫入重新加密後的 PII。
+     * @param updates 重新加密的結果
+     * @return 每筆更新影響的資料列數 (0 表示資料列已被其他流程改寫)
+     */
+    public int[] batchUpdateEncryptedPii(List<MemberPiiUpdate> updates) {
+        return jdbcTemplate.batchUpdate(UPDATE_ENCRYPTED_PII_SQL, updates, updates.size(), (ps, update) -> {
+            ps.setBytes(1, update.email());
+            ps.setBytes(2, update.emailIv());
+            ps.setBytes(3, update.phoneNumber());
+            ps.setBytes(4, update.phoneIv());
+            ps.setString(5, update.keyLabel());
+            ps.setLong(6, update.id());
+            ps.setLong(7, update.version());
+        })[0];
+    }
+
+    /**
+     * 以新的雜湊取代仍為舊雜湊的密碼 (登入成功後的重新雜湊)。
+     * @param username 用戶名
+     * @param expectedHash 驗證時讀到的舊雜湊
+     * @param newHash 新雜湊
+     * @return false 表示密碼已被其他流程改寫，未更新
+     */
+    public boolean updatePasswordHash(String username, String expectedHash, String newHash) {
+        return jdbcTemplate.update(UPDATE_PASSWORD_HASH_SQL, newHash, username, expectedHash) > 0;
+    }
+
+    /**
+     * 依雜湊格式與 BCrypt cost 統計會員數。需要掃描整張表，只應由背景排程呼叫。
+     * @return 各格式與 cost 的會員數
+     */
+    public List<PasswordHashCostCount> countPasswordHashCosts() {
+        return jdbcTemplate.query(COUNT_PASSWORD_HASH_COSTS_SQL, (rs, rowNum) ->
+                new PasswordHashCostCount(rs.getString("hash_format"), rs.getString("hash_cost"), rs.getLong("members")));
+    }
+
+    private void bindInsert(PreparedStatement ps, Member member) throws SQLException {
+        ps.setLong(1, member.getId());
+        ps.setString(2, member.getUsername());
+        ps.setString(3, member.getPassword());
+        ps.setBytes(4, member.getEmail());
+        ps.setBytes(5, member.getPhoneNumber());
+        ps.setBytes(6, member.getEmailIv());
+        ps.setBytes(7, member.getPhoneIv());
+        ps.setString(8, member.getEncryptionKeyLabel());
+        ps.setBytes(9, member.getEmailBidx());
+        ps.setBytes(10, member.getPhoneBidx());
+    }
+
+    /**
+     * 判斷寫入失敗是否因為 members.username 的唯一索引 (用戶名已存在)。
+     * 其他完整性錯誤 (例如密文超出欄位長度、主鍵衝突) 不應回報為用戶名重複。
+     * @param e 寫入時拋出的例外
+     * @return 是否為用戶名重複
+     */
+    public static boolean isDuplicateUsername(DataIntegrityViolationException e) {
+        if (!(e.getMostSpecificCause() instanceof SQLException sqlException)) {
+            return false;
+        }
+        boolean duplicateKey = sqlException.getErrorCode() == MYSQL_DUPLICATE_ENTRY
+                || SQLSTATE_UNIQUE_VIOLATION.equals(sqlException.getSQLState());
+        if (!duplicateKey || sqlException.getMessage() == null) {
+            return false;
+        }
+        // MySQL 8: Duplicate entry 'x' for key 'members.username' (5.7 為 'username')；H2: ... ON PUBLIC.MEMBERS(USERNAME ...)
+        String message = sqlException.getMessage().toLowerCase(Locale.ROOT);
+        return message.contains("for key 'members.username'") || message.contains("for key 'username'")
+                || message.contains("members(username");
+    }
+}
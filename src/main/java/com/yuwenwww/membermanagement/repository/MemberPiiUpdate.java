@@ -0,0 +1,9 @@
+package com.yuwenwww.membermanagement.repository;
+
+/**
+ * 一筆會員 PII 重新加密的結果 (用於金鑰輪替的批次更新)。
+ * version 用於更新條件：讀取後若資料列已被其他流程改寫 (例如會員更新資料)，該筆更新不會生效。
+ */
+public record MemberPiiUpdate(long id, byte[] email, byte[] emailIv, byte[] phoneNumber, byte[] phoneIv,
+                              String keyLabel, long version) {
+}
@@ -0,0 +1,23 @@
+package com.yuwenwww.membermanagement.repository;
+
+import com.yuwenwww.membermanagement.entity.Member;
+
+import java.sql.Timestamp;
+
+/**
+ * 會員資料查詢的唯讀投影：只包含 MemberProfileResponse 需要的欄位與解密所需的密文、IV、金鑰標籤。
+ * 不是受管理的實體，不進入持久化內容 (沒有快照與 dirty checking)，解密後的明文也不可能被寫回資料庫；
+ * 不載入密碼雜湊與盲索引。
+ */
+public record MemberProfileView(Long id, String username, byte[] email, byte[] emailIv, byte[] phoneNumber, byte[] phoneIv,
+                                String encryptionKeyLabel, Timestamp createdAt, Timestamp updatedAt) {
+
+    /**
+     * @param member 以 JDBC 載入的會員 (MemberJdbcRepository，非受管理的實體)
+     * @return 同一會員的投影
+     */
+    public static MemberProfileView of(Member member) {
+        return new MemberProfileView(member.getId(), member.getUsername(), member.getEmail(), member.getEmailIv(),
+                member.getPhoneNumber(), member.getPhoneIv(), member.getEncryptionKeyLabel(), member.getCreatedAt(), member.getUpdatedAt());
+    }
+}
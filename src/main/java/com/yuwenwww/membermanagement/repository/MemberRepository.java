@@ -1,13 +1,61 @@
 package com.yuwenwww.membermanagement.repository;
 
 import com.yuwenwww.membermanagement.entity.Member;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
+/**
+ * 標示 @Transactional(readOnly = true) 的查詢在設定讀取副本時走副本 (見 ReadReplicaConfig)；
+ * 在讀寫交易中呼叫時加入該交易，仍走主庫。唯一性檢查 (exists*、findExistingEmailBidxes) 必須看到最新寫入，不走副本。
+ * <p>
+ * 設定分片時，查詢只作用於 MemberShardRouter 目前指定的分片 (未指定時為分片 0)；
+ * 依用戶名或 ID 查詢請經由 MemberService 路由，其他條件需以 MemberShardRouter.onEachShard 查詢所有分片。
+ */
 @Repository
 public interface MemberRepository extends JpaRepository<Member, Long> {
+    String PROFILE_SELECT = "SELECT new com.yuwenwww.membermanagement.repository.MemberProfileView(m.id, m.username, m.email, m.emailIv, "
+            + "m.phoneNumber, m.phoneIv, m.encryptionKeyLabel, m.createdAt, m.updatedAt) FROM Member m ";
+
+    @Transactional(readOnly = true)
     Optional<Member> findByUsername(String username); // 根據用戶名查找會員
-}
 
+    boolean existsByUsername(String username); // 只檢查用戶名是否存在，不載入整個實體
+
+    @Transactional(readOnly = true)
+    List<MemberUsernameView> findByIdGreaterThanOrderByIdAsc(Long afterId, Limit limit); // 依 ID 分頁載入用戶名
+
+    @Transactional(readOnly = true)
+    List<Member> findByEmailBidx(byte[] emailBidx); // 依 email 盲索引查詢 (走 idx_members_email_bidx)
+
+    boolean existsByEmailBidx(byte[] emailBidx); // 檢查 email 是否已被註冊
+
+    @Transactional(readOnly = true)
+    boolean existsByIdAndUsername(Long id, String username); // 檢查會員是否為本人
+
+    @Transactional(readOnly = true)
+    @Query(PROFILE_SELECT + "WHERE m.id = :id")
+    Optional<MemberProfileView> findProfileById(@Param("id") Long id); // 會員資料投影，不載入受管理的實體
+
+    @Transactional(readOnly = true)
+    @Query(PROFILE_SELECT + "WHERE m.id IN :ids")
+    List<MemberProfileView> findProfilesByIdIn(@Param("ids") Collection<Long> ids); // 批次查詢會員資料投影
+
+    @Transactional(readOnly = true)
+    @Query(PROFILE_SELECT + "WHERE m.emailBidx = :emailBidx")
+    List<MemberProfileView> findProfilesByEmailBidx(@Param("emailBidx") byte[] emailBidx); // 依 email 盲索引查詢會員資料投影
+
+    @Transactional(readOnly = true)
+    @Query(PROFILE_SELECT + "WHERE m.phoneBidx = :phoneBidx")
+    List<MemberProfileView> findProfilesByPhoneBidx(@Param("phoneBidx") byte[] phoneBidx); // 依電話盲索引查詢會員資料投影 (走 idx_members_phone_bidx)
+
+    @Query("SELECT m.emailBidx FROM Member m WHERE m.emailBidx IN :emailBidxes")
+    List<byte[]> findExistingEmailBidxes(@Param("emailBidxes") Collection<byte[]> emailBidxes); // 批次檢查已註冊的 email
+}
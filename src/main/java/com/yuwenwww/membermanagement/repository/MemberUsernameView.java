@@ -0,0 +1,10 @@
+package com.yuwenwww.membermanagement.repository;
+
+/**
+ * 只包含 ID 與用戶名的會員投影，用於批次載入用戶名。
+ */
+public interface MemberUsernameView {
+    Long getId();
+
+    String getUsername();
+}
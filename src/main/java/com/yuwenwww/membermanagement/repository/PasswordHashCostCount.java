@@ -0,0 +1,10 @@
+package com.yuwenwww.membermanagement.repository;
+
+/**
+ * members.password 中某一種雜湊格式與 cost 的會員數。
+ * @param format prefixed 表示帶有 {bcrypt} 編碼器前綴，legacy 表示前綴加入前的舊雜湊
+ * @param cost 雜湊字串中的 BCrypt cost (例如 "10")
+ * @param members 會員數
+ */
+public record PasswordHashCostCount(String format, String cost, long members) {
+}
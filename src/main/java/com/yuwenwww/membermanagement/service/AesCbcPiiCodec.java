@@ -0,0 +1,40 @@
+package com.yuwenwww.membermanagement.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+import java.security.GeneralSecurityException;
+
+/**
+ * 舊版 PII 格式：AES/CBC/PKCS5Padding，IV 另外存放在 email_iv / phone_iv 欄位，
+ * 金鑰由資料列的 encryption_key_label 決定。保留此格式以讀取既有資料列。
+ * CBC 沒有完整性驗證，也無法綁定欄位，field 參數不使用。
+ */
+@Component
+public class AesCbcPiiCodec implements PiiCodec {
+
+    private static final String AES_TRANSFORMATION = "AES/CBC/PKCS5Padding";
+    private static final int IV_LENGTH = 16;
+
+    @Autowired
+    private AesCipherEngine aesCipherEngine;
+
+    @Autowired
+    private PiiKeyCache piiKeyCache;
+
+    @Override
+    public EncryptedPii encrypt(PiiField field, byte[] plaintext, PiiKey key) throws GeneralSecurityException {
+        byte[] iv = new byte[IV_LENGTH];
+        aesCipherEngine.nextBytes(iv);
+        byte[] cipherText = aesCipherEngine.doFinal(AES_TRANSFORMATION, Cipher.ENCRYPT_MODE, key.secretKey(), new IvParameterSpec(iv), plaintext);
+        return new EncryptedPii(cipherText, iv);
+    }
+
+    @Override
+    public byte[] decrypt(PiiField field, EncryptedPii value, String rowKeyLabel) throws GeneralSecurityException {
+        PiiKey key = piiKeyCache.getKey(rowKeyLabel);
+        return aesCipherEngine.doFinal(AES_TRANSFORMATION, Cipher.DECRYPT_MODE, key.secretKey(), new IvParameterSpec(value.iv()), value.data());
+    }
+}
@@ -0,0 +1,138 @@
+package com.yuwenwww.membermanagement.service;
+
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Cipher;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.NoSuchAlgorithmException;
+import java.security.Provider;
+import java.security.SecureRandom;
+import java.security.Security;
+import java.security.spec.AlgorithmParameterSpec;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * AES 加解密引擎。
+ * Cipher 實例依轉換字串 (transformation) 放入有上限的物件池重複使用，
+ * 只在池為空時才透過已解析的 Provider 建立新實例，避免每個欄位都做一次 Provider 查找。
+ * 亂數由一組啟動時就播種完成的 DRBG 分條 (striped) 提供，而非 ThreadLocal：
+ * 執行緒數不固定 (例如日後改用虛擬執行緒，每個請求都是新的執行緒) 時，ThreadLocal 會讓每個執行緒都重新建立並播種 DRBG。
+ */
+@Component
+public class AesCipherEngine {
+
+    private static final int MAX_IDLE_CIPHERS_PER_TRANSFORMATION = 64;
+
+    // 靜態區塊，確保 Bouncy Castle Provider 在任何密碼學操作前被註冊
+    static {
+        if (Security.getProvider("BC") == null) {
+            Security.addProvider(new BouncyCastleProvider());
+        }
+    }
+
+    private final Provider provider;
+    private final Map<String, BlockingQueue<Cipher>> idleCiphers = new ConcurrentHashMap<>();
+    // DRBG 的 nextBytes 是 synchronized，分條以降低競爭；數量為 CPU 核心數的兩倍
+    private final SecureRandom[] drbgStripes;
+
+    /**
+     * @param providerName JCE Provider 名稱，例如 "BC" 或 "SunJCE"
+     */
+    public AesCipherEngine(@Value("${member.pii.crypto-provider:BC}") String providerName) {
+        this.provider = Security.getProvider(providerName);
+        if (this.provider == null) {
+            throw new IllegalStateException("JCE provider not available: " + providerName);
+        }
+        this.drbgStripes = new SecureRandom[Runtime.getRuntime().availableProcessors() * 2];
+        for (int i = 0; i < drbgStripes.length; i++) {
+            drbgStripes[i] = newDrbg();
+            drbgStripes[i].nextBytes(new byte[1]); // 立即播種，避免第一次使用時在請求路徑上讀取熵來源
+        }
+    }
+
+    /**
+     * 以池中的 Cipher 完成一次加密或解密。
+     * @param transformation 轉換字串，例如 "AES/CBC/PKCS5Padding"
+     * @param opmode Cipher.ENCRYPT_MODE 或 Cipher.DECRYPT_MODE
+     * @param key 金鑰
+     * @param params 演算法參數 (IV 等)
+     * @param input 輸入資料
+     * @return 輸出資料
+     */
+    public byte[] doFinal(String transformation, int opmode, Key key, AlgorithmParameterSpec params, byte[] input)
+            throws GeneralSecurityException {
+        return doFinal(transformation, opmode, key, params, null, input);
+    }
+
+    /**
+     * 以池中的 Cipher 完成一次 AEAD 加密或解密 (例如 AES/GCM)。
+     * @param transformation 轉換字串，例如 "AES/GCM/NoPadding"
+     * @param opmode Cipher.ENCRYPT_MODE 或 Cipher.DECRYPT_MODE
+     * @param key 金鑰
+     * @param params 演算法參數 (nonce、tag 長度等)
+     * @param aad 附加驗證資料，可為 null
+     * @param input 輸入資料
+     * @return 輸出資料
+     */
+    public byte[] doFinal(String transformation, int opmode, Key key, AlgorithmParameterSpec params, byte[] aad, byte[] input)
+            throws GeneralSecurityException {
+        Cipher cipher = borrow(transformation);
+        try {
+            cipher.init(opmode, key, params);
+            if (aad != null) {
+                cipher.updateAAD(aad);
+            }
+            return cipher.doFinal(input);
+        } finally {
+            release(transformation, cipher);
+        }
+    }
+
+    /**
+     * 以任一 DRBG 分條填入亂數 (用於 IV、金鑰等)。
+     * @param bytes 要填入亂數的陣列
+     */
+    public void nextBytes(byte[] bytes) {
+        secureRandom().nextBytes(bytes);
+    }
+
+    /**
+     * @return 任一 DRBG 分條 (執行緒安全)，供 KeyGenerator 等 API 使用
+     */
+    public SecureRandom secureRandom() {
+        return drbgStripes[ThreadLocalRandom.current().nextInt(drbgStripes.length)];
+    }
+
+    public String getProviderName() {
+        return provider.getName();
+    }
+
+    private static SecureRandom newDrbg() {
+        try {
+            return SecureRandom.getInstance("DRBG");
+        } catch (NoSuchAlgorithmException e) {
+            return new SecureRandom();
+        }
+    }
+
+    private Cipher borrow(String transformation) throws GeneralSecurityException {
+        Cipher cipher = queueFor(transformation).poll();
+        return cipher != null ? cipher : Cipher.getInstance(transformation, provider);
+    }
+
+    private void release(String transformation, Cipher cipher) {
+        // 池已滿時直接丟棄，交給 GC 回收
+        queueFor(transformation).offer(cipher);
+    }
+
+    private BlockingQueue<Cipher> queueFor(String transformation) {
+        return idleCiphers.computeIfAbsent(transformation, t -> new ArrayBlockingQueue<>(MAX_IDLE_CIPHERS_PER_TRANSFORMATION));
+    }
+}
@@ -0,0 +1,79 @@
+package com.yuwenwww.membermanagement.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+
+/**
+ * 自描述的 AES-GCM PII 格式，整個值存放在單一欄位中：
+ * <pre>
+ * | version (1) | key id (8) | nonce (12) | ciphertext + tag (n + 16) |
+ * </pre>
+ * 解密時依 key id 找回金鑰，不需要額外的 IV 欄位。
+ * AAD 為 version、key id 與欄位代碼 (PiiField)：把 email 的密文搬到 phone_number 欄位會驗證失敗。
+ * <p>
+ * AAD 不包含會員 ID：註冊時主鍵在 INSERT 時才由 Hibernate 產生，加密當下還不知道；
+ * 因此擁有資料庫寫入權限者仍可把整個密文複製到另一位會員的同一欄位。防範此情況需要先配置 ID 再加密。
+ */
+@Component
+public class AesGcmPiiCodec implements PiiCodec {
+
+    public static final byte VERSION = 0x01;
+
+    private static final String AES_TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final int HEADER_LENGTH = 1 + Long.BYTES;
+    private static final int AAD_LENGTH = HEADER_LENGTH + 1;
+    private static final int NONCE_LENGTH = 12;
+    private static final int TAG_LENGTH_BITS = 128;
+
+    @Autowired
+    private AesCipherEngine aesCipherEngine;
+
+    @Autowired
+    private PiiKeyCache piiKeyCache;
+
+    @Override
+    public EncryptedPii encrypt(PiiField field, byte[] plaintext, PiiKey key) throws GeneralSecurityException {
+        byte[] aad = ByteBuffer.allocate(AAD_LENGTH).put(VERSION).putLong(key.id()).put(field.aadCode()).array();
+        byte[] nonce = new byte[NONCE_LENGTH];
+        aesCipherEngine.nextBytes(nonce);
+        byte[] cipherText = aesCipherEngine.doFinal(AES_TRANSFORMATION, Cipher.ENCRYPT_MODE, key.secretKey(),
+                new GCMParameterSpec(TAG_LENGTH_BITS, nonce), aad, plaintext);
+
+        byte[] blob = new byte[HEADER_LENGTH + NONCE_LENGTH + cipherText.length];
+        System.arraycopy(aad, 0, blob, 0, HEADER_LENGTH); // 欄位代碼不儲存，解密時由呼叫端提供
+        System.arraycopy(nonce, 0, blob, HEADER_LENGTH, NONCE_LENGTH);
+        System.arraycopy(cipherText, 0, blob, HEADER_LENGTH + NONCE_LENGTH, cipherText.length);
+        return new EncryptedPii(blob, null);
+    }
+
+    @Override
+    public byte[] decrypt(PiiField field, EncryptedPii value, String rowKeyLabel) throws GeneralSecurityException {
+        byte[] blob = value.data();
+        if (!isEncoded(blob)) {
+            throw new GeneralSecurityException("Not an AES-GCM PII value");
+        }
+        long keyId = ByteBuffer.wrap(blob, 1, Long.BYTES).getLong();
+        PiiKey key = piiKeyCache.getKeyById(keyId);
+
+        GCMParameterSpec params = new GCMParameterSpec(TAG_LENGTH_BITS, blob, HEADER_LENGTH, NONCE_LENGTH);
+        byte[] aad = Arrays.copyOf(blob, AAD_LENGTH);
+        aad[HEADER_LENGTH] = field.aadCode();
+        byte[] cipherText = Arrays.copyOfRange(blob, HEADER_LENGTH + NONCE_LENGTH, blob.length);
+        return aesCipherEngine.doFinal(AES_TRANSFORMATION, Cipher.DECRYPT_MODE, key.secretKey(), params, aad, cipherText);
+    }
+
+    /**
+     * @param blob 資料列中的密文
+     * @return 該值是否為此格式 (版本位元組相符且長度足夠)
+     */
+    public static boolean isEncoded(byte[] blob) {
+        return blob != null && blob.length >= HEADER_LENGTH + NONCE_LENGTH + TAG_LENGTH_BITS / 8
+                && blob[0] == VERSION;
+    }
+}
@@ -0,0 +1,257 @@
+package com.yuwenwww.membermanagement.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 近期驗證成功的帳密快取。
+ * HTTP Basic 每個請求都會帶上帳密，若每次都查詢資料庫並執行 BCrypt，單次 GET 就要花費數十毫秒。
+ * 這裡只保存「登入名稱 + 密碼」經行程內隨機金鑰計算的 HMAC 摘要、會員的用戶名與權限，在短 TTL 內相同帳密可直接通過；
+ * 密碼變更或會員刪除時必須以用戶名呼叫 invalidate。
+ * <p>
+ * 快取以登入時輸入的名稱為鍵，同一會員可能以大小寫不同的用戶名或 email 登入而有多個項目；
+ * 因此另外維護「用戶名 -> 登入名稱」的索引，invalidate 會移除該會員的所有項目。
+ * <p>
+ * invalidate 在交易提交後才執行，而登入可能在提交前就已讀到舊雜湊：呼叫端在載入 UserDetails 前以 beginLoad 取得序號，
+ * 該用戶名在這之後被失效過時 put 不寫入 (同 MemberProfileCache 的載入序號)，舊密碼不會在失效後又被快取一個 TTL。
+ * <p>
+ * TTL 固定，加入順序即到期順序：另以佇列記錄加入順序，put 時只檢查佇列前端，移除已過期的項目，
+ * 快取已滿時淘汰最早加入 (最快到期) 的項目。每個佇列節點只出佇列一次，put 的攤銷成本為 O(1)，不需掃描整個快取。
+ */
+@Component
+public class AuthenticatedCredentialCache {
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final int MAX_IDLE_MACS = 64;
+
+    @Value("${member.auth-cache.ttl:PT2M}")
+    private Duration ttl;
+
+    @Value("${member.auth-cache.max-entries:100000}")
+    private int maxEntries;
+
+    // 每次啟動隨機產生，摘要無法在行程外被驗證或反推
+    private final SecretKeySpec digestKey;
+    // Mac 物件池 (而非 ThreadLocal)：執行緒數不固定 (例如日後改用虛擬執行緒) 時 ThreadLocal 無法重複使用
+    private final BlockingQueue<Mac> idleMacs = new ArrayBlockingQueue<>(MAX_IDLE_MACS);
+
+    private final ConcurrentHashMap<String, CachedCredential> credentials = new ConcurrentHashMap<>();
+    // 用戶名 -> 以該會員身分登入時使用過的名稱；新增與失效都在該用戶名的 compute 內進行，兩者不會交錯
+    private final ConcurrentHashMap<String, Set<String>> loginNamesByUsername = new ConcurrentHashMap<>();
+    // 加入順序 (即到期順序)；項目被覆寫或失效後節點仍留在佇列中，出佇列時發現已不是目前的項目便直接丟棄
+    private final ConcurrentLinkedQueue<QueuedCredential> insertionOrder = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queuedCount = new AtomicInteger();
+    // 每次失效都遞增；用戶名 -> 最近一次失效的序號。超過 maxEntries 時整個清空並提高 invalidatedBefore，
+    // 之前開始的載入一律不寫入 (只是少快取一次)，攤銷後仍是 O(1)
+    private final AtomicLong invalidationSequence = new AtomicLong();
+    private final ConcurrentHashMap<String, Long> invalidatedAt = new ConcurrentHashMap<>();
+    private volatile long invalidatedBefore;
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+
+    public AuthenticatedCredentialCache() {
+        byte[] keyBytes = new byte[32];
+        new SecureRandom().nextBytes(keyBytes);
+        this.digestKey = new SecretKeySpec(keyBytes, HMAC_ALGORITHM);
+    }
+
+    /**
+     * 查詢帳密是否在 TTL 內驗證成功過。
+     * @param loginName 登入時輸入的名稱 (用戶名或 email)
+     * @param rawPassword 原始密碼
+     * @return 命中時返回會員的用戶名與當時授予的權限
+     */
+    public Optional<CachedLogin> lookup(String loginName, String rawPassword) {
+        CachedCredential cached = credentials.get(loginName);
+        if (cached != null && !cached.isExpired(System.nanoTime())
+                && MessageDigest.isEqual(cached.digest(), digest(loginName, rawPassword))) {
+            hitCount.increment();
+            return Optional.of(cached.login());
+        }
+        missCount.increment();
+        return Optional.empty();
+    }
+
+    /**
+     * 在載入 UserDetails (讀取密碼雜湊) 之前呼叫，取得目前的失效序號。
+     * @return 傳給 put 的序號
+     */
+    public long beginLoad() {
+        return invalidationSequence.get();
+    }
+
+    /**
+     * 記錄一次成功的驗證。
+     * @param loginName 登入時輸入的名稱 (用戶名或 email)
+     * @param rawPassword 原始密碼
+     * @param username 驗證後的會員用戶名 (資料庫中的原始大小寫)，invalidate 以此為準
+     * @param authorities 授予的權限
+     * @param loadSequence 載入前由 beginLoad 取得的序號；該會員在這之後被失效過時不寫入
+     */
+    public void put(String loginName, String rawPassword, String username, Collection<? extends GrantedAuthority> authorities,
+                    long loadSequence) {
+        long now = System.nanoTime();
+        evictExpiredOrEldest(now);
+        CachedCredential credential = new CachedCredential(digest(loginName, rawPassword),
+                new CachedLogin(username, List.copyOf(authorities)), now + ttl.toNanos());
+        loginNamesByUsername.compute(username, (key, loginNames) -> {
+            // 與 invalidate 在同一用戶名的 compute 內互斥：失效先記錄序號再移除項目，這裡不是看到序號就是之後被移除
+            if (isInvalidatedSince(username, loadSequence)) {
+                return loginNames;
+            }
+            Set<String> names = loginNames != null ? loginNames : ConcurrentHashMap.newKeySet();
+            names.add(loginName);
+            CachedCredential previous = credentials.put(loginName, credential);
+            if (previous != null && !previous.login().username().equals(username)) {
+                unindex(previous.login().username(), loginName);
+            }
+            return names;
+        });
+        insertionOrder.offer(new QueuedCredential(loginName, credential));
+        queuedCount.incrementAndGet();
+    }
+
+    /**
+     * 使單一會員的所有快取項目失效 (密碼變更、email 變更、會員刪除時呼叫)，
+     * 包含以大小寫不同的用戶名或 email 登入所建立的項目。
+     * @param username 會員的用戶名
+     */
+    public void invalidate(String username) {
+        long sequence = invalidationSequence.incrementAndGet();
+        if (invalidatedAt.size() >= maxEntries) {
+            invalidatedBefore = sequence; // 先提高下限再清空，清空期間的 put 也會被擋下
+            invalidatedAt.clear();
+        }
+        invalidatedAt.put(username, sequence);
+        loginNamesByUsername.computeIfPresent(username, (key, loginNames) -> {
+            loginNames.forEach(loginName -> credentials.computeIfPresent(loginName,
+                    (name, credential) -> credential.login().username().equals(username) ? null : credential));
+            return null;
+        });
+    }
+
+    public void invalidateAll() {
+        invalidatedBefore = invalidationSequence.incrementAndGet();
+        invalidatedAt.clear();
+        credentials.clear();
+        loginNamesByUsername.clear();
+        insertionOrder.clear();
+        queuedCount.set(0);
+    }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    public int size() {
+        return credentials.size();
+    }
+
+    private boolean isInvalidatedSince(String username, long loadSequence) {
+        Long invalidated = invalidatedAt.get(username);
+        return (invalidated != null && invalidated > loadSequence) || invalidatedBefore > loadSequence;
+    }
+
+    // 從佇列前端移除已過期的項目；快取已滿時淘汰最早加入的項目。
+    // 覆寫或失效留下的舊節點也計入佇列長度，超過 maxEntries 的兩倍時一併出佇列，佇列不會無限增長
+    private void evictExpiredOrEldest(long now) {
+        QueuedCredential eldest;
+        while ((eldest = insertionOrder.peek()) != null
+                && (eldest.credential().isExpired(now) || credentials.size() >= maxEntries
+                || queuedCount.get() > 2 * maxEntries)) {
+            eldest = insertionOrder.poll(); // 並行的 put 可能已取走 peek 到的節點，處理實際取出的節點即可
+            if (eldest == null) {
+                return;
+            }
+            queuedCount.decrementAndGet();
+            remove(eldest.loginName(), eldest.credential());
+        }
+    }
+
+    // 移除單一項目 (只在仍是同一項目時) 並更新索引
+    private void remove(String loginName, CachedCredential credential) {
+        String username = credential.login().username();
+        loginNamesByUsername.computeIfPresent(username, (key, loginNames) -> {
+            if (credentials.remove(loginName, credential)) {
+                loginNames.remove(loginName);
+            }
+            return loginNames.isEmpty() ? null : loginNames;
+        });
+    }
+
+    // 登入名稱已改為其他會員的項目時，從原會員的索引移除
+    private void unindex(String username, String loginName) {
+        loginNamesByUsername.computeIfPresent(username, (key, loginNames) -> {
+            CachedCredential current = credentials.get(loginName);
+            if (current == null || !current.login().username().equals(username)) {
+                loginNames.remove(loginName);
+            }
+            return loginNames.isEmpty() ? null : loginNames;
+        });
+    }
+
+    private byte[] digest(String username, String rawPassword) {
+        Mac mac = idleMacs.poll();
+        if (mac == null) {
+            mac = newMac();
+        }
+        try {
+            mac.update(username.getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) 0); // 分隔符，避免 "ab"+"c" 與 "a"+"bc" 相同
+            return mac.doFinal(rawPassword.getBytes(StandardCharsets.UTF_8));
+        } finally {
+            idleMacs.offer(mac); // doFinal 已重設狀態；池已滿時直接丟棄
+        }
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(digestKey);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC not available", e);
+        }
+    }
+
+    /**
+     * 快取命中的結果。
+     * @param username 會員的用戶名 (作為認證後的 principal，而非登入時輸入的名稱)
+     * @param authorities 授予的權限
+     */
+    public record CachedLogin(String username, Collection<? extends GrantedAuthority> authorities) {
+    }
+
+    private record QueuedCredential(String loginName, CachedCredential credential) {
+    }
+
+    private record CachedCredential(byte[] digest, CachedLogin login, long expiresAtNanos) {
+        boolean isExpired(long now) {
+            return now - expiresAtNanos >= 0;
+        }
+    }
+}
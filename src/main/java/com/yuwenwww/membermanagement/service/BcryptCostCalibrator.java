@@ -0,0 +1,103 @@
+package com.yuwenwww.membermanagement.service;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * 決定新密碼雜湊使用的 BCrypt cost (work factor)。
+ * member.password-hashing.strength 大於 0 時直接使用該值；為 0 時於啟動時在目前硬體上量測，
+ * 選出單次驗證不超過 member.password-hashing.target-verify-time 的最高 cost，並限制在 min-strength 與 max-strength 之間。
+ * <p>
+ * BCrypt 的 cost 每加 1 耗時加倍，因此只量測 min-strength 一個等級 (取數次中的中位數)，其餘等級以 2 的次方推算，
+ * 避免啟動時實際執行高 cost 的雜湊。
+ */
+@Component
+public class BcryptCostCalibrator {
+
+    private static final Logger log = LoggerFactory.getLogger(BcryptCostCalibrator.class);
+    private static final int SAMPLES = 5;
+
+    @Value("${member.password-hashing.strength:0}")
+    private int configuredStrength;
+
+    @Value("${member.password-hashing.target-verify-time:PT0.25S}")
+    private Duration targetVerifyTime;
+
+    @Value("${member.password-hashing.min-strength:10}")
+    private int minStrength;
+
+    @Value("${member.password-hashing.max-strength:14}")
+    private int maxStrength;
+
+    private volatile int strength;
+    private volatile double measuredMillisAtMinStrength;
+
+    @PostConstruct
+    void calibrate() {
+        if (minStrength < 4 || maxStrength > 31 || minStrength > maxStrength) {
+            throw new IllegalStateException("Invalid BCrypt strength range: " + minStrength + ".." + maxStrength);
+        }
+        if (configuredStrength > 0) {
+            strength = configuredStrength;
+            log.info("Using configured BCrypt strength {}", strength);
+            return;
+        }
+        measuredMillisAtMinStrength = measureVerifyMillis(minStrength);
+        strength = chooseStrength(measuredMillisAtMinStrength, minStrength, maxStrength, targetVerifyTime);
+        log.info("Calibrated BCrypt strength {} (verify at strength {} took {} ms, target {} ms)",
+                strength, minStrength, String.format("%.1f", measuredMillisAtMinStrength), targetVerifyTime.toMillis());
+    }
+
+    /**
+     * @param millisAtMinStrength min-strength 單次驗證的耗時
+     * @return 推算耗時不超過目標的最高 cost；min-strength 已超過目標時仍回傳 min-strength
+     */
+    private static int chooseStrength(double millisAtMinStrength, int minStrength, int maxStrength, Duration target) {
+        double targetMillis = target.toNanos() / 1_000_000.0;
+        int chosen = minStrength;
+        double estimated = millisAtMinStrength;
+        while (chosen < maxStrength && estimated * 2 <= targetMillis) {
+            chosen++;
+            estimated *= 2;
+        }
+        return chosen;
+    }
+
+    private static double measureVerifyMillis(int strength) {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(strength);
+        String hash = encoder.encode("calibration"); // 同時作為暖機
+        long[] samples = new long[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            long start = System.nanoTime();
+            encoder.matches("calibration", hash);
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        return samples[SAMPLES / 2] / 1_000_000.0;
+    }
+
+    /**
+     * @return 新雜湊使用的 BCrypt cost；cost 較低的既有雜湊會在下次成功登入時重新雜湊
+     */
+    public int getStrength() {
+        return strength;
+    }
+
+    /**
+     * @return 校準時 min-strength 單次驗證的耗時 (毫秒)，使用固定 strength 時為 0
+     */
+    public double getMeasuredMillisAtMinStrength() {
+        return measuredMillisAtMinStrength;
+    }
+
+    public Duration getTargetVerifyTime() {
+        return targetVerifyTime;
+    }
+}
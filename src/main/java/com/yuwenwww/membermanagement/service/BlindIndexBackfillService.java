@@ -0,0 +1,136 @@
+package com.yuwenwww.membermanagement.service;
+
+import com.yuwenwww.membermanagement.entity.Member;
+import com.yuwenwww.membermanagement.repository.MemberJdbcRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 為既有會員回填 email_bidx / phone_bidx。
+ * 以 keyset 分頁讀取尚未計算盲索引的資料列，解密後計算索引並以 JDBC batch 更新；
+ * 無法解密的資料列只記錄並略過。可重複執行，已回填的資料列不會被再次讀取。
+ * 設定分片時每頁平行查詢所有分片後依 ID 合併，更新依分片分組寫回。
+ */
+@Service
+public class BlindIndexBackfillService {
+
+    private static final Logger log = LoggerFactory.getLogger(BlindIndexBackfillService.class);
+
+    @Autowired
+    private MemberJdbcRepository memberJdbcRepository;
+
+    @Autowired
+    private PiiEncryptionService piiEncryptionService;
+
+    @Autowired
+    private BlindIndexService blindIndexService;
+
+    @Autowired
+    private MemberShardRouter memberShardRouter;
+
+    @Value("${member.blind-index.backfill-batch-size:500}")
+    private int batchSize;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("blind-index-backfill-"));
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicLong updatedRows = new AtomicLong();
+    private final AtomicLong failedRows = new AtomicLong();
+    private final AtomicLong lastId = new AtomicLong();
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+
+    /**
+     * 在背景啟動回填。
+     * @return false 表示已有回填正在執行
+     */
+    public boolean start() {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        updatedRows.set(0);
+        failedRows.set(0);
+        lastId.set(0);
+        startedAt = Instant.now();
+        finishedAt = null;
+        executor.execute(() -> {
+            try {
+                backfill();
+            } catch (RuntimeException e) {
+                log.error("Blind index backfill stopped after member ID {}", lastId.get(), e);
+            } finally {
+                finishedAt = Instant.now();
+                running.set(false);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * @return 回填進度
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("running", running.get());
+        status.put("updatedRows", updatedRows.get());
+        status.put("failedRows", failedRows.get());
+        status.put("lastId", lastId.get());
+        status.put("startedAt", startedAt);
+        status.put("finishedAt", finishedAt);
+        return status;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void backfill() {
+        List<Member> page;
+        do {
+            long afterId = lastId.get();
+            page = MemberShardRouter.mergePages(memberShardRouter.onEachShard(
+                    shard -> memberJdbcRepository.findPageMissingBlindIndex(afterId, batchSize)), Member::getId, batchSize);
+            List<Member> indexed = new ArrayList<>(page.size());
+            for (Member member : page) {
+                try {
+                    member.setEmailBidx(blindIndexService.emailIndex(decrypt(member, PiiField.EMAIL, member.getEmail(), member.getEmailIv())));
+                    member.setPhoneBidx(blindIndexService.phoneIndex(decrypt(member, PiiField.PHONE, member.getPhoneNumber(), member.getPhoneIv())));
+                    indexed.add(member);
+                } catch (Exception e) {
+                    failedRows.incrementAndGet();
+                    log.warn("Skipping blind index for member ID {}: {}", member.getId(), e.getMessage());
+                }
+            }
+            memberShardRouter.groupByShard(indexed, Member::getId).forEach((shard, rows) ->
+                    memberShardRouter.runOnShard(shard, () -> memberJdbcRepository.batchUpdateBlindIndexes(rows)));
+            updatedRows.addAndGet(indexed.size());
+            if (!page.isEmpty()) {
+                lastId.set(page.get(page.size() - 1).getId());
+            }
+        } while (page.size() == batchSize && !Thread.currentThread().isInterrupted());
+        log.info("Blind index backfill finished: {} updated, {} failed", updatedRows.get(), failedRows.get());
+    }
+
+    private String decrypt(Member member, PiiField field, byte[] data, byte[] iv) throws Exception {
+        if (data == null || member.getEncryptionKeyLabel() == null) {
+            return null;
+        }
+        return new String(piiEncryptionService.decrypt(field, data, iv, member.getEncryptionKeyLabel()), StandardCharsets.UTF_8);
+    }
+}
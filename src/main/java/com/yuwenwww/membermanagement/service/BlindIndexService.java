@@ -0,0 +1,109 @@
+package com.yuwenwww.membermanagement.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * 計算 email / 電話的盲索引 (blind index)。
+ * PII 以隨機 IV 加密，同一個值每次的密文都不同，無法直接查詢；
+ * 盲索引是正規化後的值以獨立金鑰 (pii_bidx_key) 計算的 HMAC-SHA256，可存入有索引的欄位做等值查詢，
+ * 且不持有金鑰時無法由索引反推原值。
+ */
+@Component
+public class BlindIndexService {
+
+    public static final String BLIND_INDEX_KEY_LABEL = "pii_bidx_key";
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final int MAX_IDLE_MACS = 64;
+    // 不同欄位使用不同的前綴，同一個字串在 email 與電話欄位的索引值不會相同
+    private static final byte[] EMAIL_DOMAIN = "email:".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] PHONE_DOMAIN = "phone:".getBytes(StandardCharsets.UTF_8);
+
+    @Autowired
+    private PiiKeyCache piiKeyCache;
+
+    // 已以盲索引金鑰初始化的 Mac 物件池 (同 AuthenticatedCredentialCache)，避免每次計算都 getInstance 與 init
+    private final BlockingQueue<KeyedMac> idleMacs = new ArrayBlockingQueue<>(MAX_IDLE_MACS);
+
+    /**
+     * @param email 明文 email，可為 null
+     * @return email 的盲索引，email 為 null 或空白時返回 null
+     */
+    public byte[] emailIndex(String email) {
+        String normalized = normalizeEmail(email);
+        return normalized != null ? compute(EMAIL_DOMAIN, normalized) : null;
+    }
+
+    /**
+     * @param phoneNumber 明文電話號碼，可為 null
+     * @return 電話號碼的盲索引，沒有任何數字時返回 null
+     */
+    public byte[] phoneIndex(String phoneNumber) {
+        String normalized = normalizePhone(phoneNumber);
+        return normalized != null ? compute(PHONE_DOMAIN, normalized) : null;
+    }
+
+    // email 不分大小寫，並去除前後空白
+    static String normalizeEmail(String email) {
+        if (email == null || email.isBlank()) {
+            return null;
+        }
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // 電話只保留數字 (以及開頭的 +)，"0912-345-678" 與 "0912345678" 視為相同
+    static String normalizePhone(String phoneNumber) {
+        if (phoneNumber == null) {
+            return null;
+        }
+        String trimmed = phoneNumber.trim();
+        StringBuilder digits = new StringBuilder(trimmed.length());
+        if (trimmed.startsWith("+")) {
+            digits.append('+');
+        }
+        for (int i = 0; i < trimmed.length(); i++) {
+            char c = trimmed.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits.append(c);
+            }
+        }
+        return digits.length() > 0 && !"+".contentEquals(digits) ? digits.toString() : null;
+    }
+
+    private byte[] compute(byte[] domain, String normalized) {
+        try {
+            KeyedMac keyedMac = borrow(piiKeyCache.getKey(BLIND_INDEX_KEY_LABEL).secretKey());
+            try {
+                keyedMac.mac().update(domain);
+                return keyedMac.mac().doFinal(normalized.getBytes(StandardCharsets.UTF_8));
+            } finally {
+                idleMacs.offer(keyedMac); // doFinal 已重設狀態；池已滿時直接丟棄
+            }
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to compute blind index", e);
+        }
+    }
+
+    // 金鑰快取重新載入後 SecretKey 物件會不同，池中以舊物件初始化的 Mac 重新 init
+    private KeyedMac borrow(SecretKey key) throws GeneralSecurityException {
+        KeyedMac keyedMac = idleMacs.poll();
+        if (keyedMac != null && keyedMac.key() == key) {
+            return keyedMac;
+        }
+        Mac mac = keyedMac != null ? keyedMac.mac() : Mac.getInstance(HMAC_ALGORITHM);
+        mac.init(key);
+        return new KeyedMac(mac, key);
+    }
+
+    private record KeyedMac(Mac mac, SecretKey key) {
+    }
+}
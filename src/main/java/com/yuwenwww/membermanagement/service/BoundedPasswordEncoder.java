@@ -0,0 +1,149 @@
+package com.yuwenwww.membermanagement.service;
+
+import io.micrometer.core.instrument.Timer;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 在專用、有上限的執行緒池上執行密碼雜湊與驗證的 PasswordEncoder。
+ * BCrypt 每次需要數十毫秒的 CPU，若直接在 Tomcat 請求執行緒上執行，登入尖峰會佔滿整個請求池；
+ * 這裡將並行數限制在 CPU 數量，等待佇列也有上限，佇列滿時立即拋出 PasswordHashingBusyException，
+ * 讓請求執行緒快速釋放給其他輕量的接口。
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder {
+
+    private final PasswordEncoder delegate;
+    private final ThreadPoolExecutor executor;
+    private final long retryAfterSeconds;
+    private final MemberMetrics memberMetrics;
+
+    private final LongAdder completedCount = new LongAdder();
+    private final LongAdder rejectedCount = new LongAdder();
+    private final LongAdder totalQueueWaitNanos = new LongAdder();
+    private final LongAdder totalExecutionNanos = new LongAdder();
+
+    /**
+     * @param delegate 實際執行雜湊的編碼器 (例如 BCryptPasswordEncoder)
+     * @param threads 雜湊執行緒數量
+     * @param queueCapacity 等待佇列上限
+     * @param retryAfter 池滿時建議用戶端重試的間隔
+     * @param memberMetrics 記錄雜湊/驗證的執行時間與排隊時間
+     */
+    public BoundedPasswordEncoder(PasswordEncoder delegate, int threads, int queueCapacity, Duration retryAfter,
+                                  MemberMetrics memberMetrics) {
+        this.delegate = delegate;
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("password-hash-"),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.retryAfterSeconds = Math.max(1, retryAfter.toSeconds());
+        this.memberMetrics = memberMetrics;
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return execute(() -> delegate.encode(rawPassword), memberMetrics.passwordHashTimer());
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return execute(() -> delegate.matches(rawPassword, encodedPassword), memberMetrics.passwordVerifyTimer());
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword); // 只檢查雜湊前綴，不需要進入執行緒池
+    }
+
+    private <T> T execute(Callable<T> task, Timer executionTimer) {
+        long submittedAt = System.nanoTime();
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                long startedAt = System.nanoTime();
+                totalQueueWaitNanos.add(startedAt - submittedAt);
+                memberMetrics.passwordQueueWaitTimer().record(startedAt - submittedAt, TimeUnit.NANOSECONDS);
+                try {
+                    return task.call();
+                } finally {
+                    long executionNanos = System.nanoTime() - startedAt;
+                    totalExecutionNanos.add(executionNanos);
+                    executionTimer.record(executionNanos, TimeUnit.NANOSECONDS);
+                    completedCount.increment();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejectedCount.increment();
+            throw new PasswordHashingBusyException(retryAfterSeconds);
+        }
+
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for password hashing", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+
+    public PasswordEncoder getDelegate() {
+        return delegate;
+    }
+
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    public int getMaxThreads() {
+        return executor.getMaximumPoolSize();
+    }
+
+    public long getCompletedCount() {
+        return completedCount.sum();
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    /**
+     * @return 平均排隊等待時間 (毫秒)
+     */
+    public double getAverageQueueWaitMillis() {
+        long completed = completedCount.sum();
+        return completed == 0 ? 0 : totalQueueWaitNanos.sum() / 1_000_000.0 / completed;
+    }
+
+    /**
+     * @return 平均雜湊執行時間 (毫秒)
+     */
+    public double getAverageExecutionMillis() {
+        long completed = completedCount.sum();
+        return completed == 0 ? 0 : totalExecutionNanos.sum() / 1_000_000.0 / completed;
+    }
+
+    /**
+     * 關閉執行緒池 (Spring 會在容器關閉時自動呼叫)。
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
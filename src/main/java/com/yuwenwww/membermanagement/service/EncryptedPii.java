@@ -0,0 +1,9 @@
+package com.yuwenwww.membermanagement.service;
+
+/**
+ * 一個加密後的 PII 欄位值。
+ * @param data 寫入資料欄位的密文
+ * @param iv 舊版 AES-CBC 另外儲存的 IV；自描述格式 (AES-GCM) 為 null
+ */
+public record EncryptedPii(byte[] data, byte[] iv) {
+}
@@ -0,0 +1,84 @@
+package com.yuwenwww.membermanagement.service;
+
+import com.yuwenwww.membermanagement.entity.KeyMaterial;
+import com.yuwenwww.membermanagement.repository.KeyMaterialRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.GeneralSecurityException;
+import java.util.Objects;
+
+/**
+ * 信封加密 (envelope encryption)：key_material 中的資料金鑰以主金鑰包裝 (AES Key Wrap, RFC 3394) 後儲存。
+ * PII 密文只參考資料金鑰，因此主金鑰輪替時只需重新包裝少量的資料金鑰，不必重新加密整張 members 表。
+ * master_key_alias 為 null 的資料列是包裝前的舊資料金鑰 (明文)，啟動時會被包裝。
+ */
+@Service
+public class EnvelopeKeyService {
+
+    private static final Logger log = LoggerFactory.getLogger(EnvelopeKeyService.class);
+    private static final String WRAP_TRANSFORMATION = "AESWrap";
+    private static final String AES_ALGORITHM = "AES";
+
+    @Autowired
+    private MasterKeyProvider masterKeyProvider;
+
+    @Autowired
+    private KeyMaterialRepository keyMaterialRepository;
+
+    /**
+     * 以目前的主金鑰包裝資料金鑰，並寫入 KeyMaterial。
+     * @param keyMaterial 要更新的金鑰材料
+     * @param dataKey 明文資料金鑰
+     */
+    public void wrapInto(KeyMaterial keyMaterial, SecretKey dataKey) throws GeneralSecurityException {
+        String alias = masterKeyProvider.getActiveAlias();
+        Cipher cipher = Cipher.getInstance(WRAP_TRANSFORMATION);
+        cipher.init(Cipher.WRAP_MODE, masterKeyProvider.getKey(alias));
+        keyMaterial.setKeyValue(cipher.wrap(dataKey));
+        keyMaterial.setMasterKeyAlias(alias);
+    }
+
+    /**
+     * 解開 KeyMaterial 中的資料金鑰。
+     * @param keyMaterial 金鑰材料
+     * @return 明文資料金鑰
+     */
+    public SecretKey unwrap(KeyMaterial keyMaterial) throws GeneralSecurityException {
+        if (keyMaterial.getMasterKeyAlias() == null) {
+            return new SecretKeySpec(keyMaterial.getKeyValue(), AES_ALGORITHM); // 尚未包裝的舊資料金鑰
+        }
+        Cipher cipher = Cipher.getInstance(WRAP_TRANSFORMATION);
+        cipher.init(Cipher.UNWRAP_MODE, masterKeyProvider.getKey(keyMaterial.getMasterKeyAlias()));
+        return (SecretKey) cipher.unwrap(keyMaterial.getKeyValue(), AES_ALGORITHM, Cipher.SECRET_KEY);
+    }
+
+    /**
+     * 以目前的主金鑰重新包裝所有未使用它的資料金鑰 (包含尚未包裝的舊資料金鑰)。
+     * 只更新 key_material 的少量資料列，PII 密文與已快取的明文資料金鑰都不受影響。
+     * @return 重新包裝的資料金鑰數
+     */
+    @Transactional
+    public int rewrapAll() throws GeneralSecurityException {
+        String activeAlias = masterKeyProvider.getActiveAlias();
+        int rewrapped = 0;
+        for (KeyMaterial keyMaterial : keyMaterialRepository.findAll()) {
+            if (Objects.equals(keyMaterial.getMasterKeyAlias(), activeAlias)) {
+                continue;
+            }
+            wrapInto(keyMaterial, unwrap(keyMaterial));
+            keyMaterialRepository.save(keyMaterial);
+            rewrapped++;
+        }
+        if (rewrapped > 0) {
+            log.info("Re-wrapped {} data key(s) with master key {}", rewrapped, activeAlias);
+        }
+        return rewrapped;
+    }
+}
@@ -0,0 +1,404 @@
+package com.yuwenwww.membermanagement.service;
+
+import com.yuwenwww.membermanagement.entity.KeyRotationJob;
+import com.yuwenwww.membermanagement.entity.Member;
+import com.yuwenwww.membermanagement.repository.KeyMaterialRepository;
+import com.yuwenwww.membermanagement.repository.KeyRotationJobRepository;
+import com.yuwenwww.membermanagement.repository.MemberJdbcRepository;
+import com.yuwenwww.membermanagement.repository.MemberPiiUpdate;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.security.GeneralSecurityException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * PII 金鑰輪替與線上重新加密。
+ * 啟動輪替時產生新的 KeyMaterial 並立即作為寫入金鑰，背景執行緒再依 ID 以 keyset 批次走訪 members，
+ * 以舊金鑰解密、新金鑰加密，每個批次與檢查點 (key_rotation_jobs.last_member_id) 在同一交易中提交。
+ * 處理速度受 rows-per-second 節流，避免與線上流量競爭；應用程式重啟後會從檢查點自動繼續。
+ * 設定分片時每頁平行查詢所有分片後依 ID 合併；分片 1 之後的資料列各自在該分片的交易中提交，
+ * 分片 0 的資料列仍與檢查點在同一交易中提交。
+ * <p>
+ * 目前的寫入金鑰標籤取自最近一次輪替工作，各實例最多快取 active-label-ttl；
+ * 其他實例在這段時間內仍可能以舊金鑰寫入檢查點之前的資料列，因此走訪到最後時會從頭再檢查一次。
+ */
+@Service
+public class KeyRotationService {
+
+    private static final Logger log = LoggerFactory.getLogger(KeyRotationService.class);
+
+    public static final String INITIAL_PII_KEY_LABEL = "pii_aes_key";
+
+    // 毫秒時間戳加上隨機片段：同一毫秒內 (或不同實例) 啟動的輪替也不會撞上 key_material.key_label 的唯一約束
+    private static final DateTimeFormatter LABEL_SUFFIX = DateTimeFormatter.ofPattern("yyyyMMddHHmmssSSS").withZone(ZoneOffset.UTC);
+
+    @Autowired
+    private KeyRotationJobRepository keyRotationJobRepository;
+
+    @Autowired
+    private KeyMaterialRepository keyMaterialRepository;
+
+    @Autowired
+    private MemberJdbcRepository memberJdbcRepository;
+
+    @Autowired
+    private PiiEncryptionService piiEncryptionService;
+
+    @Autowired
+    private PiiKeyGenerator piiKeyGenerator;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MemberShardRouter memberShardRouter;
+
+    @Value("${member.key-rotation.batch-size:200}")
+    private int batchSize;
+
+    @Value("${member.key-rotation.rows-per-second:500}")
+    private int defaultRowsPerSecond;
+
+    @Value("${member.key-rotation.active-label-ttl:PT5S}")
+    private Duration activeLabelTtl;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("key-rotation-"));
+    private final AtomicBoolean running = new AtomicBoolean();
+    // 啟動/繼續輪替時會查詢資料庫，以 ReentrantLock 而非 synchronized 避免釘住虛擬執行緒
+    private final ReentrantLock controlLock = new ReentrantLock();
+    private TransactionTemplate transactionTemplate;
+    private volatile ActiveKeyLabel activeKeyLabel;
+    private volatile boolean pauseRequested;
+    private volatile long runStartedNanos;
+    private volatile long runRows;
+
+    @PostConstruct
+    void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    // 關閉時只中斷背景執行緒，工作狀態維持 RUNNING，下次啟動會從檢查點繼續
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 應用程式啟動後，若上一次輪替在執行中被中斷 (狀態仍為 RUNNING)，從檢查點繼續。
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeInterruptedRotation() {
+        keyRotationJobRepository.findFirstByOrderByIdDesc()
+                .filter(job -> job.getStatus() == KeyRotationJob.Status.RUNNING)
+                .ifPresent(job -> {
+                    log.info("Resuming key rotation job {} from member ID {}", job.getId(), job.getLastMemberId());
+                    launch(job.getId());
+                });
+    }
+
+    /**
+     * 新資料應使用的 PII 金鑰標籤 (最近一次輪替的目標金鑰)。
+     * 每 active-label-ttl 重新查詢一次，其他實例啟動的輪替最晚在 TTL 後生效。
+     * @return PII 金鑰標籤
+     */
+    public String getActiveKeyLabel() {
+        ActiveKeyLabel cached = activeKeyLabel;
+        long now = System.nanoTime();
+        if (cached != null && now - cached.loadedAtNanos() < activeLabelTtl.toNanos()) {
+            return cached.label();
+        }
+        // key_rotation_jobs 是分片 0 上的全域資料表
+        String label = memberShardRouter.onGlobalTables(() -> keyRotationJobRepository.findFirstByOrderByIdDesc())
+                .map(KeyRotationJob::getTargetKeyLabel)
+                .orElse(INITIAL_PII_KEY_LABEL);
+        activeKeyLabel = new ActiveKeyLabel(label, now);
+        return label;
+    }
+
+    /**
+     * 產生新金鑰並在背景開始重新加密所有會員。
+     * @param rowsPerSecond 節流上限，null 時使用設定值
+     * @return 新建立的輪替工作
+     * @throws IllegalStateException 已有輪替執行中或暫停中
+     */
+    public KeyRotationJob startRotation(Integer rowsPerSecond) throws Exception {
+        controlLock.lock();
+        try {
+            return startRotationLocked(rowsPerSecond);
+        } finally {
+            controlLock.unlock();
+        }
+    }
+
+    private KeyRotationJob startRotationLocked(Integer rowsPerSecond) throws Exception {
+        Optional<KeyRotationJob> latest = keyRotationJobRepository.findFirstByOrderByIdDesc();
+        if (running.get() || latest.filter(job -> job.getStatus() == KeyRotationJob.Status.RUNNING
+                || job.getStatus() == KeyRotationJob.Status.PAUSED).isPresent()) {
+            throw new IllegalStateException("A key rotation is already in progress; resume it before starting a new one");
+        }
+        String sourceKeyLabel = getActiveKeyLabel();
+        String targetKeyLabel = newKeyLabel();
+        int rate = rowsPerSecond != null && rowsPerSecond > 0 ? rowsPerSecond : defaultRowsPerSecond;
+        // 新金鑰與輪替工作在同一交易中寫入，任一步失敗都不會留下沒有工作參照的金鑰
+        KeyRotationJob job = transactionTemplate.execute(status -> {
+            try {
+                keyMaterialRepository.save(piiKeyGenerator.generate(targetKeyLabel));
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("Failed to generate PII key " + targetKeyLabel, e);
+            }
+            return keyRotationJobRepository.save(new KeyRotationJob(sourceKeyLabel, targetKeyLabel, rate));
+        });
+        activeKeyLabel = new ActiveKeyLabel(targetKeyLabel, System.nanoTime()); // 從這裡開始本實例新寫入的資料直接使用新金鑰
+        log.info("Starting key rotation job {}: {} -> {} at {} rows/s", job.getId(), sourceKeyLabel, targetKeyLabel, rate);
+        launch(job.getId());
+        return job;
+    }
+
+    // 例如 pii_aes_key_20261018004219123_1a2b3c4d (38 字元，欄位上限 50)
+    private static String newKeyLabel() {
+        return INITIAL_PII_KEY_LABEL + "_" + LABEL_SUFFIX.format(Instant.now())
+                + "_" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    /**
+     * 要求執行中的輪替在目前批次提交後暫停。
+     */
+    public void pauseRotation() {
+        if (running.get()) {
+            pauseRequested = true;
+        }
+    }
+
+    /**
+     * 從檢查點繼續暫停或失敗的輪替。
+     * @param rowsPerSecond 新的節流上限，null 時沿用原設定
+     * @throws IllegalStateException 沒有可繼續的輪替
+     */
+    public void resumeRotation(Integer rowsPerSecond) {
+        controlLock.lock();
+        try {
+            resumeRotationLocked(rowsPerSecond);
+        } finally {
+            controlLock.unlock();
+        }
+    }
+
+    private void resumeRotationLocked(Integer rowsPerSecond) {
+        KeyRotationJob job = keyRotationJobRepository.findFirstByOrderByIdDesc()
+                .filter(latest -> latest.getStatus() == KeyRotationJob.Status.PAUSED
+                        || latest.getStatus() == KeyRotationJob.Status.FAILED)
+                .orElseThrow(() -> new IllegalStateException("No paused or failed key rotation to resume"));
+        if (running.get()) {
+            throw new IllegalStateException("Key rotation is still stopping; try again shortly");
+        }
+        if (rowsPerSecond != null && rowsPerSecond > 0) {
+            job.setRowsPerSecond(rowsPerSecond);
+        }
+        job.setStatus(KeyRotationJob.Status.RUNNING);
+        job.setErrorMessage(null);
+        keyRotationJobRepository.save(job);
+        launch(job.getId());
+    }
+
+    /**
+     * @return 最近一次輪替的進度與本次執行的實際吞吐量
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("activeKeyLabel", getActiveKeyLabel());
+        status.put("running", running.get());
+        keyRotationJobRepository.findFirstByOrderByIdDesc().ifPresent(job -> {
+            status.put("jobId", job.getId());
+            status.put("status", job.getStatus());
+            status.put("sourceKeyLabel", job.getSourceKeyLabel());
+            status.put("targetKeyLabel", job.getTargetKeyLabel());
+            status.put("lastMemberId", job.getLastMemberId());
+            status.put("rotatedRows", job.getRotatedRows());
+            status.put("failedRows", job.getFailedRows());
+            status.put("rowsPerSecondLimit", job.getRowsPerSecond());
+            status.put("createdAt", job.getCreatedAt());
+            status.put("completedAt", job.getCompletedAt());
+            status.put("errorMessage", job.getErrorMessage());
+        });
+        if (running.get()) {
+            double elapsedSeconds = (System.nanoTime() - runStartedNanos) / 1_000_000_000.0;
+            status.put("rowsPerSecond", elapsedSeconds > 0 ? runRows / elapsedSeconds : 0);
+        }
+        return status;
+    }
+
+    private void launch(long jobId) {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("Key rotation already running");
+        }
+        pauseRequested = false;
+        executor.execute(() -> {
+            try {
+                run(jobId);
+            } finally {
+                running.set(false);
+            }
+        });
+    }
+
+    private void run(long jobId) {
+        KeyRotationJob job = keyRotationJobRepository.findById(jobId).orElseThrow();
+        runStartedNanos = System.nanoTime();
+        runRows = 0;
+        boolean rechecked = false;
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                if (pauseRequested) {
+                    job.setStatus(KeyRotationJob.Status.PAUSED);
+                    keyRotationJobRepository.save(job);
+                    log.info("Key rotation job {} paused at member ID {}", jobId, job.getLastMemberId());
+                    return;
+                }
+                long afterId = job.getLastMemberId();
+                String targetKeyLabel = job.getTargetKeyLabel();
+                int limit = Math.min(batchSize, job.getRowsPerSecond());
+                List<Member> page = MemberShardRouter.mergePages(memberShardRouter.onEachShard(
+                        shard -> memberJdbcRepository.findPageForRotation(afterId, targetKeyLabel, limit)), Member::getId, limit);
+                if (page.isEmpty() && !rechecked) {
+                    // 其他實例在 TTL 內仍可能以舊金鑰改寫檢查點之前的資料列：等所有實例都改用新金鑰後從頭再檢查一次
+                    rechecked = true;
+                    long waitNanos = runStartedNanos + activeLabelTtl.toNanos() - System.nanoTime();
+                    if (waitNanos > 0) {
+                        TimeUnit.NANOSECONDS.sleep(waitNanos);
+                    }
+                    job = rewind(job);
+                    continue;
+                }
+                if (page.isEmpty()) {
+                    job.setStatus(KeyRotationJob.Status.COMPLETED);
+                    job.setCompletedAt(Timestamp.from(Instant.now()));
+                    keyRotationJobRepository.save(job);
+                    log.info("Key rotation job {} completed: {} rotated, {} failed", jobId, job.getRotatedRows(), job.getFailedRows());
+                    return;
+                }
+                job = rotateBatch(job, page, !rechecked);
+                runRows += page.size();
+                throttle(job.getRowsPerSecond());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            log.error("Key rotation job {} failed at member ID {}", jobId, job.getLastMemberId(), e);
+            job.setStatus(KeyRotationJob.Status.FAILED);
+            String message = String.valueOf(e.getMessage());
+            job.setErrorMessage(message.length() > 500 ? message.substring(0, 500) : message);
+            keyRotationJobRepository.save(job);
+        }
+    }
+
+    // 檢查點移回開頭；之後只會讀到仍未使用目標金鑰的資料列
+    private KeyRotationJob rewind(KeyRotationJob job) {
+        log.info("Key rotation job {} reached the end, rechecking from the start for rows written with the old key", job.getId());
+        job.setLastMemberId(0);
+        return keyRotationJobRepository.save(job);
+    }
+
+    // 重新加密一批資料列，並在同一交易中寫入資料與檢查點；
+    // 最後一輪檢查會再遇到先前解密失敗的資料列，此時不重複計入 failedRows
+    private KeyRotationJob rotateBatch(KeyRotationJob job, List<Member> page, boolean countFailures) {
+        List<MemberPiiUpdate> updates = new ArrayList<>(page.size());
+        long failed = 0;
+        for (Member member : page) {
+            try {
+                updates.add(reencrypt(member, job.getTargetKeyLabel()));
+            } catch (Exception e) {
+                failed++;
+                log.warn("Skipping key rotation for member ID {}: {}", member.getId(), e.getMessage());
+            }
+        }
+        long lastMemberId = page.get(page.size() - 1).getId();
+        long failedRows = countFailures ? failed : 0;
+        // 其他分片先提交；在檢查點寫入前中斷時，重新執行只會讀到尚未使用目標金鑰的資料列，已輪替的不會重複處理
+        Map<Integer, List<MemberPiiUpdate>> updatesByShard = memberShardRouter.groupByShard(updates, MemberPiiUpdate::id);
+        long otherShardsRotated = 0;
+        for (Map.Entry<Integer, List<MemberPiiUpdate>> entry : updatesByShard.entrySet()) {
+            if (entry.getKey() != 0) {
+                otherShardsRotated += memberShardRouter.onShard(entry.getKey(),
+                        () -> transactionTemplate.execute(status -> countRotated(memberJdbcRepository.batchUpdateEncryptedPii(entry.getValue()))));
+            }
+        }
+        long rotatedOnOtherShards = otherShardsRotated;
+        List<MemberPiiUpdate> shard0Updates = updatesByShard.getOrDefault(0, List.of());
+        return transactionTemplate.execute(status -> {
+            long rotated = rotatedOnOtherShards;
+            if (!shard0Updates.isEmpty()) {
+                rotated += countRotated(memberJdbcRepository.batchUpdateEncryptedPii(shard0Updates));
+            }
+            job.setLastMemberId(lastMemberId);
+            job.setRotatedRows(job.getRotatedRows() + rotated);
+            job.setFailedRows(job.getFailedRows() + failedRows);
+            return keyRotationJobRepository.save(job);
+        });
+    }
+
+    private static long countRotated(int[] counts) {
+        long rotated = 0;
+        for (int count : counts) {
+            if (count != 0) { // SUCCESS_NO_INFO (-2) 也視為成功
+                rotated++;
+            }
+        }
+        return rotated;
+    }
+
+    private MemberPiiUpdate reencrypt(Member member, String targetKeyLabel) throws Exception {
+        String sourceKeyLabel = member.getEncryptionKeyLabel();
+        EncryptedPii email = null;
+        EncryptedPii phone = null;
+        if (member.getEmail() != null) {
+            email = piiEncryptionService.encrypt(PiiField.EMAIL,
+                    piiEncryptionService.decrypt(PiiField.EMAIL, member.getEmail(), member.getEmailIv(), sourceKeyLabel), targetKeyLabel);
+        }
+        if (member.getPhoneNumber() != null) {
+            phone = piiEncryptionService.encrypt(PiiField.PHONE,
+                    piiEncryptionService.decrypt(PiiField.PHONE, member.getPhoneNumber(), member.getPhoneIv(), sourceKeyLabel), targetKeyLabel);
+        }
+        return new MemberPiiUpdate(member.getId(),
+                email != null ? email.data() : null, email != null ? email.iv() : null,
+                phone != null ? phone.data() : null, phone != null ? phone.iv() : null,
+                targetKeyLabel, member.getVersion());
+    }
+
+    private record ActiveKeyLabel(String label, long loadedAtNanos) {
+    }
+
+    // 依本次執行已處理的筆數計算應經過的時間，處理太快時睡眠補足
+    private void throttle(int rowsPerSecond) throws InterruptedException {
+        long expectedNanos = runRows * 1_000_000_000L / rowsPerSecond;
+        long aheadNanos = expectedNanos - (System.nanoTime() - runStartedNanos);
+        if (aheadNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(aheadNanos);
+        }
+    }
+}
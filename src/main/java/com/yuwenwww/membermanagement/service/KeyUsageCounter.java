@@ -0,0 +1,165 @@
+package com.yuwenwww.membermanagement.service;
+
+import com.yuwenwww.membermanagement.repository.KeyMaterialJdbcRepository;
+import com.yuwenwww.membermanagement.repository.KeyMaterialJdbcRepository.KeyUsage;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * PII 金鑰使用次數的非同步累計。
+ * 每次加解密只遞增記憶體中該金鑰標籤的 LongAdder，由排程定期以一次 batch UPDATE 寫回 key_material.usage_count，
+ * 避免每次加密都鎖住同一列。關閉時會再寫回一次。
+ * 加密次數另外累計：只有加密會取用新的隨機 nonce，告警門檻 (GCM 隨機 nonce 的 2^32 上限) 只比較加密次數。
+ */
+@Component
+public class KeyUsageCounter {
+
+    private static final Logger log = LoggerFactory.getLogger(KeyUsageCounter.class);
+
+    @Autowired
+    private KeyMaterialJdbcRepository keyMaterialJdbcRepository;
+
+    @Value("${member.key-usage.alert-threshold:4294967296}")
+    private long alertThreshold;
+
+    private final ConcurrentHashMap<String, PendingUsage> pending = new ConcurrentHashMap<>();
+    private final Map<String, KeyUsage> lastKnownCounts = new ConcurrentHashMap<>();
+    private final Set<String> alertedLabels = ConcurrentHashMap.newKeySet();
+    // 以 ReentrantLock 而非 synchronized 序列化寫回：持有監視器鎖執行 JDBC 會釘住 (pin) 虛擬執行緒的載體執行緒
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private record PendingUsage(LongAdder uses, LongAdder encryptions) {
+
+        PendingUsage() {
+            this(new LongAdder(), new LongAdder());
+        }
+
+        KeyUsage snapshot() {
+            return new KeyUsage(uses.sum(), encryptions.sum());
+        }
+    }
+
+    /**
+     * 記錄一次加密。
+     * @param keyLabel 金鑰標籤
+     */
+    public void incrementEncryption(String keyLabel) {
+        PendingUsage usage = pendingUsage(keyLabel);
+        usage.encryptions().increment();
+        usage.uses().increment();
+    }
+
+    /**
+     * 記錄一次解密。
+     * @param keyLabel 金鑰標籤
+     */
+    public void incrementDecryption(String keyLabel) {
+        pendingUsage(keyLabel).uses().increment();
+    }
+
+    private PendingUsage pendingUsage(String keyLabel) {
+        PendingUsage usage = pending.get(keyLabel);
+        if (usage == null) {
+            usage = pending.computeIfAbsent(keyLabel, label -> new PendingUsage());
+        }
+        return usage;
+    }
+
+    /**
+     * 將累計的次數以一次 batch UPDATE 寫回資料庫，並檢查告警門檻。
+     * 寫入失敗時次數會加回記憶體，下次再寫。
+     */
+    @Scheduled(fixedDelayString = "${member.key-usage.flush-interval:PT10S}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            flushPending();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void flushPending() {
+        Map<String, KeyUsage> deltas = new HashMap<>();
+        pending.forEach((label, usage) -> {
+            // sumThenReset() 與並行的 increment 之間沒有原子性，reset 前剛加上的次數會遺失；改為減去已讀取的量
+            long uses = drain(usage.uses());
+            long encryptions = drain(usage.encryptions());
+            if (uses > 0 || encryptions > 0) {
+                deltas.put(label, new KeyUsage(uses, encryptions));
+            }
+        });
+        if (deltas.isEmpty()) {
+            return;
+        }
+        try {
+            keyMaterialJdbcRepository.addUsageCounts(deltas);
+        } catch (DataAccessException e) {
+            deltas.forEach((label, delta) -> {
+                PendingUsage usage = pendingUsage(label);
+                usage.uses().add(delta.uses());
+                usage.encryptions().add(delta.encryptions());
+            });
+            log.warn("Failed to flush key usage counts, will retry: {}", e.getMessage());
+            return;
+        }
+        keyMaterialJdbcRepository.findUsageCounts(deltas.keySet()).forEach((label, counts) -> {
+            lastKnownCounts.put(label, counts);
+            if (counts.encryptions() >= alertThreshold && alertedLabels.add(label)) {
+                log.error("ALERT: PII key '{}' has encrypted {} values, exceeding the threshold of {}; rotate it",
+                        label, counts.encryptions(), alertThreshold);
+            }
+        });
+    }
+
+    private static long drain(LongAdder adder) {
+        long delta = adder.sum();
+        adder.add(-delta);
+        return delta;
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    /**
+     * @return 尚未寫回的次數
+     */
+    public Map<String, KeyUsage> getPendingCounts() {
+        Map<String, KeyUsage> counts = new HashMap<>();
+        pending.forEach((label, usage) -> counts.put(label, usage.snapshot()));
+        return counts;
+    }
+
+    /**
+     * @return 最近一次寫回後資料庫中的使用次數
+     */
+    public Map<String, KeyUsage> getLastKnownCounts() {
+        return Map.copyOf(lastKnownCounts);
+    }
+
+    /**
+     * @return 加密次數已超過告警門檻的金鑰標籤
+     */
+    public Set<String> getAlertedLabels() {
+        return Set.copyOf(alertedLabels);
+    }
+
+    public long getAlertThreshold() {
+        return alertThreshold;
+    }
+}
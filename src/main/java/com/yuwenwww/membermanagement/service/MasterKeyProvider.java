@@ -0,0 +1,216 @@
+package com.yuwenwww.membermanagement.service;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 主金鑰 (master key) 提供者。
+ * 啟動時從本機 PKCS12 keystore 一次載入所有主金鑰並保存在記憶體中；資料金鑰 (key_material) 以主金鑰包裝後才存入資料庫。
+ * 目前使用的主金鑰為 member.master-key.alias 指定的項目，未指定時為建立時間最新的項目；
+ * 舊的項目仍會保留，用於解開尚未重新包裝的資料金鑰。
+ * <p>
+ * 多個應用程式實例共用 key_material：輪替前 keystore 檔案必須由所有實例共用 (共用磁碟) 或先發佈到每個實例的 keystore-path，
+ * 否則其他實例無法解開以新主金鑰包裝的資料金鑰。遇到未載入的別名時會重新讀取 keystore 檔案，
+ * 因此檔案更新後不需要重新啟動其他實例。
+ */
+@Component
+public class MasterKeyProvider {
+
+    private static final Logger log = LoggerFactory.getLogger(MasterKeyProvider.class);
+    private static final String KEYSTORE_TYPE = "PKCS12";
+    private static final DateTimeFormatter ALIAS_SUFFIX = DateTimeFormatter.ofPattern("yyyyMMddHHmmss").withZone(ZoneOffset.UTC);
+
+    @Autowired
+    private AesCipherEngine aesCipherEngine;
+
+    @Value("${member.master-key.keystore-path:config/master-keys.p12}")
+    private Path keystorePath;
+
+    @Value("${member.master-key.keystore-password:}")
+    private char[] keystorePassword;
+
+    @Value("${member.master-key.alias:}")
+    private String configuredAlias;
+
+    @Value("${member.master-key.create-if-missing:false}")
+    private boolean createIfMissing;
+
+    private final Map<String, SecretKey> masterKeys = new ConcurrentHashMap<>();
+    private volatile String activeAlias;
+    private final ReentrantLock rotationLock = new ReentrantLock(); // 檔案 I/O 期間不使用 synchronized，避免釘住虛擬執行緒
+
+    @PostConstruct
+    void load() throws IOException, GeneralSecurityException {
+        if (keystorePassword.length == 0) {
+            // 不提供預設密碼：避免正式環境以公開的密碼建立或開啟主金鑰 (dev / loadtest profile 另行設定)
+            throw new IllegalStateException("member.master-key.keystore-password (MEMBER_MASTER_KEY_PASSWORD) must be set");
+        }
+        KeyStore keyStore = KeyStore.getInstance(KEYSTORE_TYPE);
+        if (Files.exists(keystorePath)) {
+            try (InputStream in = Files.newInputStream(keystorePath)) {
+                keyStore.load(in, keystorePassword);
+            }
+        } else if (createIfMissing) {
+            keyStore.load(null, keystorePassword);
+            log.warn("Master key store {} not found, creating a new one", keystorePath);
+        } else {
+            throw new IllegalStateException("Master key store not found: " + keystorePath);
+        }
+
+        String newestAlias = null;
+        Date newestDate = null;
+        for (String alias : Collections.list(keyStore.aliases())) {
+            if (keyStore.getKey(alias, keystorePassword) instanceof SecretKey secretKey) {
+                masterKeys.put(alias, secretKey);
+                Date created = keyStore.getCreationDate(alias);
+                if (newestDate == null || (created != null && created.after(newestDate))) {
+                    newestAlias = alias;
+                    newestDate = created;
+                }
+            }
+        }
+        if (masterKeys.isEmpty()) {
+            newestAlias = addNewKey(keyStore);
+        }
+        if (!configuredAlias.isBlank()) {
+            if (!masterKeys.containsKey(configuredAlias)) {
+                throw new IllegalStateException("Master key alias not found in key store: " + configuredAlias);
+            }
+            activeAlias = configuredAlias;
+        } else {
+            activeAlias = newestAlias;
+        }
+        log.info("Loaded {} master key(s), active alias: {}", masterKeys.size(), activeAlias);
+    }
+
+    /**
+     * @return 目前用於包裝資料金鑰的主金鑰別名
+     */
+    public String getActiveAlias() {
+        return activeAlias;
+    }
+
+    /**
+     * 取得主金鑰；記憶體中沒有此別名時 (其他實例輪替後新增的主金鑰) 重新讀取 keystore 檔案。
+     * @param alias 主金鑰別名
+     * @return 主金鑰
+     * @throws IllegalStateException keystore 檔案中也沒有此別名
+     */
+    public SecretKey getKey(String alias) {
+        SecretKey key = masterKeys.get(alias);
+        if (key == null) {
+            key = reloadFor(alias);
+        }
+        if (key == null) {
+            throw new IllegalStateException("Master key not loaded: " + alias);
+        }
+        return key;
+    }
+
+    // 重新讀取 keystore 檔案並加入新的項目；未指定 alias 設定時，目前主金鑰改為最新的項目
+    private SecretKey reloadFor(String alias) {
+        rotationLock.lock();
+        try {
+            SecretKey loaded = masterKeys.get(alias); // 等待鎖的期間其他執行緒可能已重新讀取
+            if (loaded != null || !Files.exists(keystorePath)) {
+                return loaded;
+            }
+            KeyStore keyStore = KeyStore.getInstance(KEYSTORE_TYPE);
+            try (InputStream in = Files.newInputStream(keystorePath)) {
+                keyStore.load(in, keystorePassword);
+            }
+            String newestAlias = null;
+            Date newestDate = null;
+            for (String entry : Collections.list(keyStore.aliases())) {
+                if (keyStore.getKey(entry, keystorePassword) instanceof SecretKey secretKey) {
+                    masterKeys.putIfAbsent(entry, secretKey);
+                    Date created = keyStore.getCreationDate(entry);
+                    if (newestDate == null || (created != null && created.after(newestDate))) {
+                        newestAlias = entry;
+                        newestDate = created;
+                    }
+                }
+            }
+            if (configuredAlias.isBlank() && newestAlias != null && !newestAlias.equals(activeAlias)) {
+                log.info("Reloaded master key store {}, active alias: {} -> {}", keystorePath, activeAlias, newestAlias);
+                activeAlias = newestAlias;
+            }
+            return masterKeys.get(alias);
+        } catch (IOException | GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to reload master key store " + keystorePath + ": " + e.getMessage(), e);
+        } finally {
+            rotationLock.unlock();
+        }
+    }
+
+    /**
+     * 產生新的主金鑰、寫入 keystore 檔案並設為目前使用的主金鑰。
+     * 既有資料金鑰需要再以 EnvelopeKeyService.rewrapAll 重新包裝。
+     * 多個實例時 keystore-path 必須指向共用的檔案，否則其他實例讀不到新的主金鑰 (見類別說明)。
+     * @return 新主金鑰的別名
+     */
+    public String rotate() throws IOException, GeneralSecurityException {
+        rotationLock.lock();
+        try {
+            KeyStore keyStore = KeyStore.getInstance(KEYSTORE_TYPE);
+            try (InputStream in = Files.newInputStream(keystorePath)) {
+                keyStore.load(in, keystorePassword);
+            }
+            String alias = addNewKey(keyStore);
+            activeAlias = alias;
+            return alias;
+        } finally {
+            rotationLock.unlock();
+        }
+    }
+
+    public int size() {
+        return masterKeys.size();
+    }
+
+    // 呼叫端持有已載入的 keystore；新項目寫入暫存檔後再原子替換，避免寫到一半的檔案
+    private String addNewKey(KeyStore keyStore) throws IOException, GeneralSecurityException {
+        KeyGenerator keyGen = KeyGenerator.getInstance("AES");
+        keyGen.init(256, aesCipherEngine.secureRandom());
+        SecretKey masterKey = keyGen.generateKey();
+        String alias = "master-" + ALIAS_SUFFIX.format(Instant.now());
+        if (keyStore.containsAlias(alias)) {
+            alias += "-" + keyStore.size(); // 同一秒內連續輪替
+        }
+        keyStore.setEntry(alias, new KeyStore.SecretKeyEntry(masterKey), new KeyStore.PasswordProtection(keystorePassword));
+
+        Path parent = keystorePath.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, "master-keys", ".tmp");
+        try (OutputStream out = Files.newOutputStream(temp)) {
+            keyStore.store(out, keystorePassword);
+        }
+        Files.move(temp, keystorePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        masterKeys.put(alias, masterKey);
+        log.info("Generated master key {} in {}", alias, keystorePath);
+        return alias;
+    }
+}
@@ -0,0 +1,191 @@
+package com.yuwenwww.membermanagement.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yuwenwww.membermanagement.dto.MemberProfileResponse;
+import com.yuwenwww.membermanagement.entity.Member;
+import com.yuwenwww.membermanagement.repository.MemberJdbcRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * 會員資料匯出。
+ * 以 keyset 分頁逐頁讀取 members，逐頁解密 PII 後直接寫入輸出串流；
+ * 任何時刻只有一頁資料在記憶體中，因此匯出一萬筆或一千萬筆的記憶體用量相同。
+ * 設定分片時每頁平行查詢所有分片後依 ID 合併，輸出仍依 ID 排序。
+ */
+@Service
+public class MemberExportService {
+
+    private static final Logger log = LoggerFactory.getLogger(MemberExportService.class);
+
+    public enum Format { JSON, CSV }
+
+    @Autowired
+    private MemberJdbcRepository memberJdbcRepository;
+
+    @Autowired
+    private PiiEncryptionService piiEncryptionService;
+
+    @Autowired
+    private MemberShardRouter memberShardRouter;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${member.export.page-size:1000}")
+    private int pageSize;
+
+    /**
+     * 將所有會員 (含解密後的 PII) 寫入輸出串流。
+     * @param output 輸出串流 (通常是 HTTP 回應)
+     * @param format 輸出格式
+     * @return 匯出的筆數
+     */
+    public long export(OutputStream output, Format format) throws IOException {
+        RowWriter writer = format == Format.CSV ? new CsvRowWriter(output) : new JsonRowWriter(output);
+        long count = 0;
+        long afterId = 0;
+        List<Member> page;
+        writer.begin();
+        do {
+            long pageAfterId = afterId;
+            page = MemberShardRouter.mergePages(
+                    memberShardRouter.onEachShard(shard -> memberJdbcRepository.findPageAfter(pageAfterId, pageSize)), Member::getId, pageSize);
+            for (Member member : page) {
+                writer.write(toProfile(member));
+                afterId = member.getId();
+            }
+            count += page.size();
+            writer.flush(); // 每頁送出一次，讓用戶端持續收到資料
+        } while (page.size() == pageSize);
+        writer.end();
+        return count;
+    }
+
+    private MemberProfileResponse toProfile(Member member) {
+        String email = null;
+        String phoneNumber = null;
+        try {
+            if (member.getEncryptionKeyLabel() != null) {
+                if (member.getEmail() != null) {
+                    email = new String(piiEncryptionService.decrypt(PiiField.EMAIL, member.getEmail(), member.getEmailIv(), member.getEncryptionKeyLabel()), StandardCharsets.UTF_8);
+                }
+                if (member.getPhoneNumber() != null) {
+                    phoneNumber = new String(piiEncryptionService.decrypt(PiiField.PHONE, member.getPhoneNumber(), member.getPhoneIv(), member.getEncryptionKeyLabel()), StandardCharsets.UTF_8);
+                }
+            }
+        } catch (Exception e) {
+            // 單筆解密失敗不中斷整個匯出，該筆的 PII 欄位輸出為空
+            log.warn("Failed to decrypt PII for member ID {} during export: {}", member.getId(), e.getMessage());
+        }
+        return new MemberProfileResponse(member.getId(), member.getUsername(), email, phoneNumber,
+                member.getCreatedAt(), member.getUpdatedAt());
+    }
+
+    private interface RowWriter {
+        void begin() throws IOException;
+
+        void write(MemberProfileResponse profile) throws IOException;
+
+        void flush() throws IOException;
+
+        void end() throws IOException;
+    }
+
+    /**
+     * 以 JSON 陣列輸出，每個元素與 GET /api/members/{id} 的回應格式相同。
+     */
+    private class JsonRowWriter implements RowWriter {
+        private final JsonGenerator generator;
+
+        JsonRowWriter(OutputStream output) throws IOException {
+            this.generator = objectMapper.getFactory().createGenerator(output);
+        }
+
+        @Override
+        public void begin() throws IOException {
+            generator.writeStartArray();
+        }
+
+        @Override
+        public void write(MemberProfileResponse profile) throws IOException {
+            objectMapper.writeValue(generator, profile);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            generator.flush();
+        }
+
+        @Override
+        public void end() throws IOException {
+            generator.writeEndArray();
+            generator.flush();
+        }
+    }
+
+    private static class CsvRowWriter implements RowWriter {
+        private final Writer writer;
+
+        CsvRowWriter(OutputStream output) {
+            this.writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public void begin() throws IOException {
+            writer.write("id,username,email,phoneNumber,createdAt,updatedAt\n");
+        }
+
+        @Override
+        public void write(MemberProfileResponse profile) throws IOException {
+            writer.write(String.valueOf(profile.getId()));
+            writer.write(',');
+            writer.write(escape(profile.getUsername()));
+            writer.write(',');
+            writer.write(escape(profile.getEmail()));
+            writer.write(',');
+            writer.write(escape(profile.getPhoneNumber()));
+            writer.write(',');
+            writer.write(profile.getCreatedAt() != null ? profile.getCreatedAt().toInstant().toString() : "");
+            writer.write(',');
+            writer.write(profile.getUpdatedAt() != null ? profile.getUpdatedAt().toInstant().toString() : "");
+            writer.write('\n');
+        }
+
+        @Override
+        public void flush() throws IOException {
+            writer.flush();
+        }
+
+        @Override
+        public void end() throws IOException {
+            writer.flush();
+        }
+
+        private static String escape(String value) {
+            if (value == null) {
+                return "";
+            }
+            // 以 = + - @ (或 tab、CR) 開頭的值會被試算表當作公式執行；用戶名等欄位由會員自行輸入，加上 ' 前綴使其成為文字
+            if (!value.isEmpty() && "=+-@\t\r".indexOf(value.charAt(0)) >= 0) {
+                value = "'" + value;
+            }
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+                return value;
+            }
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+    }
+}
@@ -0,0 +1,432 @@
+package com.yuwenwww.membermanagement.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yuwenwww.membermanagement.dto.ImportReport;
+import com.yuwenwww.membermanagement.dto.RegisterRequest;
+import com.yuwenwww.membermanagement.entity.Member;
+import com.yuwenwww.membermanagement.repository.MemberJdbcRepository;
+import com.yuwenwww.membermanagement.repository.MemberRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 大量會員匯入 (NDJSON 或 CSV)。
+ * 以串流方式逐塊讀取輸入；每一塊的密碼雜湊與 PII 加密在平行執行緒池上完成，
+ * 再以 JDBC batch 在單一交易中寫入。批次失敗時退回逐筆插入以找出錯誤的資料列，
+ * 單筆錯誤只會記錄在報告中，不會中止整個匯入。
+ * 會員 ID 由 SnowflakeIdGenerator 在匯入端產生；設定分片時每一塊依分片分組，各分片各自一個交易寫入。
+ */
+@Service
+public class MemberImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(MemberImportService.class);
+
+    public enum Format { NDJSON, CSV }
+
+    @Autowired
+    private MemberJdbcRepository memberJdbcRepository;
+
+    @Autowired
+    private MemberRepository memberRepository;
+
+    @Autowired
+    private BoundedPasswordEncoder passwordEncoder;
+
+    @Autowired
+    private PiiEncryptionService piiEncryptionService;
+
+    @Autowired
+    private UsernameBloomFilter usernameBloomFilter;
+
+    @Autowired
+    private BlindIndexService blindIndexService;
+
+    @Autowired
+    private MemberShardRouter memberShardRouter;
+
+    @Autowired
+    private SnowflakeIdGenerator snowflakeIdGenerator;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${member.import.batch-size:500}")
+    private int batchSize;
+
+    @Value("${member.import.parallelism:0}")
+    private int parallelism;
+
+    @Value("${member.import.max-reported-errors:1000}")
+    private int maxReportedErrors;
+
+    private ExecutorService executor;
+    private TransactionTemplate transactionTemplate;
+    private volatile ImportReport lastReport;
+
+    @PostConstruct
+    void init() {
+        // 預設只使用一半的 CPU，保留給線上請求
+        int threads = parallelism > 0 ? parallelism : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        executor = Executors.newFixedThreadPool(threads, new CustomizableThreadFactory("member-import-"));
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 匯入會員。
+     * @param input 請求內容串流
+     * @param format 輸入格式
+     * @param piiKeyLabel 用於加密 PII 的金鑰標籤
+     * @return 匯入報告 (筆數、吞吐量與逐筆錯誤)
+     */
+    public ImportReport importMembers(InputStream input, Format format, String piiKeyLabel) throws IOException {
+        long startedAt = System.nanoTime();
+        ImportReport report = new ImportReport();
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            RowReader rows = format == Format.CSV ? new CsvRowReader(reader) : new NdjsonRowReader(reader);
+            List<ImportRow> chunk = new ArrayList<>(batchSize);
+            ImportRow row;
+            while ((row = rows.next()) != null) {
+                chunk.add(row);
+                if (chunk.size() == batchSize) {
+                    importChunk(chunk, piiKeyLabel, report);
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                importChunk(chunk, piiKeyLabel, report);
+            }
+        }
+
+        long elapsedNanos = System.nanoTime() - startedAt;
+        report.setElapsedMillis(elapsedNanos / 1_000_000);
+        report.setRowsPerSecond(elapsedNanos == 0 ? 0 : report.getImportedRows() * 1_000_000_000.0 / elapsedNanos);
+        lastReport = report;
+        log.info("Member import finished: {} rows, {} imported, {} failed in {} ms ({} rows/s)",
+                report.getTotalRows(), report.getImportedRows(), report.getFailedRows(),
+                report.getElapsedMillis(), String.format("%.1f", report.getRowsPerSecond()));
+        return report;
+    }
+
+    /**
+     * @return 最近一次匯入的報告，尚未匯入過時為 null
+     */
+    public ImportReport getLastReport() {
+        return lastReport;
+    }
+
+    private void importChunk(List<ImportRow> chunk, String piiKeyLabel, ImportReport report) {
+        report.setTotalRows(report.getTotalRows() + chunk.size());
+
+        // 1. 解析與驗證錯誤、同一塊內重複的用戶名/email、已存在的用戶名
+        List<ImportRow> candidateRows = new ArrayList<>(chunk.size());
+        List<byte[]> candidateEmailBidxes = new ArrayList<>(chunk.size()); // 與 candidateRows 一一對應
+        Set<String> seenUsernames = new HashSet<>();
+        Set<ByteBuffer> seenEmails = new HashSet<>();
+        for (ImportRow row : chunk) {
+            String error = validate(row);
+            if (error == null && !seenUsernames.add(row.request().getUsername())) {
+                error = "Duplicate username in import";
+            }
+            if (error == null && usernameBloomFilter.mightContain(row.request().getUsername()) && usernameExists(row.request().getUsername())) {
+                error = "Username already exists: " + row.request().getUsername();
+            }
+            byte[] emailBidx = null;
+            if (error == null) {
+                emailBidx = blindIndexService.emailIndex(row.request().getEmail());
+                if (emailBidx != null && !seenEmails.add(ByteBuffer.wrap(emailBidx))) {
+                    error = "Duplicate email in import";
+                }
+            }
+            if (error != null) {
+                recordError(report, row, error);
+            } else {
+                candidateRows.add(row);
+                candidateEmailBidxes.add(emailBidx);
+            }
+        }
+
+        // 1.1 已註冊的 email：整塊只執行一次盲索引 IN 查詢
+        Set<ByteBuffer> existingEmails = new HashSet<>();
+        if (!seenEmails.isEmpty()) {
+            List<byte[]> emailBidxes = seenEmails.stream().map(ByteBuffer::array).toList();
+            for (List<byte[]> shardExisting : memberShardRouter.onEachShard(shard -> memberRepository.findExistingEmailBidxes(emailBidxes))) {
+                for (byte[] existing : shardExisting) {
+                    existingEmails.add(ByteBuffer.wrap(existing));
+                }
+            }
+        }
+        List<ImportRow> validRows = new ArrayList<>(candidateRows.size());
+        List<byte[]> validEmailBidxes = new ArrayList<>(candidateRows.size());
+        for (int i = 0; i < candidateRows.size(); i++) {
+            byte[] emailBidx = candidateEmailBidxes.get(i);
+            if (emailBidx != null && existingEmails.contains(ByteBuffer.wrap(emailBidx))) {
+                recordError(report, candidateRows.get(i), "Email already registered");
+            } else {
+                validRows.add(candidateRows.get(i));
+                validEmailBidxes.add(emailBidx);
+            }
+        }
+
+        // 2. 平行雜湊密碼並加密 PII
+        List<Future<Member>> futures = new ArrayList<>(validRows.size());
+        for (int i = 0; i < validRows.size(); i++) {
+            RegisterRequest request = validRows.get(i).request();
+            byte[] emailBidx = validEmailBidxes.get(i);
+            futures.add(executor.submit(() -> toMember(request, emailBidx, piiKeyLabel)));
+        }
+        List<Member> members = new ArrayList<>(validRows.size());
+        List<ImportRow> memberRows = new ArrayList<>(validRows.size()); // 與 members 一一對應
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                members.add(futures.get(i).get());
+                memberRows.add(validRows.get(i));
+            } catch (ExecutionException e) {
+                recordError(report, validRows.get(i), "Failed to prepare member: " + e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Import interrupted", e);
+            }
+        }
+
+        // 3. 依分片批次寫入；失敗時逐筆寫入以找出錯誤的資料列
+        List<Integer> indexes = new ArrayList<>(members.size());
+        for (int i = 0; i < members.size(); i++) {
+            indexes.add(i);
+        }
+        memberShardRouter.groupByShard(indexes, i -> members.get(i).getId()).forEach((shard, shardIndexes) ->
+                memberShardRouter.runOnShard(shard, () -> insertShard(shardIndexes, members, memberRows, report)));
+    }
+
+    private void insertShard(List<Integer> indexes, List<Member> members, List<ImportRow> memberRows, ImportReport report) {
+        List<Member> shardMembers = indexes.stream().map(members::get).toList();
+        try {
+            transactionTemplate.executeWithoutResult(status -> memberJdbcRepository.batchInsert(shardMembers));
+            onInserted(shardMembers, report);
+        } catch (DataAccessException batchFailure) {
+            for (int i : indexes) {
+                Member member = members.get(i);
+                try {
+                    transactionTemplate.executeWithoutResult(status -> memberJdbcRepository.insert(member));
+                    onInserted(List.of(member), report);
+                } catch (DataIntegrityViolationException e) {
+                    recordError(report, memberRows.get(i), MemberJdbcRepository.isDuplicateUsername(e)
+                            ? "Username already exists: " + member.getUsername()
+                            : "Insert failed: " + e.getMostSpecificCause().getMessage());
+                } catch (DataAccessException e) {
+                    recordError(report, memberRows.get(i), "Insert failed: " + e.getMostSpecificCause().getMessage());
+                }
+            }
+        }
+    }
+
+    private boolean usernameExists(String username) {
+        return memberShardRouter.onShard(memberShardRouter.shardForUsername(username), () -> memberRepository.existsByUsername(username));
+    }
+
+    private Member toMember(RegisterRequest request, byte[] emailBidx, String piiKeyLabel) throws Exception {
+        Member member = new Member();
+        member.setId(snowflakeIdGenerator.nextId(memberShardRouter.shardForUsername(request.getUsername())));
+        member.setUsername(request.getUsername());
+        // 直接使用底層編碼器：匯入有自己的執行緒池，不佔用線上請求的雜湊佇列
+        member.setPassword(passwordEncoder.getDelegate().encode(request.getPassword()));
+        if (request.getEmail() != null) {
+            EncryptedPii encryptedEmail = piiEncryptionService.encrypt(PiiField.EMAIL, request.getEmail().getBytes(StandardCharsets.UTF_8), piiKeyLabel);
+            member.setEmail(encryptedEmail.data());
+            member.setEmailIv(encryptedEmail.iv());
+        }
+        if (request.getPhoneNumber() != null) {
+            EncryptedPii encryptedPhone = piiEncryptionService.encrypt(PiiField.PHONE, request.getPhoneNumber().getBytes(StandardCharsets.UTF_8), piiKeyLabel);
+            member.setPhoneNumber(encryptedPhone.data());
+            member.setPhoneIv(encryptedPhone.iv());
+        }
+        member.setEncryptionKeyLabel(piiKeyLabel);
+        member.setEmailBidx(emailBidx);
+        member.setPhoneBidx(blindIndexService.phoneIndex(request.getPhoneNumber()));
+        return member;
+    }
+
+    private String validate(ImportRow row) {
+        if (row.parseError() != null) {
+            return row.parseError();
+        }
+        // 與註冊 API 相同的限制 (RegisterRequest)，包含用戶名不可含 '@'
+        Set<ConstraintViolation<RegisterRequest>> violations = validator.validate(row.request());
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.iterator().next().getMessage();
+    }
+
+    private void onInserted(List<Member> members, ImportReport report) {
+        for (Member member : members) {
+            usernameBloomFilter.put(member.getUsername());
+        }
+        report.setImportedRows(report.getImportedRows() + members.size());
+    }
+
+    private void recordError(ImportReport report, ImportRow row, String message) {
+        report.setFailedRows(report.getFailedRows() + 1);
+        if (report.getErrors().size() < maxReportedErrors) {
+            String username = row.request() != null ? row.request().getUsername() : null;
+            report.getErrors().add(new ImportReport.RowError(row.line(), username, message));
+        }
+    }
+
+    // --- 輸入格式解析 ---
+
+    private record ImportRow(long line, RegisterRequest request, String parseError) {
+    }
+
+    private interface RowReader {
+        ImportRow next() throws IOException;
+    }
+
+    /**
+     * 每行一個 JSON 物件，欄位與 RegisterRequest 相同；空白行會被略過。
+     */
+    private class NdjsonRowReader implements RowReader {
+        private final BufferedReader reader;
+        private long line;
+
+        NdjsonRowReader(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public ImportRow next() throws IOException {
+            String text;
+            while ((text = reader.readLine()) != null) {
+                line++;
+                if (text.isBlank()) {
+                    continue;
+                }
+                try {
+                    return new ImportRow(line, objectMapper.readValue(text, RegisterRequest.class), null);
+                } catch (JsonProcessingException e) {
+                    return new ImportRow(line, null, "Invalid JSON: " + e.getOriginalMessage());
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * 第一行為標頭 (username,password,email,phoneNumber，順序不限)，每筆資料一行；
+     * 支援以雙引號包住含逗號的欄位，欄位內的雙引號以 "" 表示。
+     */
+    private static class CsvRowReader implements RowReader {
+        private final BufferedReader reader;
+        private final Map<String, Integer> columns = new HashMap<>();
+        private long line;
+
+        CsvRowReader(BufferedReader reader) throws IOException {
+            this.reader = reader;
+            String header = reader.readLine();
+            line++;
+            if (header == null) {
+                return;
+            }
+            List<String> names = parseLine(header.startsWith("\uFEFF") ? header.substring(1) : header);
+            for (int i = 0; i < names.size(); i++) {
+                columns.put(names.get(i).trim().replace("_", "").toLowerCase(), i);
+            }
+        }
+
+        @Override
+        public ImportRow next() throws IOException {
+            String text;
+            while ((text = reader.readLine()) != null) {
+                line++;
+                if (text.isBlank()) {
+                    continue;
+                }
+                List<String> values = parseLine(text);
+                RegisterRequest request = new RegisterRequest();
+                request.setUsername(column(values, "username"));
+                request.setPassword(column(values, "password"));
+                request.setEmail(column(values, "email"));
+                request.setPhoneNumber(column(values, "phonenumber"));
+                return new ImportRow(line, request, null);
+            }
+            return null;
+        }
+
+        private String column(List<String> values, String name) {
+            Integer index = columns.get(name);
+            if (index == null || index >= values.size() || values.get(index).isEmpty()) {
+                return null;
+            }
+            return values.get(index);
+        }
+
+        private static List<String> parseLine(String text) {
+            List<String> values = new ArrayList<>();
+            StringBuilder current = new StringBuilder();
+            boolean quoted = false;
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (quoted) {
+                    if (c == '"' && i + 1 < text.length() && text.charAt(i + 1) == '"') {
+                        current.append('"');
+                        i++;
+                    } else if (c == '"') {
+                        quoted = false;
+                    } else {
+                        current.append(c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    values.add(current.toString());
+                    current.setLength(0);
+                } else {
+                    current.append(c);
+                }
+            }
+            values.add(current.toString());
+            return values;
+        }
+    }
+}
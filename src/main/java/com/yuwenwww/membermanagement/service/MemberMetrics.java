@@ -0,0 +1,116 @@
+package com.yuwenwww.membermanagement.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+/**
+ * 會員熱路徑的 Micrometer 度量 (經由 /actuator/prometheus 輸出)。
+ * 所有 Timer / Counter 都在建構時註冊並保存在欄位中，熱路徑上只做一次 record / increment，
+ * 不會在每次呼叫時查詢 MeterRegistry；標籤值都是固定的列舉，避免高基數。
+ * <ul>
+ *     <li>member.password.hashing{operation=hash|verify}：BCrypt 執行時間 (不含排隊)</li>
+ *     <li>member.password.hashing.queue.wait：在雜湊執行緒池排隊的時間</li>
+ *     <li>member.pii.key.load：金鑰快取未命中時查詢 key_material 與解開包裝的時間</li>
+ *     <li>member.pii.crypto{operation=encrypt|decrypt, field=email|phone}：單一欄位的加解密時間</li>
+ *     <li>member.authentications{result=success|failure, source=cache|password}：HTTP Basic 認證結果</li>
+ *     <li>member.password.rehashes：登入成功後以目前的 BCrypt cost 重新雜湊的次數</li>
+ * </ul>
+ * 快取命中率、執行緒池深度等既有統計由 MetricsConfig 以 MeterBinder 輸出；
+ * JPA repository 呼叫由 Spring Boot 的 spring.data.repository.invocations 度量涵蓋。
+ */
+@Component
+public class MemberMetrics {
+
+    private final Timer passwordHashTimer;
+    private final Timer passwordVerifyTimer;
+    private final Timer passwordQueueWaitTimer;
+    private final Timer keyLoadTimer;
+    private final Timer[] encryptTimers;
+    private final Timer[] decryptTimers;
+    private final Counter authCacheSuccess;
+    private final Counter authPasswordSuccess;
+    private final Counter authFailure;
+    private final Counter passwordRehashes;
+
+    public MemberMetrics(MeterRegistry registry) {
+        passwordHashTimer = Timer.builder("member.password.hashing").tag("operation", "hash")
+                .description("BCrypt execution time").register(registry);
+        passwordVerifyTimer = Timer.builder("member.password.hashing").tag("operation", "verify")
+                .description("BCrypt execution time").register(registry);
+        passwordQueueWaitTimer = Timer.builder("member.password.hashing.queue.wait")
+                .description("Time spent waiting for a password hashing thread").register(registry);
+        keyLoadTimer = Timer.builder("member.pii.key.load")
+                .description("Key material lookup and unwrap on a key cache miss").register(registry);
+
+        PiiField[] fields = PiiField.values();
+        encryptTimers = new Timer[fields.length];
+        decryptTimers = new Timer[fields.length];
+        for (PiiField field : fields) {
+            encryptTimers[field.ordinal()] = piiTimer(registry, "encrypt", field);
+            decryptTimers[field.ordinal()] = piiTimer(registry, "decrypt", field);
+        }
+
+        authCacheSuccess = authCounter(registry, "success", "cache");
+        authPasswordSuccess = authCounter(registry, "success", "password");
+        authFailure = authCounter(registry, "failure", "password");
+        passwordRehashes = Counter.builder("member.password.rehashes")
+                .description("Outdated password hashes replaced after a successful login").register(registry);
+    }
+
+    public Timer passwordHashTimer() {
+        return passwordHashTimer;
+    }
+
+    public Timer passwordVerifyTimer() {
+        return passwordVerifyTimer;
+    }
+
+    public Timer passwordQueueWaitTimer() {
+        return passwordQueueWaitTimer;
+    }
+
+    public Timer keyLoadTimer() {
+        return keyLoadTimer;
+    }
+
+    public Timer encryptTimer(PiiField field) {
+        return encryptTimers[field.ordinal()];
+    }
+
+    public Timer decryptTimer(PiiField field) {
+        return decryptTimers[field.ordinal()];
+    }
+
+    /**
+     * @param fromCache true 表示由認證快取通過 (未執行 BCrypt)
+     */
+    public void authenticationSucceeded(boolean fromCache) {
+        (fromCache ? authCacheSuccess : authPasswordSuccess).increment();
+    }
+
+    public void authenticationFailed() {
+        authFailure.increment();
+    }
+
+    public void passwordRehashed() {
+        passwordRehashes.increment();
+    }
+
+    private static Timer piiTimer(MeterRegistry registry, String operation, PiiField field) {
+        return Timer.builder("member.pii.crypto")
+                .tag("operation", operation)
+                .tag("field", field.tagValue())
+                .description("PII field encryption / decryption time")
+                .register(registry);
+    }
+
+    private static Counter authCounter(MeterRegistry registry, String result, String source) {
+        return Counter.builder("member.authentications")
+                .tag("result", result)
+                .tag("source", source)
+                .description("HTTP Basic authentication attempts")
+                .register(registry);
+    }
+}
@@ -0,0 +1,304 @@
+package com.yuwenwww.membermanagement.service;
+
+import com.yuwenwww.membermanagement.dto.MemberProfileResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 解密後會員資料的讀取快取 (可選，member.profile-cache.enabled)。
+ * 以會員 ID 為鍵，具有筆數上限與 TTL。查詢項目不經過全域鎖 (ConcurrentHashMap)，命中時更新項目的最後存取時間。
+ * 超過上限時以近似 LRU 淘汰：由一個執行緒一次移除最久未存取的一批項目 (約上限的 10%)，攤銷到每次寫入的成本很低。
+ * <p>
+ * email/phone 以 byte[] 保存而非 String，項目被淘汰、過期、覆寫或明確失效時立即清零，
+ * 解密後的 PII 不會在快取的整個 TTL 內以無法清除的 String 留在堆積中；只在組成回應時才轉為 String。
+ * 轉換與清零以會員 ID 分條的鎖互斥，讀取不會拿到清零到一半的值。
+ * <p>
+ * 會員資料更新或刪除時必須呼叫 evict。失效只作用於本實例：多實例部署時，其他實例在 TTL 內仍會回應舊的會員資料。
+ */
+@Component
+public class MemberProfileCache {
+
+    private static final int WIPE_LOCK_STRIPES = 64;
+
+    @Value("${member.profile-cache.enabled:false}")
+    private boolean enabled;
+
+    @Value("${member.profile-cache.max-entries:10000}")
+    private int maxEntries;
+
+    @Value("${member.profile-cache.ttl:PT5M}")
+    private Duration ttl;
+
+    private final ConcurrentHashMap<Long, CachedProfile> profiles = new ConcurrentHashMap<>();
+    // 只序列化超量淘汰；其他執行緒發現已有人在淘汰時直接返回，不等待
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    // 依會員 ID 分條，保護 byte[] 的轉換與清零 (不同會員之間不互相等待)
+    private final ReentrantLock[] wipeLocks = new ReentrantLock[WIPE_LOCK_STRIPES];
+    // 每次失效都遞增；載入前後序號不同時不寫入快取，避免並發更新後寫回舊資料
+    private final AtomicLong invalidationSequence = new AtomicLong();
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder sizeEvictionCount = new LongAdder();
+    private final LongAdder expiredEvictionCount = new LongAdder();
+    private final LongAdder explicitEvictionCount = new LongAdder();
+
+    public MemberProfileCache() {
+        for (int i = 0; i < WIPE_LOCK_STRIPES; i++) {
+            wipeLocks[i] = new ReentrantLock();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @param id 會員 ID
+     * @return 快取中的會員資料，未命中或已過期時為空
+     */
+    public Optional<MemberProfileResponse> get(Long id) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        CachedProfile cached = profiles.get(id);
+        if (cached == null) {
+            missCount.increment();
+            return Optional.empty();
+        }
+        long now = System.nanoTime();
+        if (cached.isExpired(now)) {
+            if (profiles.remove(id, cached)) {
+                wipe(cached);
+                expiredEvictionCount.increment();
+            }
+            missCount.increment();
+            return Optional.empty();
+        }
+        MemberProfileResponse response;
+        ReentrantLock lock = wipeLock(id);
+        lock.lock();
+        try {
+            response = cached.wiped ? null : cached.toResponse(); // 已被其他執行緒移除並清零時視為未命中
+        } finally {
+            lock.unlock();
+        }
+        if (response == null) {
+            missCount.increment();
+            return Optional.empty();
+        }
+        cached.lastAccessNanos = now;
+        hitCount.increment();
+        return Optional.of(response);
+    }
+
+    /**
+     * 在從資料庫載入之前呼叫，取得目前的失效序號。
+     * @return 傳給 put 的序號
+     */
+    public long beginLoad() {
+        return invalidationSequence.get();
+    }
+
+    /**
+     * 寫入一筆從資料庫載入並解密的會員資料。
+     * @param profile 會員資料
+     * @param loadSequence 載入前由 beginLoad 取得的序號；期間若有失效則不寫入
+     */
+    public void put(MemberProfileResponse profile, long loadSequence) {
+        if (!enabled || invalidationSequence.get() != loadSequence) {
+            return;
+        }
+        long now = System.nanoTime();
+        CachedProfile entry = new CachedProfile(profile, now, now + ttl.toNanos());
+        CachedProfile previous = profiles.put(profile.getId(), entry);
+        if (previous != null) {
+            wipe(previous);
+        }
+        // 寫入後再檢查一次：evict 先遞增序號再移除，若序號在寫入前後改變，寫入的可能是舊資料
+        if (invalidationSequence.get() != loadSequence) {
+            if (profiles.remove(profile.getId(), entry)) {
+                wipe(entry);
+            }
+            return;
+        }
+        if (profiles.size() > maxEntries) {
+            evictOverflow(now);
+        }
+    }
+
+    /**
+     * 使單一會員的快取失效 (會員資料更新或刪除時呼叫)。
+     * @param id 會員 ID
+     */
+    public void evict(Long id) {
+        invalidationSequence.incrementAndGet();
+        CachedProfile removed = profiles.remove(id);
+        if (removed != null) {
+            wipe(removed);
+            explicitEvictionCount.increment();
+        }
+    }
+
+    /**
+     * 清空整個快取並清零所有 PII。
+     */
+    public void clear() {
+        invalidationSequence.incrementAndGet();
+        for (Map.Entry<Long, CachedProfile> entry : profiles.entrySet()) {
+            if (profiles.remove(entry.getKey(), entry.getValue())) {
+                wipe(entry.getValue());
+                explicitEvictionCount.increment();
+            }
+        }
+    }
+
+    public int size() {
+        return profiles.size();
+    }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    public double getHitRate() {
+        long hits = hitCount.sum();
+        long total = hits + missCount.sum();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    public long getSizeEvictionCount() {
+        return sizeEvictionCount.sum();
+    }
+
+    public long getExpiredEvictionCount() {
+        return expiredEvictionCount.sum();
+    }
+
+    public long getExplicitEvictionCount() {
+        return explicitEvictionCount.sum();
+    }
+
+    // 移除已過期的項目，仍超過上限時依最後存取時間移除最舊的一批，使筆數降到上限的 90%
+    private void evictOverflow(long now) {
+        if (!evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            List<AccessSnapshot> live = new ArrayList<>(profiles.size());
+            for (Map.Entry<Long, CachedProfile> entry : profiles.entrySet()) {
+                CachedProfile profile = entry.getValue();
+                if (profile.isExpired(now)) {
+                    if (profiles.remove(entry.getKey(), profile)) {
+                        wipe(profile);
+                        expiredEvictionCount.increment();
+                    }
+                } else {
+                    // 先取存取時間的快照再排序，排序期間的並發存取不會破壞比較的一致性
+                    live.add(new AccessSnapshot(entry.getKey(), profile, profile.lastAccessNanos - now));
+                }
+            }
+            int excess = live.size() - (maxEntries - maxEntries / 10);
+            if (excess <= 0) {
+                return;
+            }
+            live.sort(Comparator.comparingLong(AccessSnapshot::lastAccessAge));
+            for (int i = 0; i < excess; i++) {
+                AccessSnapshot eldest = live.get(i);
+                if (profiles.remove(eldest.id(), eldest.profile())) {
+                    wipe(eldest.profile());
+                    sizeEvictionCount.increment();
+                }
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    // 只對已從 profiles 移除的項目呼叫
+    private void wipe(CachedProfile profile) {
+        ReentrantLock lock = wipeLock(profile.id);
+        lock.lock();
+        try {
+            profile.wipe();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ReentrantLock wipeLock(Long id) {
+        return wipeLocks[Long.hashCode(id * 0x9E3779B97F4A7C15L) >>> 1 & (WIPE_LOCK_STRIPES - 1)];
+    }
+
+    private record AccessSnapshot(Long id, CachedProfile profile, long lastAccessAge) {
+    }
+
+    private static final class CachedProfile {
+        private final Long id;
+        private final String username;
+        private final byte[] email;
+        private final byte[] phoneNumber;
+        private final Timestamp createdAt;
+        private final Timestamp updatedAt;
+        private final long expiresAtNanos;
+        private volatile long lastAccessNanos; // 近似 LRU 的排序依據，並發更新時任一值皆可
+        private boolean wiped; // 由 wipeLock 保護
+
+        CachedProfile(MemberProfileResponse profile, long now, long expiresAtNanos) {
+            this.id = profile.getId();
+            this.username = profile.getUsername();
+            this.email = toBytes(profile.getEmail());
+            this.phoneNumber = toBytes(profile.getPhoneNumber());
+            this.createdAt = profile.getCreatedAt();
+            this.updatedAt = profile.getUpdatedAt();
+            this.expiresAtNanos = expiresAtNanos;
+            this.lastAccessNanos = now;
+        }
+
+        boolean isExpired(long now) {
+            return now - expiresAtNanos >= 0;
+        }
+
+        // 呼叫端需持有 wipeLock；回應中的 String 只存活到回應送出
+        MemberProfileResponse toResponse() {
+            return new MemberProfileResponse(id, username, toString(email), toString(phoneNumber), createdAt, updatedAt);
+        }
+
+        // 呼叫端需持有 wipeLock
+        void wipe() {
+            if (email != null) {
+                Arrays.fill(email, (byte) 0);
+            }
+            if (phoneNumber != null) {
+                Arrays.fill(phoneNumber, (byte) 0);
+            }
+            wiped = true;
+        }
+
+        private static byte[] toBytes(String value) {
+            return value != null ? value.getBytes(StandardCharsets.UTF_8) : null;
+        }
+
+        private static String toString(byte[] value) {
+            return value != null ? new String(value, StandardCharsets.UTF_8) : null;
+        }
+    }
+}
@@ -1,27 +1,42 @@
 package com.yuwenwww.membermanagement.service;
 
+import com.yuwenwww.membermanagement.dto.MemberProfileResponse;
+import com.yuwenwww.membermanagement.dto.MemberUpdateRequest;
 import com.yuwenwww.membermanagement.entity.Member;
-import com.yuwenwww.membermanagement.entity.KeyMaterial; // 引入 KeyMaterial
+import com.yuwenwww.membermanagement.repository.MemberJdbcRepository;
+import com.yuwenwww.membermanagement.repository.MemberProfileView;
 import com.yuwenwww.membermanagement.repository.MemberRepository;
-import com.yuwenwww.membermanagement.repository.KeyMaterialRepository; // 引入 KeyMaterialRepository
 
-import org.bouncycastle.jce.provider.BouncyCastleProvider; // 引入 Bouncy Castle
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.crypto.password.PasswordEncoder; // 引入 PasswordEncoder
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional; // 引入 Transactional
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
-import javax.crypto.Cipher;
-import javax.crypto.SecretKey;
-import javax.crypto.spec.IvParameterSpec;
-import javax.crypto.spec.SecretKeySpec;
-import java.security.SecureRandom;
-import java.security.Security;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class MemberService {
 
+    private static final Logger log = LoggerFactory.getLogger(MemberService.class);
+
+    // 批次查詢的資料列數達到此值時才平行解密，少量資料列的執行緒切換成本高於解密本身
+    private static final int PARALLEL_DECRYPT_THRESHOLD = 64;
+
     @Autowired
     private MemberRepository memberRepository;
 
@@ -29,57 +44,78 @@ public class MemberService {
     private PasswordEncoder passwordEncoder; // Spring Security 的密碼編碼器
 
     @Autowired
-    private KeyMaterialRepository keyMaterialRepository; // 用於管理加密 PII 的金鑰
+    private PiiEncryptionService piiEncryptionService; // PII 欄位加解密 (新舊密文格式)
 
-    private static final String AES_ALGORITHM = "AES";
-    private static final String AES_TRANSFORMATION = "AES/CBC/PKCS5Padding";
+    @Autowired
+    private UsernameBloomFilter usernameBloomFilter; // 已註冊用戶名的快速否定檢查
 
-    // 靜態區塊，用於在類別載入時註冊 Bouncy Castle Provider
-    static {
-        if (Security.getProvider("BC") == null) {
-            Security.addProvider(new BouncyCastleProvider());
-            System.out.println("Bouncy Castle Provider registered for MemberService.");
-        }
-    }
+    @Autowired
+    private MemberProfileCache memberProfileCache; // 解密後會員資料的讀取快取 (可選)
+
+    @Autowired
+    private BlindIndexService blindIndexService; // email / 電話的盲索引
+
+    @Autowired
+    private MemberJdbcRepository memberJdbcRepository; // 登入後的密碼重新雜湊
+
+    @Autowired
+    private MemberMetrics memberMetrics;
+
+    @Autowired
+    private AuthenticatedCredentialCache credentialCache; // 密碼、email 變更或刪除時失效
+
+    @Autowired
+    private ReadYourWritesTracker readYourWritesTracker; // 剛寫入的會員改從主庫讀取 (設定讀取副本時)
+
+    @Autowired
+    private MemberShardRouter memberShardRouter; // 會員所在的分片 (未設定分片時一律為分片 0)
 
     /**
      * 註冊新會員。
-     * 密碼會被雜湊，敏感資訊（email, phone）會被加密。
+     * 密碼會被雜湊，敏感資訊（email, phone）會被加密，並計算可供查詢的盲索引。
+     * 會員寫入用戶名雜湊決定的分片，ID 在 INSERT 前由 @SnowflakeId 產生並帶有該分片編號。
      * @param member 要註冊的會員資訊
      * @param piiKeyLabel 用於加密個人身份資訊的金鑰標籤
      * @return 註冊成功的會員實體
-     * @throws RuntimeException 如果用戶名已存在或加密失敗
+     * @throws RuntimeException 如果用戶名或 email 已存在，或加密失敗
      */
     @Transactional
     public Member registerNewMember(Member member, String piiKeyLabel) {
-        if (memberRepository.findByUsername(member.getUsername()).isPresent()) {
+        int shard = memberShardRouter.shardForUsername(member.getUsername());
+        return memberShardRouter.onShard(shard, () -> register(member, piiKeyLabel));
+    }
+
+    private Member register(Member member, String piiKeyLabel) {
+        // 0. 用戶名可能已被使用時才查詢資料庫，避免為明顯重複的用戶名執行 BCrypt 與加密；
+        //    最終的唯一性由 members.username 的唯一約束在 INSERT 時保證
+        if (usernameBloomFilter.mightContain(member.getUsername()) && memberRepository.existsByUsername(member.getUsername())) {
             throw new RuntimeException("Username already exists: " + member.getUsername());
         }
 
+        // 0.1 盲索引在加密前以明文計算；email 重複時只需一次索引查詢，不必解密整張表
+        member.setEmailBidx(blindIndexService.emailIndex(bytesToString(member.getEmail())));
+        member.setPhoneBidx(blindIndexService.phoneIndex(bytesToString(member.getPhoneNumber())));
+        if (member.getEmailBidx() != null && isEmailRegistered(member.getEmailBidx())) {
+            throw new RuntimeException("Email already registered");
+        }
+
         // 1. 雜湊密碼
         member.setPassword(passwordEncoder.encode(member.getPassword()));
 
         // 2. 加密敏感個人資訊 (PII)
         try {
-            KeyMaterial piiKeyMaterial = keyMaterialRepository.findByKeyLabel(piiKeyLabel)
-                    .orElseThrow(() -> new RuntimeException("PII encryption key not found: " + piiKeyLabel));
-
-            SecretKey piiSecretKey = new SecretKeySpec(piiKeyMaterial.getKeyValue(), AES_ALGORITHM);
-
             // 加密 Email
             if (member.getEmail() != null) {
-                IvParameterSpec emailIv = generateIv();
-                byte[] encryptedEmail = encrypt(new String(member.getEmail(), "UTF-8"), piiSecretKey, emailIv);
-                member.setEmail(encryptedEmail);
-                member.setEmailIv(emailIv.getIV());
+                EncryptedPii encryptedEmail = piiEncryptionService.encrypt(PiiField.EMAIL, member.getEmail(), piiKeyLabel);
+                member.setEmail(encryptedEmail.data());
+                member.setEmailIv(encryptedEmail.iv()); // 自描述格式 (AES-GCM) 不需要額外的 IV 欄位
             }
 
             // 加密 Phone Number
             if (member.getPhoneNumber() != null) {
-                IvParameterSpec phoneIv = generateIv();
-                byte[] encryptedPhone = encrypt(new String(member.getPhoneNumber(), "UTF-8"), piiSecretKey, phoneIv);
-                member.setPhoneNumber(encryptedPhone);
-                member.setPhoneIv(phoneIv.getIV());
+                EncryptedPii encryptedPhone = piiEncryptionService.encrypt(PiiField.PHONE, member.getPhoneNumber(), piiKeyLabel);
+                member.setPhoneNumber(encryptedPhone.data());
+                member.setPhoneIv(encryptedPhone.iv());
             }
             member.setEncryptionKeyLabel(piiKeyLabel); // 設定使用的金鑰標籤
 
@@ -87,7 +123,19 @@ public class MemberService {
             throw new RuntimeException("Failed to encrypt PII: " + e.getMessage(), e);
         }
 
-        return memberRepository.save(member);
+        Member savedMember;
+        try {
+            savedMember = memberRepository.saveAndFlush(member);
+        } catch (DataIntegrityViolationException e) {
+            // 並發註冊同一用戶名時，由唯一約束擋下；其他完整性錯誤 (例如欄位長度) 照原樣拋出
+            if (MemberJdbcRepository.isDuplicateUsername(e)) {
+                throw new RuntimeException("Username already exists: " + member.getUsername(), e);
+            }
+            throw e;
+        }
+        usernameBloomFilter.put(savedMember.getUsername());
+        afterCommit(() -> recordWrite(savedMember));
+        return savedMember;
     }
 
     /**
@@ -97,65 +145,345 @@ public class MemberService {
      * @return 如果驗證成功返回 Member，否則返回 Optional.empty()
      */
     public Optional<Member> validateMember(String username, String rawPassword) {
-        return memberRepository.findByUsername(username)
+        Optional<Member> validated = findByUsername(username)
                 .filter(member -> passwordEncoder.matches(rawPassword, member.getPassword()));
+        validated.ifPresent(member -> rehashIfOutdated(member, rawPassword));
+        return validated;
+    }
+
+    private void rehashIfOutdated(Member member, String rawPassword) {
+        rehashPasswordIfOutdated(member.getUsername(), member.getPassword(), rawPassword).ifPresent(member::setPassword);
     }
 
     /**
-     * 根據 ID 查找會員並解密其敏感資訊。
+     * 驗證成功後才知道原始密碼，舊格式或 cost 過低的雜湊在此時以目前設定重新雜湊 (HTTP Basic 登入由 CachingAuthenticationProvider 呼叫)。
+     * 只在舊雜湊未被並行的登入或密碼變更改寫時才更新；重新雜湊失敗 (例如雜湊池滿或資料庫錯誤) 不影響這次登入，下次登入會再嘗試。
+     * @param username 用戶名
+     * @param currentHash 驗證時使用的雜湊
+     * @param rawPassword 已驗證的原始密碼
+     * @return 寫入的新雜湊；不需升級或沒有更新時為 Optional.empty()
+     */
+    public Optional<String> rehashPasswordIfOutdated(String username, String currentHash, String rawPassword) {
+        if (!passwordEncoder.upgradeEncoding(currentHash)) {
+            return Optional.empty();
+        }
+        try {
+            String newHash = passwordEncoder.encode(rawPassword);
+            if (memberShardRouter.onShard(memberShardRouter.shardForUsername(username),
+                    () -> memberJdbcRepository.updatePasswordHash(username, currentHash, newHash))) {
+                memberMetrics.passwordRehashed();
+                return Optional.of(newHash);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to rehash password for member {}: {}", username, e.getMessage());
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * 在用戶名所在的分片上查詢會員 (設定讀取副本時走副本；剛寫入的會員在 read-your-writes 視窗內走主庫)。
+     * @param username 用戶名
+     * @return 會員實體
+     */
+    public Optional<Member> findByUsername(String username) {
+        return memberShardRouter.onShard(memberShardRouter.shardForUsername(username), () ->
+                readYourWritesTracker.readFromPrimaryIfRecent(ReadYourWritesTracker.usernameKey(username),
+                        () -> memberRepository.findByUsername(username)));
+    }
+
+    /**
+     * 在所有分片上依 email 盲索引查詢會員。
+     * @param emailBidx email 盲索引
+     * @return 符合的會員實體
+     */
+    public List<Member> findByEmailBidx(byte[] emailBidx) {
+        return memberShardRouter.onEachShard(shard -> memberRepository.findByEmailBidx(emailBidx))
+                .stream().flatMap(List::stream).toList();
+    }
+
+    // email 的唯一性只是盡力而為：email_bidx 沒有唯一約束 (盲索引只在各分片內有索引)，需檢查所有分片，
+    // 而「先檢查再寫入」之間並發註冊或更新同一 email 仍可能同時成功；此時該 email 無法用於登入 (見 SecurityConfig)
+    private boolean isEmailRegistered(byte[] emailBidx) {
+        return memberShardRouter.onEachShard(shard -> memberRepository.existsByEmailBidx(emailBidx)).contains(Boolean.TRUE);
+    }
+
+    /**
+     * 根據 ID 從資料庫載入會員資料並解密其敏感資訊 (不經會員資料快取)。
+     * 只查詢資料投影，不載入受管理的實體，解密後的明文只存在於回傳的 DTO。
      * @param id 會員 ID
-     * @return 解密後的會員實體
+     * @return 會員資料 DTO
      * @throws RuntimeException 如果會員未找到或解密失敗
      */
-    public Member getMemberByIdAndDecryptPii(Long id) {
-        Member member = memberRepository.findById(id)
+    public MemberProfileResponse loadMemberProfile(Long id) {
+        if (!memberShardRouter.hasShardFor(id)) {
+            throw new RuntimeException("Member not found with ID: " + id);
+        }
+        MemberProfileView view = memberShardRouter.onShard(memberShardRouter.shardForId(id), () ->
+                        readYourWritesTracker.readFromPrimaryIfRecent(ReadYourWritesTracker.memberKey(id), () -> memberRepository.findProfileById(id)))
                 .orElseThrow(() -> new RuntimeException("Member not found with ID: " + id));
+        return toProfileResponse(view);
+    }
 
-        // 解密敏感個人資訊
-        try {
-            if (member.getEncryptionKeyLabel() != null) {
-                KeyMaterial piiKeyMaterial = keyMaterialRepository.findByKeyLabel(member.getEncryptionKeyLabel())
-                        .orElseThrow(() -> new RuntimeException("PII decryption key not found: " + member.getEncryptionKeyLabel()));
+    /**
+     * 根據 ID 獲取解密後的會員資料，優先從會員資料快取讀取。
+     * @param id 會員 ID
+     * @return 會員資料 DTO
+     * @throws RuntimeException 如果會員未找到或解密失敗
+     */
+    public MemberProfileResponse getMemberProfile(Long id) {
+        Optional<MemberProfileResponse> cached = memberProfileCache.get(id);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+        long loadSequence = memberProfileCache.beginLoad();
+        MemberProfileResponse profile = loadMemberProfile(id);
+        memberProfileCache.put(profile, loadSequence);
+        return profile;
+    }
+
+    /**
+     * 批次查詢多位會員並解密其敏感資訊。
+     * 每個分片只執行一次 IN 查詢 (各分片平行)；資料列較多時以平行方式解密。找不到的 ID 會被略過。
+     * @param ids 會員 ID 列表
+     * @return 依請求順序排列的會員資料 DTO
+     * @throws RuntimeException 如果解密失敗
+     */
+    public List<MemberProfileResponse> getMemberProfiles(List<Long> ids) {
+        Map<Integer, List<Long>> idsByShard = memberShardRouter.groupByShard(
+                new LinkedHashSet<>(ids).stream().filter(memberShardRouter::hasShardFor).toList(), Long::longValue);
+        List<MemberProfileView> members = memberShardRouter.onEachShard(shard -> {
+            List<Long> shardIds = idsByShard.get(shard);
+            return shardIds == null ? List.<MemberProfileView>of() : memberRepository.findProfilesByIdIn(shardIds);
+        }).stream().flatMap(List::stream).toList();
 
-                SecretKey piiSecretKey = new SecretKeySpec(piiKeyMaterial.getKeyValue(), AES_ALGORITHM);
+        // 金鑰由 PiiKeyCache 依標籤解析，同一標籤只會在第一次使用時查詢 key_material
+        Stream<MemberProfileView> rows = members.size() >= PARALLEL_DECRYPT_THRESHOLD ? members.parallelStream() : members.stream();
+        Map<Long, MemberProfileResponse> profilesById = rows
+                .map(this::toProfileResponse)
+                .collect(Collectors.toMap(MemberProfileResponse::getId, Function.identity()));
 
-                // 解密 Email
-                if (member.getEmail() != null && member.getEmailIv() != null) {
-                    IvParameterSpec emailIv = new IvParameterSpec(member.getEmailIv());
-                    byte[] decryptedEmailBytes = decrypt(member.getEmail(), piiSecretKey, emailIv);
-                    member.setEmail(decryptedEmailBytes); // 直接將 byte[] 設置回去，方便後續轉為 String
-                }
+        List<MemberProfileResponse> profiles = new ArrayList<>(profilesById.size());
+        for (Long id : ids) {
+            MemberProfileResponse profile = profilesById.get(id);
+            if (profile != null) {
+                profiles.add(profile);
+            }
+        }
+        return profiles;
+    }
 
-                // 解密 Phone Number
-                if (member.getPhoneNumber() != null && member.getPhoneIv() != null) {
-                    IvParameterSpec phoneIv = new IvParameterSpec(member.getPhoneIv());
-                    byte[] decryptedPhoneBytes = decrypt(member.getPhoneNumber(), piiSecretKey, phoneIv);
-                    member.setPhoneNumber(decryptedPhoneBytes); // 直接將 byte[] 設置回去
+    /**
+     * 依 email 查詢會員 (透過盲索引，只執行一次索引查詢)。
+     * @param email 明文 email，不分大小寫
+     * @return 符合的會員資料 DTO
+     */
+    public List<MemberProfileResponse> findProfilesByEmail(String email) {
+        byte[] emailBidx = blindIndexService.emailIndex(email);
+        if (emailBidx == null) {
+            return List.of();
+        }
+        return memberShardRouter.onEachShard(shard -> memberRepository.findProfilesByEmailBidx(emailBidx)).stream()
+                .flatMap(List::stream).map(this::toProfileResponse).toList();
+    }
+
+    /**
+     * 依電話號碼查詢會員 (透過盲索引，只執行一次索引查詢)。
+     * @param phoneNumber 明文電話號碼，分隔符號不影響比對
+     * @return 符合的會員資料 DTO
+     */
+    public List<MemberProfileResponse> findProfilesByPhone(String phoneNumber) {
+        byte[] phoneBidx = blindIndexService.phoneIndex(phoneNumber);
+        if (phoneBidx == null) {
+            return List.of();
+        }
+        return memberShardRouter.onEachShard(shard -> memberRepository.findProfilesByPhoneBidx(phoneBidx)).stream()
+                .flatMap(List::stream).map(this::toProfileResponse).toList();
+    }
+
+    /**
+     * 依 ID 分頁列出會員 (管理員列表)：平行查詢所有分片的下一頁後依 ID 合併。
+     * @param afterId 上一頁最後一筆的 ID (第一頁傳 0)
+     * @param limit 頁大小
+     * @return 依 ID 排序的會員資料 DTO
+     */
+    public List<MemberProfileResponse> listProfiles(long afterId, int limit) {
+        List<Member> page = MemberShardRouter.mergePages(
+                memberShardRouter.onEachShard(shard -> memberJdbcRepository.findPageAfter(afterId, limit)), Member::getId, limit);
+        return page.stream().map(MemberProfileView::of).map(this::toProfileResponse).toList();
+    }
+
+    /**
+     * @return 依分片編號排列的會員數
+     */
+    public List<Long> countMembersPerShard() {
+        return memberShardRouter.onEachShard(shard -> memberRepository.count());
+    }
+
+    /**
+     * 檢查目前登入的會員是否為該會員本人 (供 @PreAuthorize 使用)。
+     * 認證後的 principal 一律是資料庫中的用戶名 (以 email 登入也一樣)，因此只比對用戶名；
+     * 不可再以 email 盲索引比對，否則用戶名恰好等於他人 email 的會員會被當成該會員本人。
+     * @param id 會員 ID
+     * @param username 認證後的用戶名
+     * @return 是否為本人
+     */
+    public boolean isOwner(Long id, String username) {
+        if (!memberShardRouter.hasShardFor(id)) {
+            return false;
+        }
+        return memberShardRouter.onShard(memberShardRouter.shardForId(id), () ->
+                readYourWritesTracker.readFromPrimaryIfRecent(ReadYourWritesTracker.memberKey(id), () ->
+                        memberRepository.existsByIdAndUsername(id, username)));
+    }
+
+    /**
+     * 部分更新會員資料 (PATCH)，只處理請求中有提供的欄位。
+     * 有提供的 email / 電話才重新加密並重新計算盲索引，@DynamicUpdate 讓 UPDATE 只寫入變更的欄位；
+     * 並行更新由 @Version 樂觀鎖偵測，不持有資料列鎖，衝突時拋出 ObjectOptimisticLockingFailureException。
+     * 資料列仍使用舊金鑰時，未更新的 PII 也一併以目前金鑰重新加密，同一列不會混用兩把金鑰。
+     * @param id 會員 ID
+     * @param request 要更新的欄位
+     * @param piiKeyLabel 目前的 PII 寫入金鑰標籤
+     * @throws NoSuchElementException 如果會員不存在
+     * @throws RuntimeException 如果 email 已被其他會員使用，或加密失敗
+     */
+    @Transactional
+    public void updateMember(Long id, MemberUpdateRequest request, String piiKeyLabel) {
+        if (!memberShardRouter.hasShardFor(id)) {
+            throw new NoSuchElementException("Member not found with ID: " + id);
+        }
+        memberShardRouter.runOnShard(memberShardRouter.shardForId(id), () -> update(id, request, piiKeyLabel));
+    }
+
+    private void update(Long id, MemberUpdateRequest request, String piiKeyLabel) {
+        Member member = memberRepository.findById(id)
+                .orElseThrow(() -> new NoSuchElementException("Member not found with ID: " + id));
+        byte[] emailBidx = blindIndexService.emailIndex(request.getEmail());
+        boolean emailChanged = emailBidx != null && !Arrays.equals(emailBidx, member.getEmailBidx());
+        if (emailChanged && isEmailRegistered(emailBidx)) {
+            throw new RuntimeException("Email already registered");
+        }
+        // 舊的 email 也可作為登入帳號，變更 email 或密碼時該會員的所有認證快取項目都要失效
+        boolean invalidateCredentials = emailChanged || request.getPassword() != null;
+
+        if (request.getEmail() != null || request.getPhoneNumber() != null) {
+            try {
+                byte[] email = request.getEmail() != null ? request.getEmail().getBytes(StandardCharsets.UTF_8) : null;
+                byte[] phoneNumber = request.getPhoneNumber() != null ? request.getPhoneNumber().getBytes(StandardCharsets.UTF_8) : null;
+                String rowKeyLabel = member.getEncryptionKeyLabel();
+                if (rowKeyLabel != null && !rowKeyLabel.equals(piiKeyLabel)) {
+                    if (email == null && member.getEmail() != null) {
+                        email = piiEncryptionService.decrypt(PiiField.EMAIL, member.getEmail(), member.getEmailIv(), rowKeyLabel);
+                    }
+                    if (phoneNumber == null && member.getPhoneNumber() != null) {
+                        phoneNumber = piiEncryptionService.decrypt(PiiField.PHONE, member.getPhoneNumber(), member.getPhoneIv(), rowKeyLabel);
+                    }
+                }
+                if (email != null) {
+                    EncryptedPii encryptedEmail = piiEncryptionService.encrypt(PiiField.EMAIL, email, piiKeyLabel);
+                    member.setEmail(encryptedEmail.data());
+                    member.setEmailIv(encryptedEmail.iv());
+                }
+                if (phoneNumber != null) {
+                    EncryptedPii encryptedPhone = piiEncryptionService.encrypt(PiiField.PHONE, phoneNumber, piiKeyLabel);
+                    member.setPhoneNumber(encryptedPhone.data());
+                    member.setPhoneIv(encryptedPhone.iv());
                 }
+                member.setEncryptionKeyLabel(piiKeyLabel);
+            } catch (Exception e) {
+                throw new RuntimeException("Failed to encrypt PII: " + e.getMessage(), e);
             }
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to decrypt PII for member ID " + id + ": " + e.getMessage(), e);
+            if (request.getEmail() != null) {
+                member.setEmailBidx(emailBidx);
+            }
+            if (request.getPhoneNumber() != null) {
+                member.setPhoneBidx(blindIndexService.phoneIndex(request.getPhoneNumber()));
+            }
+        }
+        if (request.getPassword() != null) {
+            member.setPassword(passwordEncoder.encode(request.getPassword()));
+        }
+        memberRepository.saveAndFlush(member); // 在此觸發版本檢查，衝突不會延後到提交時才出現
+
+        afterCommit(() -> {
+            recordWrite(member);
+            memberProfileCache.evict(id);
+            if (invalidateCredentials) {
+                credentialCache.invalidate(member.getUsername());
+            }
+        });
+    }
+
+    /**
+     * 刪除會員。刪除同樣帶有 @Version 條件，讀取後資料列已被更新時拋出 ObjectOptimisticLockingFailureException。
+     * @param id 會員 ID
+     * @throws NoSuchElementException 如果會員不存在
+     */
+    @Transactional
+    public void deleteMember(Long id) {
+        if (!memberShardRouter.hasShardFor(id)) {
+            throw new NoSuchElementException("Member not found with ID: " + id);
         }
-        return member;
+        memberShardRouter.runOnShard(memberShardRouter.shardForId(id), () -> delete(id));
+    }
+
+    private void delete(Long id) {
+        Member member = memberRepository.findById(id)
+                .orElseThrow(() -> new NoSuchElementException("Member not found with ID: " + id));
+        memberRepository.delete(member);
+        memberRepository.flush();
+
+        // 用戶名無法從 Bloom filter 移除，之後以同一用戶名註冊只會多一次 existsByUsername 查詢
+        afterCommit(() -> {
+            recordWrite(member);
+            memberProfileCache.evict(id);
+            credentialCache.invalidate(member.getUsername());
+        });
     }
 
-    // --- 加密相關輔助方法 (可從 EncryptionService 複製過來或調整) ---
-    private IvParameterSpec generateIv() {
-        byte[] iv = new byte[16];
-        new SecureRandom().nextBytes(iv);
-        return new IvParameterSpec(iv);
+    // 讀取副本可能尚未複寫這次寫入，視窗內以 ID 或用戶名讀取此會員時改走主庫
+    private void recordWrite(Member member) {
+        readYourWritesTracker.recordWrite(ReadYourWritesTracker.memberKey(member.getId()));
+        readYourWritesTracker.recordWrite(ReadYourWritesTracker.usernameKey(member.getUsername()));
     }
 
-    private byte[] encrypt(String plainText, SecretKey secretKey, IvParameterSpec iv) throws Exception {
-        Cipher cipher = Cipher.getInstance(AES_TRANSFORMATION, "BC");
-        cipher.init(Cipher.ENCRYPT_MODE, secretKey, iv);
-        return cipher.doFinal(plainText.getBytes("UTF-8"));
+    // 提交後才使快取失效：提交前的載入讀到的仍是舊資料，失效後才載入的請求會讀到新資料；
+    // MemberProfileCache 的失效序號也會擋下失效前開始、失效後才寫入的舊資料
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
     }
 
-    private byte[] decrypt(byte[] cipherText, SecretKey secretKey, IvParameterSpec iv) throws Exception {
-        Cipher cipher = Cipher.getInstance(AES_TRANSFORMATION, "BC");
-        cipher.init(Cipher.DECRYPT_MODE, secretKey, iv);
-        return cipher.doFinal(cipherText);
+    /**
+     * 將加密狀態的會員轉為解密後的資料 DTO，不修改傳入的實體。
+     * @param member 從資料庫讀取的會員 (PII 為密文)
+     * @return 會員資料 DTO
+     */
+    private MemberProfileResponse toProfileResponse(MemberProfileView member) {
+        String email = null;
+        String phoneNumber = null;
+        try {
+            if (member.encryptionKeyLabel() != null) {
+                if (member.email() != null) {
+                    email = bytesToString(piiEncryptionService.decrypt(PiiField.EMAIL, member.email(), member.emailIv(), member.encryptionKeyLabel()));
+                }
+                if (member.phoneNumber() != null) {
+                    phoneNumber = bytesToString(piiEncryptionService.decrypt(PiiField.PHONE, member.phoneNumber(), member.phoneIv(), member.encryptionKeyLabel()));
+                }
+            }
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to decrypt PII for member ID " + member.id() + ": " + e.getMessage(), e);
+        }
+        return new MemberProfileResponse(member.id(), member.username(), email, phoneNumber,
+                member.createdAt(), member.updatedAt());
     }
 
     // 將 byte[] 轉為 String (用於顯示或處理解密後的 PII)
@@ -163,6 +491,4 @@ public class MemberService {
         if (bytes == null) return null;
         return new String(bytes, java.nio.charset.StandardCharsets.UTF_8);
     }
-
-    // 如果需要，可以添加更新會員資訊的方法，其中也需要考慮 PII 的加密
 }
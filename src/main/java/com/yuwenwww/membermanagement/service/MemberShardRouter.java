@@ -0,0 +1,272 @@
+package com.yuwenwww.membermanagement.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * 會員資料的分片路由。
+ * 會員依用戶名 (不分大小寫) 的雜湊分配到 member.sharding.additional-shard-urls 設定的分片之一，分片 0 為 spring.datasource；
+ * 會員 ID 由 SnowflakeIdGenerator 產生並帶有分片編號，因此依用戶名或依 ID 的查詢都只需存取一個分片。
+ * 其他查詢 (依 email / 電話、管理員列表、匯出等背景作業) 以 onEachShard 平行查詢所有分片後合併。
+ * <p>
+ * 分片在取得實際連線時才決定 (ShardRoutingDataSource 由 LazyConnectionDataSourceProxy 包裝)，
+ * 因此 onShard 可以在交易之內呼叫，只要交易中的第一個查詢在其中執行即可；交易一旦取得連線就不能再切換分片。
+ * 未設定額外分片時所有方法直接在目前執行緒執行，行為與未分片時相同。
+ */
+@Component
+public class MemberShardRouter {
+
+    private static final ThreadLocal<Integer> CURRENT_SHARD = new ThreadLocal<>();
+    private static final ThreadLocal<Boolean> SCATTER_WORKER = new ThreadLocal<>();
+
+    private final int shardCount;
+    private final ExecutorService scatterExecutor; // 未分片時為 null
+
+    public MemberShardRouter(@Value("${member.sharding.additional-shard-urls:}") String additionalShardUrls,
+                             @Value("${member.sharding.scatter-threads:0}") int scatterThreads) {
+        int shards = 1 + (int) Arrays.stream(additionalShardUrls.split(",")).filter(url -> !url.isBlank()).count();
+        if (shards > SnowflakeIdGenerator.MAX_SHARDS) {
+            throw new IllegalStateException("At most " + SnowflakeIdGenerator.MAX_SHARDS + " shards are supported: " + shards);
+        }
+        this.shardCount = shards;
+        this.scatterExecutor = shards == 1 ? null : Executors.newFixedThreadPool(
+                scatterThreads > 0 ? scatterThreads : shards * 4, new CustomizableThreadFactory("shard-scatter-"));
+    }
+
+    /**
+     * @return 分片數 (含分片 0)
+     */
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    public boolean isSharded() {
+        return shardCount > 1;
+    }
+
+    /**
+     * 用戶名的唯一約束只在單一分片內有效，因此以不分大小寫的用戶名計算分片，
+     * 讓 MySQL 預設定序下視為相同的用戶名落在同一分片，由同一個唯一索引擋下。
+     * @param username 用戶名
+     * @return 會員所在的分片
+     */
+    public int shardForUsername(String username) {
+        if (shardCount == 1) {
+            return 0;
+        }
+        int hash = username.toLowerCase(Locale.ROOT).hashCode();
+        // murmur3 fmix32：String.hashCode 的低位元分布不均，打散後再取餘數
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+        return Math.floorMod(hash, shardCount);
+    }
+
+    /**
+     * @param id 會員 ID
+     * @return 會員所在的分片
+     * @throws IllegalArgumentException 如果 ID 指向的分片未設定 (ID 不是本系統產生的)
+     */
+    public int shardForId(long id) {
+        int shard = SnowflakeIdGenerator.shardOf(id);
+        if (shard >= shardCount) {
+            throw new IllegalArgumentException("Member ID " + id + " belongs to unknown shard " + shard);
+        }
+        return shard;
+    }
+
+    /**
+     * @param id 會員 ID
+     * @return ID 指向的分片是否已設定；否則該 ID 不可能存在
+     */
+    public boolean hasShardFor(long id) {
+        return SnowflakeIdGenerator.shardOf(id) < shardCount;
+    }
+
+    /**
+     * 在指定分片上執行。
+     * @param shard 分片
+     * @param action 要執行的資料庫操作
+     * @return 操作結果
+     * @throws IllegalStateException 如果目前交易已經在其他分片上
+     */
+    public <T> T onShard(int shard, Supplier<T> action) {
+        if (shardCount == 1) {
+            return action.get();
+        }
+        Integer previous = CURRENT_SHARD.get();
+        if (previous != null && previous != shard && TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Cannot switch from shard " + previous + " to shard " + shard + " inside a transaction");
+        }
+        CURRENT_SHARD.set(shard);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                CURRENT_SHARD.remove();
+            } else {
+                CURRENT_SHARD.set(previous);
+            }
+        }
+    }
+
+    public void runOnShard(int shard, Runnable action) {
+        onShard(shard, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * 讀取分片 0 上的全域資料表 (key_material 等)。
+     * 呼叫端可能正在其他分片的交易中 (例如註冊時金鑰快取未命中)，此時改在 shard-scatter- 執行緒上執行，
+     * 不加入呼叫端的交易；不在交易中時暫時清除目前執行緒的分片設定。
+     * @param action 存取全域資料表的操作
+     * @return 操作結果
+     */
+    public <T> T onGlobalTables(Supplier<T> action) {
+        if (shardCount == 1) {
+            return action.get();
+        }
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            Integer previous = CURRENT_SHARD.get();
+            CURRENT_SHARD.remove();
+            try {
+                return action.get();
+            } finally {
+                if (previous != null) {
+                    CURRENT_SHARD.set(previous);
+                }
+            }
+        }
+        Future<T> future = scatterExecutor.submit(action::get);
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Global table access failed: " + e.getCause().getMessage(), e.getCause());
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while accessing global tables", e);
+        }
+    }
+
+    /**
+     * 在每個分片上執行同一操作 (scatter-gather)。
+     * 各分片在 shard-scatter- 執行緒上平行執行，不會加入呼叫端的交易；需要交易時請在 action 內自行開始。
+     * @param action 以分片編號為參數的資料庫操作
+     * @return 依分片編號排列的結果
+     */
+    public <T> List<T> onEachShard(IntFunction<T> action) {
+        if (shardCount == 1) {
+            return List.of(action.apply(0));
+        }
+        List<T> results = new ArrayList<>(shardCount);
+        if (SCATTER_WORKER.get() != null) {
+            // 已在 scatter 執行緒上：依序執行，避免等待同一個執行緒池而死結
+            for (int shard = 0; shard < shardCount; shard++) {
+                int target = shard;
+                results.add(onShard(target, () -> action.apply(target)));
+            }
+            return results;
+        }
+        List<Future<T>> futures = new ArrayList<>(shardCount);
+        for (int shard = 0; shard < shardCount; shard++) {
+            int target = shard;
+            futures.add(scatterExecutor.submit(() -> {
+                SCATTER_WORKER.set(Boolean.TRUE);
+                try {
+                    return onShard(target, () -> action.apply(target));
+                } finally {
+                    SCATTER_WORKER.remove();
+                }
+            }));
+        }
+        try {
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Shard query failed: " + e.getCause().getMessage(), e.getCause());
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while querying shards", e);
+        }
+        return results;
+    }
+
+    /**
+     * 合併各分片以 keyset 分頁 (WHERE id > ? ORDER BY id LIMIT ?) 查詢到的頁：
+     * 每個分片都回傳了自己 ID 最小的 limit 筆，全域 ID 最小的 limit 筆必定在其中，
+     * 以最後一筆的 ID 作為下一頁的起點即可不重複、不遺漏地走訪所有分片。
+     * @param pages 各分片的頁，依 ID 排序
+     * @param idOf 取得 ID
+     * @param limit 頁大小
+     * @return 依 ID 排序、最多 limit 筆
+     */
+    public static <T> List<T> mergePages(List<List<T>> pages, ToLongFunction<T> idOf, int limit) {
+        if (pages.size() == 1) {
+            return pages.get(0);
+        }
+        List<T> merged = new ArrayList<>();
+        pages.forEach(merged::addAll);
+        merged.sort(Comparator.comparingLong(idOf));
+        return merged.size() > limit ? new ArrayList<>(merged.subList(0, limit)) : merged;
+    }
+
+    /**
+     * @param items 帶有會員 ID 的資料
+     * @param idOf 取得會員 ID
+     * @return 分片編號 -> 該分片的資料 (保持原順序)
+     */
+    public <T> Map<Integer, List<T>> groupByShard(Collection<T> items, ToLongFunction<T> idOf) {
+        Map<Integer, List<T>> groups = new TreeMap<>();
+        for (T item : items) {
+            groups.computeIfAbsent(shardForId(idOf.applyAsLong(item)), shard -> new ArrayList<>()).add(item);
+        }
+        return groups;
+    }
+
+    /**
+     * @return 目前執行緒指定的分片，未指定時為 null (ShardRoutingDataSource 使用分片 0)
+     */
+    public static Integer currentShard() {
+        return CURRENT_SHARD.get();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scatterExecutor != null) {
+            scatterExecutor.shutdownNow();
+        }
+    }
+}
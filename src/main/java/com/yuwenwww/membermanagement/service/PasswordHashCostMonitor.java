@@ -0,0 +1,90 @@
+package com.yuwenwww.membermanagement.service;
+
+import com.yuwenwww.membermanagement.repository.MemberJdbcRepository;
+import com.yuwenwww.membermanagement.repository.PasswordHashCostCount;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.MultiGauge;
+import io.micrometer.core.instrument.Tags;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 定期統計 members.password 中各雜湊格式與 BCrypt cost 的會員數，輸出為 member.password.hash.cost{format, cost}。
+ * 提高 cost 後，舊 cost 的數量會隨會員登入 (重新雜湊) 逐漸減少，可用來判斷遷移進度。
+ * 統計需要掃描整張表，因此只在背景排程執行，抓取 (scrape) 時讀取的是上一次的結果。
+ */
+@Component
+public class PasswordHashCostMonitor {
+
+    private static final Logger log = LoggerFactory.getLogger(PasswordHashCostMonitor.class);
+
+    private final MemberJdbcRepository memberJdbcRepository;
+    private final MemberShardRouter memberShardRouter;
+    private final MultiGauge hashCosts;
+    private volatile List<PasswordHashCostCount> lastCounts = List.of();
+    private volatile Instant refreshedAt;
+
+    public PasswordHashCostMonitor(MemberJdbcRepository memberJdbcRepository, MemberShardRouter memberShardRouter,
+                                   MeterRegistry registry) {
+        this.memberJdbcRepository = memberJdbcRepository;
+        this.memberShardRouter = memberShardRouter;
+        this.hashCosts = MultiGauge.builder("member.password.hash.cost")
+                .description("Members per password hash format and BCrypt cost")
+                .baseUnit("members")
+                .register(registry);
+    }
+
+    @Scheduled(initialDelayString = "${member.password-hashing.cost-scan-initial-delay:PT1M}",
+            fixedDelayString = "${member.password-hashing.cost-scan-interval:PT15M}")
+    public void refresh() {
+        List<PasswordHashCostCount> counts;
+        try {
+            counts = sum(memberShardRouter.onEachShard(shard -> memberJdbcRepository.countPasswordHashCosts()));
+        } catch (DataAccessException e) {
+            log.warn("Failed to count password hash costs: {}", e.getMessage());
+            return;
+        }
+        // overwrite = true：已不存在的 cost 會從輸出中移除
+        hashCosts.register(counts.stream()
+                .<MultiGauge.Row<?>>map(count -> MultiGauge.Row.of(
+                        Tags.of("format", count.format(), "cost", count.cost()), count.members()))
+                .toList(), true);
+        lastCounts = counts;
+        refreshedAt = Instant.now();
+    }
+
+    // 合併各分片的統計，相同格式與 cost 的會員數相加
+    private static List<PasswordHashCostCount> sum(List<List<PasswordHashCostCount>> shardCounts) {
+        if (shardCounts.size() == 1) {
+            return shardCounts.get(0);
+        }
+        Map<List<String>, Long> totals = new LinkedHashMap<>();
+        shardCounts.forEach(counts -> counts.forEach(count ->
+                totals.merge(List.of(count.format(), count.cost()), count.members(), Long::sum)));
+        return totals.entrySet().stream()
+                .map(entry -> new PasswordHashCostCount(entry.getKey().get(0), entry.getKey().get(1), entry.getValue()))
+                .toList();
+    }
+
+    /**
+     * @return 上一次統計的結果
+     */
+    public List<PasswordHashCostCount> getLastCounts() {
+        return lastCounts;
+    }
+
+    /**
+     * @return 上一次統計的時間，尚未統計時為 null
+     */
+    public Instant getRefreshedAt() {
+        return refreshedAt;
+    }
+}
@@ -0,0 +1,18 @@
+package com.yuwenwww.membermanagement.service;
+
+/**
+ * 密碼雜湊執行緒池已滿時拋出，呼叫端應回應 503 並附上 Retry-After。
+ */
+public class PasswordHashingBusyException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public PasswordHashingBusyException(long retryAfterSeconds) {
+        super("Password hashing capacity exhausted, retry after " + retryAfterSeconds + "s");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
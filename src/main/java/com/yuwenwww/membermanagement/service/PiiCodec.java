@@ -0,0 +1,28 @@
+package com.yuwenwww.membermanagement.service;
+
+import java.security.GeneralSecurityException;
+
+/**
+ * PII 欄位的加解密編碼器。
+ * 每種實作對應一種密文格式，由 PiiEncryptionService 依設定選擇寫入格式，並依資料列內容選擇解碼器。
+ */
+public interface PiiCodec {
+
+    /**
+     * 加密一個 PII 欄位。
+     * @param field 欄位 (支援 AAD 的格式會將密文綁定到此欄位)
+     * @param plaintext 明文位元組
+     * @param key 用於加密的金鑰
+     * @return 要寫入資料列的密文 (以及舊格式需要的 IV)
+     */
+    EncryptedPii encrypt(PiiField field, byte[] plaintext, PiiKey key) throws GeneralSecurityException;
+
+    /**
+     * 解密一個 PII 欄位。
+     * @param field 欄位，須與加密時相同
+     * @param value 資料列中的密文 (以及舊格式的 IV)
+     * @param rowKeyLabel 資料列記錄的 encryption_key_label
+     * @return 明文位元組
+     */
+    byte[] decrypt(PiiField field, EncryptedPii value, String rowKeyLabel) throws GeneralSecurityException;
+}
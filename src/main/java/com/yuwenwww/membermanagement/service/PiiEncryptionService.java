@@ -0,0 +1,83 @@
+package com.yuwenwww.membermanagement.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.security.GeneralSecurityException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PII 欄位加解密的統一入口。
+ * 寫入時使用設定的格式 (member.pii.codec，預設 gcm)；讀取時依資料列內容選擇解碼器：
+ * 有獨立 IV 的是舊版 AES-CBC 資料列，否則為自描述的 AES-GCM 值。
+ * 因此新舊格式可以並存，資料可以逐步遷移。
+ */
+@Service
+public class PiiEncryptionService {
+
+    @Autowired
+    private PiiKeyCache piiKeyCache;
+
+    @Autowired
+    private AesCbcPiiCodec aesCbcPiiCodec;
+
+    @Autowired
+    private AesGcmPiiCodec aesGcmPiiCodec;
+
+    @Autowired
+    private KeyUsageCounter keyUsageCounter; // 金鑰使用次數 (非同步批次寫回)
+
+    @Autowired
+    private MemberMetrics memberMetrics;
+
+    @Value("${member.pii.codec:gcm}")
+    private String writeCodec;
+
+    /**
+     * 以指定標籤的金鑰加密一個 PII 欄位。
+     * @param field 欄位 (度量標籤；AES-GCM 格式另外作為 AAD)
+     * @param plaintext 明文位元組
+     * @param keyLabel 金鑰標籤
+     * @return 要寫入資料列的密文與 IV (自描述格式的 IV 為 null)
+     */
+    public EncryptedPii encrypt(PiiField field, byte[] plaintext, String keyLabel) throws GeneralSecurityException {
+        long start = System.nanoTime();
+        PiiKey key = piiKeyCache.getKey(keyLabel);
+        EncryptedPii encrypted = writeCodec().encrypt(field, plaintext, key);
+        keyUsageCounter.incrementEncryption(keyLabel);
+        memberMetrics.encryptTimer(field).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return encrypted;
+    }
+
+    /**
+     * 解密一個 PII 欄位，自動辨識新舊格式。
+     * 只要 IV 欄位不為 null 就視為 AES-CBC 資料列，不檢查密文的版本位元組：
+     * CBC 密文是隨機位元組，可能剛好以 AES-GCM 的版本位元組開頭，反過來判斷會誤認。
+     * 格式以欄位為單位判斷，同一資料列的 email 與 phone_number 可以分屬不同格式 (只改寫其中一個欄位時)。
+     * @param field 欄位 (度量標籤；AES-GCM 格式另外作為 AAD)
+     * @param data 資料列中的密文
+     * @param iv 舊版格式的 IV 欄位，可為 null
+     * @param rowKeyLabel 資料列記錄的金鑰標籤
+     * @return 明文位元組
+     */
+    public byte[] decrypt(PiiField field, byte[] data, byte[] iv, String rowKeyLabel) throws GeneralSecurityException {
+        long start = System.nanoTime();
+        EncryptedPii value = new EncryptedPii(data, iv);
+        byte[] plaintext;
+        if (iv != null) {
+            plaintext = aesCbcPiiCodec.decrypt(field, value, rowKeyLabel);
+        } else if (AesGcmPiiCodec.isEncoded(data)) {
+            plaintext = aesGcmPiiCodec.decrypt(field, value, rowKeyLabel);
+        } else {
+            throw new GeneralSecurityException("Unrecognized PII ciphertext format");
+        }
+        keyUsageCounter.incrementDecryption(rowKeyLabel);
+        memberMetrics.decryptTimer(field).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return plaintext;
+    }
+
+    private PiiCodec writeCodec() {
+        return "cbc".equalsIgnoreCase(writeCodec) ? aesCbcPiiCodec : aesGcmPiiCodec;
+    }
+}
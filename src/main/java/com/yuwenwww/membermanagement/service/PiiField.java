@@ -0,0 +1,26 @@
+package com.yuwenwww.membermanagement.service;
+
+/**
+ * 加密的 PII 欄位，用於度量的 field 標籤 (固定兩個值，不會造成高基數)，
+ * 以及 AES-GCM 密文 AAD 中的欄位代碼。
+ */
+public enum PiiField {
+    EMAIL("email", (byte) 1),
+    PHONE("phone", (byte) 2);
+
+    private final String tagValue;
+    private final byte aadCode; // 寫入既有密文的 AAD，不可更改
+
+    PiiField(String tagValue, byte aadCode) {
+        this.tagValue = tagValue;
+        this.aadCode = aadCode;
+    }
+
+    public String tagValue() {
+        return tagValue;
+    }
+
+    public byte aadCode() {
+        return aadCode;
+    }
+}
@@ -0,0 +1,12 @@
+package com.yuwenwww.membermanagement.service;
+
+import javax.crypto.SecretKey;
+
+/**
+ * 已解碼的 PII 金鑰，連同其在 key_material 中的 ID 與標籤。
+ * @param id KeyMaterial 的 ID (寫入 AES-GCM 密文標頭，用於解密時找回金鑰)
+ * @param label KeyMaterial 的標籤
+ * @param secretKey AES 金鑰
+ */
+public record PiiKey(Long id, String label, SecretKey secretKey) {
+}
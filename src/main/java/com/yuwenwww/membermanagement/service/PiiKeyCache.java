@@ -0,0 +1,199 @@
+package com.yuwenwww.membermanagement.service;
+
+import com.yuwenwww.membermanagement.entity.KeyMaterial;
+import com.yuwenwww.membermanagement.repository.KeyMaterialRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * PII 加密金鑰的行程內快取。
+ * 以 KeyMaterial.keyLabel 為鍵 (並以 ID 為輔助索引)，快取以主金鑰解開後的資料金鑰，
+ * 避免每次註冊或讀取會員資料都查詢 key_material 並執行 unwrap。
+ * 項目在 TTL 到期後會重新載入，也可透過 invalidate 明確失效，讓金鑰輪替能夠生效；
+ * 項目數超過 max-entries 時淘汰最久未使用的金鑰 (LRU)。
+ */
+@Component
+public class PiiKeyCache {
+
+    // 命中時最多每毫秒更新一次最後使用時間，避免每次讀取都寫入共享的快取行
+    private static final long ACCESS_GRANULARITY_NANOS = 1_000_000L;
+
+    @Autowired
+    private KeyMaterialRepository keyMaterialRepository;
+
+    @Autowired
+    private EnvelopeKeyService envelopeKeyService;
+
+    @Autowired
+    private MemberMetrics memberMetrics; // 只記錄未命中時的載入時間，命中路徑不計時
+
+    @Autowired
+    private MemberShardRouter memberShardRouter; // key_material 位於分片 0，未命中時可能正在其他分片的交易中
+
+    @Value("${member.pii.key-cache.ttl:PT10M}")
+    private Duration ttl;
+
+    @Value("${member.pii.key-cache.max-entries:1024}")
+    private int maxEntries;
+
+    private final ConcurrentHashMap<String, CachedKey> keysByLabel = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, CachedKey> keysById = new ConcurrentHashMap<>();
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+
+    /**
+     * 取得指定標籤的 PII 金鑰，快取未命中或已過期時才查詢資料庫。
+     * @param keyLabel 金鑰標籤
+     * @return 解碼後的金鑰
+     * @throws RuntimeException 如果資料庫中找不到該金鑰
+     */
+    public PiiKey getKey(String keyLabel) {
+        CachedKey cached = keysByLabel.get(keyLabel);
+        long now = System.nanoTime();
+        if (cached != null && !cached.isExpired(now)) {
+            cached.touch(now);
+            hitCount.increment();
+            return cached.key();
+        }
+        // 使用 compute 讓同一標籤的並發未命中只查詢一次資料庫
+        CachedKey loaded = keysByLabel.compute(keyLabel, (label, existing) -> {
+            long loadedAt = System.nanoTime();
+            if (existing != null && !existing.isExpired(loadedAt)) {
+                hitCount.increment();
+                return existing;
+            }
+            missCount.increment();
+            return toCachedKey(memberShardRouter.onGlobalTables(() -> keyMaterialRepository.findByKeyLabel(label))
+                    .orElseThrow(() -> new RuntimeException("PII encryption key not found: " + label)), loadedAt);
+        });
+        keysById.put(loaded.key().id(), loaded);
+        evictOverflow();
+        return loaded.key();
+    }
+
+    /**
+     * 依 KeyMaterial ID 取得 PII 金鑰 (用於解碼密文標頭中記錄的金鑰 ID)。
+     * @param keyId KeyMaterial 的 ID
+     * @return 解碼後的金鑰
+     * @throws RuntimeException 如果資料庫中找不到該金鑰
+     */
+    public PiiKey getKeyById(long keyId) {
+        CachedKey cached = keysById.get(keyId);
+        long now = System.nanoTime();
+        if (cached != null && !cached.isExpired(now)) {
+            cached.touch(now);
+            hitCount.increment();
+            return cached.key();
+        }
+        CachedKey loaded = keysById.compute(keyId, (id, existing) -> {
+            long loadedAt = System.nanoTime();
+            if (existing != null && !existing.isExpired(loadedAt)) {
+                hitCount.increment();
+                return existing;
+            }
+            missCount.increment();
+            return toCachedKey(memberShardRouter.onGlobalTables(() -> keyMaterialRepository.findById(id))
+                    .orElseThrow(() -> new RuntimeException("PII encryption key not found for ID: " + id)), loadedAt);
+        });
+        keysByLabel.put(loaded.key().label(), loaded);
+        evictOverflow();
+        return loaded.key();
+    }
+
+    /**
+     * 使單一金鑰的快取失效 (例如金鑰輪替後)。
+     * @param keyLabel 金鑰標籤
+     */
+    public void invalidate(String keyLabel) {
+        CachedKey removed = keysByLabel.remove(keyLabel);
+        if (removed != null) {
+            keysById.remove(removed.key().id());
+        }
+    }
+
+    /**
+     * 清空整個金鑰快取。
+     */
+    public void invalidateAll() {
+        keysByLabel.clear();
+        keysById.clear();
+    }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    public int size() {
+        return keysByLabel.size();
+    }
+
+    // 只在未命中載入後執行；金鑰數量很少，線性尋找最久未使用的項目即可
+    private void evictOverflow() {
+        while (keysByLabel.size() > maxEntries) {
+            CachedKey eldest = null;
+            for (CachedKey candidate : keysByLabel.values()) {
+                if (eldest == null || candidate.lastAccessNanos - eldest.lastAccessNanos < 0) {
+                    eldest = candidate;
+                }
+            }
+            if (eldest == null || !keysByLabel.remove(eldest.key().label(), eldest)) {
+                return;
+            }
+            keysById.remove(eldest.key().id(), eldest);
+            evictionCount.increment();
+        }
+    }
+
+    // now 為未命中時取得的時間，包含查詢 key_material 的時間一併記錄到 member.pii.key.load
+    private CachedKey toCachedKey(KeyMaterial keyMaterial, long now) {
+        try {
+            PiiKey key = new PiiKey(keyMaterial.getId(), keyMaterial.getKeyLabel(), envelopeKeyService.unwrap(keyMaterial));
+            memberMetrics.keyLoadTimer().record(System.nanoTime() - now, TimeUnit.NANOSECONDS);
+            return new CachedKey(key, now + ttl.toNanos(), now);
+        } catch (GeneralSecurityException e) {
+            throw new RuntimeException("Failed to unwrap PII encryption key: " + keyMaterial.getKeyLabel(), e);
+        }
+    }
+
+    private static final class CachedKey {
+        private final PiiKey key;
+        private final long expiresAtNanos;
+        private volatile long lastAccessNanos;
+
+        CachedKey(PiiKey key, long expiresAtNanos, long lastAccessNanos) {
+            this.key = key;
+            this.expiresAtNanos = expiresAtNanos;
+            this.lastAccessNanos = lastAccessNanos;
+        }
+
+        PiiKey key() {
+            return key;
+        }
+
+        boolean isExpired(long now) {
+            return now - expiresAtNanos >= 0;
+        }
+
+        void touch(long now) {
+            if (now - lastAccessNanos > ACCESS_GRANULARITY_NANOS) {
+                lastAccessNanos = now;
+            }
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.yuwenwww.membermanagement.service;
+
+import com.yuwenwww.membermanagement.entity.KeyMaterial;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import java.security.GeneralSecurityException;
+
+/**
+ * 產生新的 PII 金鑰材料 (啟動時的初始金鑰與金鑰輪替共用)。
+ */
+@Component
+public class PiiKeyGenerator {
+
+    private static final int KEY_SIZE = 256; // AES-256 位元金鑰
+
+    @Autowired
+    private AesCipherEngine aesCipherEngine;
+
+    @Autowired
+    private EnvelopeKeyService envelopeKeyService;
+
+    /**
+     * @param keyLabel 金鑰標籤
+     * @return 尚未儲存的 KeyMaterial，資料金鑰已以目前的主金鑰包裝
+     */
+    public KeyMaterial generate(String keyLabel) throws GeneralSecurityException {
+        // 1. 生成 AES SecretKey
+        KeyGenerator keyGen = KeyGenerator.getInstance("AES", "BC");
+        keyGen.init(KEY_SIZE, aesCipherEngine.secureRandom()); // 使用安全亂數生成
+        SecretKey secretKey = keyGen.generateKey();
+
+        // 2. 生成一個 IV (用於 KeyMaterial 自身的元數據 IV，雖然本場景不直接用於金鑰加密)
+        byte[] ivBytes = new byte[16]; // AES 區塊大小為 16 位元組 (128 位元)
+        aesCipherEngine.nextBytes(ivBytes);
+
+        KeyMaterial keyMaterial = new KeyMaterial();
+        keyMaterial.setKeyLabel(keyLabel);
+        keyMaterial.setIv(ivBytes);
+        keyMaterial.setKeySize(KEY_SIZE);
+        envelopeKeyService.wrapInto(keyMaterial, secretKey); // 3. 以主金鑰包裝後才儲存
+        return keyMaterial;
+    }
+}
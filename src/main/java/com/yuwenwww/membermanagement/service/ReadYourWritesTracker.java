@@ -0,0 +1,101 @@
+package com.yuwenwww.membermanagement.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * 讀取副本的 read-your-writes 視窗。
+ * 副本的複寫有延遲，剛註冊或更新的會員若立即從副本讀取 (例如註冊後馬上登入) 可能讀不到；
+ * 寫入後在 member.datasource.read-your-writes-window 內，與該會員相關的唯讀查詢改走主庫。
+ * 未設定讀取副本時不記錄任何資料。
+ * 寫入紀錄只存在本實例的記憶體中，其他實例不知道這次寫入 (多實例部署的限制見 ReadReplicaConfig)。
+ * <p>
+ * 路由在取得實際連線時才決定 (LazyConnectionDataSourceProxy)，因此 readFromPrimaryIfRecent 可以在唯讀交易之內呼叫，
+ * 只要交易中的第一個查詢在其中執行即可。
+ */
+@Component
+public class ReadYourWritesTracker {
+
+    private static final ThreadLocal<Boolean> PRIMARY_REQUIRED = new ThreadLocal<>();
+
+    private final boolean enabled;
+    private final long windowNanos;
+    private final int maxEntries;
+    private final ConcurrentHashMap<String, Long> recentWrites = new ConcurrentHashMap<>(); // 鍵 -> 視窗結束時間 (nanoTime)
+
+    public ReadYourWritesTracker(@Value("${member.datasource.replica-urls:}") String replicaUrls,
+                                 @Value("${member.datasource.read-your-writes-window:PT5S}") Duration window,
+                                 @Value("${member.datasource.read-your-writes-max-entries:100000}") int maxEntries) {
+        this.enabled = !replicaUrls.isBlank();
+        this.windowNanos = window.toNanos();
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * 記錄一次寫入 (應在交易提交後呼叫)。
+     * @param key 會員鍵，見 memberKey / usernameKey
+     */
+    public void recordWrite(String key) {
+        if (!enabled) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (recentWrites.size() >= maxEntries) {
+            recentWrites.values().removeIf(deadline -> deadline - now <= 0);
+        }
+        recentWrites.put(key, now + windowNanos); // 清除後仍滿時照樣加入：寧可多佔記憶體，也不讓剛寫入的會員讀到舊資料
+    }
+
+    /**
+     * 執行唯讀查詢；該鍵在視窗內有寫入時，查詢改走主庫。
+     * @param key 會員鍵
+     * @param read 查詢
+     * @return 查詢結果
+     */
+    public <T> T readFromPrimaryIfRecent(String key, Supplier<T> read) {
+        if (!enabled || PRIMARY_REQUIRED.get() != null || !isRecentlyWritten(key)) {
+            return read.get();
+        }
+        PRIMARY_REQUIRED.set(Boolean.TRUE);
+        try {
+            return read.get();
+        } finally {
+            PRIMARY_REQUIRED.remove();
+        }
+    }
+
+    /**
+     * @return 目前執行緒的唯讀查詢是否必須走主庫 (由路由 DataSource 讀取)
+     */
+    public static boolean isPrimaryRequired() {
+        return PRIMARY_REQUIRED.get() != null;
+    }
+
+    private boolean isRecentlyWritten(String key) {
+        Long deadline = recentWrites.get(key);
+        if (deadline == null) {
+            return false;
+        }
+        if (deadline - System.nanoTime() > 0) {
+            return true;
+        }
+        recentWrites.remove(key, deadline);
+        return false;
+    }
+
+    public int size() {
+        return recentWrites.size();
+    }
+
+    public static String memberKey(Long id) {
+        return "id:" + id;
+    }
+
+    public static String usernameKey(String username) {
+        return "username:" + username;
+    }
+}
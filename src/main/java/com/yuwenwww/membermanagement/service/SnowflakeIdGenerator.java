@@ -0,0 +1,88 @@
+package com.yuwenwww.membermanagement.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 產生全域唯一、大致依時間遞增的 64 位元會員 ID (snowflake 格式)，不需要資料庫的 AUTO_INCREMENT：
+ * <pre>
+ * | 0 | 41 位元：自 2024-01-01 起的毫秒 | 8 位元：分片 | 6 位元：節點 (member.id.node-id) | 8 位元：序號 |
+ * </pre>
+ * ID 本身帶有分片編號，依 ID 查詢時不需要查表就能找到資料所在的分片。
+ * 每個分片各自維護 (毫秒, 序號) 狀態並以 CAS 更新，不需要鎖；同一毫秒的序號用完時借用下一毫秒，
+ * 系統時鐘倒退時沿用上次的時間繼續遞增，因此同一節點產生的 ID 不會重複也不會變小。
+ * <p>
+ * 分片前以 AUTO_INCREMENT 產生的舊 ID 遠小於 LEGACY_ID_LIMIT，一律視為位於分片 0。
+ */
+@Component
+public class SnowflakeIdGenerator {
+
+    static final long EPOCH_MILLIS = 1704067200000L; // 2024-01-01T00:00:00Z
+
+    private static final int SEQUENCE_BITS = 8;
+    private static final int NODE_BITS = 6;
+    private static final int SHARD_BITS = 8;
+    private static final int NODE_SHIFT = SEQUENCE_BITS;
+    private static final int SHARD_SHIFT = NODE_SHIFT + NODE_BITS;
+    private static final int TIMESTAMP_SHIFT = SHARD_SHIFT + SHARD_BITS;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    public static final int MAX_SHARDS = 1 << SHARD_BITS;
+    public static final int MAX_NODES = 1 << NODE_BITS;
+
+    // 時間部分至少為 2^18 毫秒，snowflake ID 一定不小於此值
+    static final long LEGACY_ID_LIMIT = 1L << 40;
+
+    private final long nodeId;
+    private final AtomicLong[] states = new AtomicLong[MAX_SHARDS]; // 每個分片：(毫秒 << SEQUENCE_BITS) | 序號
+
+    public SnowflakeIdGenerator(@Value("${member.id.node-id:0}") int nodeId) {
+        if (nodeId < 0 || nodeId >= MAX_NODES) {
+            throw new IllegalStateException("member.id.node-id must be between 0 and " + (MAX_NODES - 1) + ": " + nodeId);
+        }
+        this.nodeId = nodeId;
+        for (int i = 0; i < MAX_SHARDS; i++) {
+            states[i] = new AtomicLong();
+        }
+    }
+
+    /**
+     * @param shard 資料所在的分片
+     * @return 新的 ID，同一節點、同一分片內嚴格遞增
+     */
+    public long nextId(int shard) {
+        if (shard < 0 || shard >= MAX_SHARDS) {
+            throw new IllegalArgumentException("Shard out of range: " + shard);
+        }
+        AtomicLong state = states[shard];
+        while (true) {
+            long last = state.get();
+            long now = System.currentTimeMillis() - EPOCH_MILLIS;
+            // 時鐘前進時從新的毫秒開始；同一毫秒、序號用完或時鐘倒退時接續上一個值
+            long next = now > (last >>> SEQUENCE_BITS) ? now << SEQUENCE_BITS : last + 1;
+            if (state.compareAndSet(last, next)) {
+                return (next >>> SEQUENCE_BITS) << TIMESTAMP_SHIFT
+                        | (long) shard << SHARD_SHIFT
+                        | nodeId << NODE_SHIFT
+                        | (next & SEQUENCE_MASK);
+            }
+        }
+    }
+
+    /**
+     * @param id 會員 ID
+     * @return ID 所在的分片；分片前的舊 ID 為 0
+     */
+    public static int shardOf(long id) {
+        if (id < LEGACY_ID_LIMIT) {
+            return 0;
+        }
+        return (int) ((id >>> SHARD_SHIFT) & (MAX_SHARDS - 1));
+    }
+
+    public int getNodeId() {
+        return (int) nodeId;
+    }
+}
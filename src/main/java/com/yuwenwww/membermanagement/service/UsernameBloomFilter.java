@@ -0,0 +1,135 @@
+package com.yuwenwww.membermanagement.service;
+
+import com.yuwenwww.membermanagement.repository.MemberRepository;
+import com.yuwenwww.membermanagement.repository.MemberUsernameView;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 已註冊用戶名的 Bloom filter，用於註冊時的快速否定檢查。
+ * mightContain 為 false 時用戶名一定不存在，可直接雜湊密碼並插入；為 true 時才需要查詢資料庫確認。
+ * 最終的唯一性仍由 members.username 的唯一約束保證，因此多個實例各自持有的過濾器只影響效能，不影響正確性。
+ */
+@Component
+public class UsernameBloomFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(UsernameBloomFilter.class);
+    private static final int LOAD_BATCH_SIZE = 5000;
+
+    @Autowired
+    private MemberRepository memberRepository;
+
+    @Autowired
+    private MemberShardRouter memberShardRouter;
+
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashCount;
+    private volatile boolean loaded;
+
+    /**
+     * @param expectedInsertions 預期的用戶名數量
+     * @param falsePositiveRate 可接受的誤判率
+     */
+    public UsernameBloomFilter(@Value("${member.username-bloom.expected-insertions:1000000}") long expectedInsertions,
+                               @Value("${member.username-bloom.false-positive-rate:0.01}") double falsePositiveRate) {
+        long optimalBits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        int words = (int) Math.max(1, (optimalBits + 63) / 64);
+        this.bits = new AtomicLongArray(words);
+        this.bitCount = (long) words * 64;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedInsertions * Math.log(2)));
+    }
+
+    /**
+     * 應用程式啟動後，依 ID 分頁載入所有既有用戶名 (設定分片時各分片平行載入)。
+     * 載入完成前 mightContain 一律返回 true，註冊流程會退回資料庫檢查。
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadExistingUsernames() {
+        long count = memberShardRouter.onEachShard(shard -> loadShard()).stream().mapToLong(Long::longValue).sum();
+        loaded = true;
+        log.info("Username bloom filter loaded with {} usernames ({} bits, {} hashes)", count, bitCount, hashCount);
+    }
+
+    private long loadShard() {
+        long afterId = 0;
+        long count = 0;
+        List<MemberUsernameView> batch;
+        do {
+            batch = memberRepository.findByIdGreaterThanOrderByIdAsc(afterId, Limit.of(LOAD_BATCH_SIZE));
+            for (MemberUsernameView row : batch) {
+                put(row.getUsername());
+                afterId = row.getId();
+            }
+            count += batch.size();
+        } while (batch.size() == LOAD_BATCH_SIZE);
+        return count;
+    }
+
+    /**
+     * @param username 用戶名
+     * @return false 表示用戶名一定不存在；true 表示可能存在 (或過濾器尚未載入)
+     */
+    public boolean mightContain(String username) {
+        if (!loaded) {
+            return true;
+        }
+        long hash1 = hash(username);
+        long hash2 = mix(hash1) | 1L; // 保持奇數，確保雙雜湊的步長不為 0
+        for (int i = 0; i < hashCount; i++) {
+            long index = Math.floorMod(hash1 + i * hash2, bitCount);
+            if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 加入一個已註冊的用戶名。
+     * @param username 用戶名
+     */
+    public void put(String username) {
+        long hash1 = hash(username);
+        long hash2 = mix(hash1) | 1L; // 保持奇數，確保雙雜湊的步長不為 0
+        for (int i = 0; i < hashCount; i++) {
+            long index = Math.floorMod(hash1 + i * hash2, bitCount);
+            int word = (int) (index >>> 6);
+            long mask = 1L << index;
+            long current;
+            do {
+                current = bits.get(word);
+                if ((current & mask) != 0) {
+                    break;
+                }
+            } while (!bits.compareAndSet(word, current, current | mask));
+        }
+    }
+
+    // FNV-1a 64 位元雜湊，再以 splitmix64 混合產生第二個雜湊 (Kirsch-Mitzenmacher 雙雜湊)
+    private static long hash(String username) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : username.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+    private static long mix(long value) {
+        long z = value + 0x9e3779b97f4a7c15L;
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -4,22 +4,49 @@ CREATE TABLE IF NOT EXISTS members (
                                        id BIGINT AUTO_INCREMENT PRIMARY KEY,
                                        username VARCHAR(50) NOT NULL UNIQUE,
     password VARCHAR(255) NOT NULL, -- 儲存雜湊後的密碼
-    email VARBINARY(255),          -- 儲存加密後的電子郵件
-    phone_number VARBINARY(255),   -- 儲存加密後的電話號碼
-    email_iv VARBINARY(16),        -- 加密 email 使用的 IV
-    phone_iv VARBINARY(16),        -- 加密 phone_number 使用的 IV
+    email VARBINARY(255),          -- 儲存加密後的電子郵件 (AES-GCM 自描述格式，或舊版 AES-CBC 密文)
+    phone_number VARBINARY(255),   -- 儲存加密後的電話號碼 (同上)
+    email_iv VARBINARY(16),        -- 舊版 AES-CBC 加密 email 使用的 IV，AES-GCM 值為 NULL；不為 NULL 即以 CBC 解密
+    phone_iv VARBINARY(16),        -- 同上 (phone_number)；金鑰輪替改寫所有資料列為 AES-GCM 後兩個 IV 欄位即可移除
     encryption_key_label VARCHAR(50), -- 參考用於加密 PII 的金鑰標籤
+    email_bidx VARBINARY(32),      -- email 的盲索引 (正規化後的 HMAC-SHA256)，用於依 email 查詢
+    phone_bidx VARBINARY(32),      -- phone_number 的盲索引，用於依電話查詢
+    version BIGINT NOT NULL DEFAULT 0, -- 樂觀鎖版本 (JPA @Version)，既有資料庫由 Hibernate 補上
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    INDEX idx_members_email_bidx (email_bidx),
+    INDEX idx_members_phone_bidx (phone_bidx)
     );
 
 -- 金鑰材料表格 (沿用 encryptiondemo 中的設計)
 CREATE TABLE IF NOT EXISTS key_material (
-                                            id INT AUTO_INCREMENT PRIMARY KEY,
+                                            id BIGINT AUTO_INCREMENT PRIMARY KEY, -- 新資料列由應用程式產生 snowflake ID
                                             key_label VARCHAR(50) NOT NULL UNIQUE, -- 金鑰標籤，唯一
-    key_value VARBINARY(32) NOT NULL,      -- AES-256 金鑰為 32 位元組
+    key_value VARBINARY(64) NOT NULL,      -- 以主金鑰包裝 (AES Key Wrap) 的 AES-256 資料金鑰，40 位元組
+    master_key_alias VARCHAR(50),          -- 包裝用的主金鑰別名 (keystore 中的項目)，NULL 表示尚未包裝的舊金鑰
     iv VARBINARY(16) NOT NULL,             -- 金鑰材料的 IV
     key_size INT NOT NULL DEFAULT 256,     -- 金鑰大小
+    usage_count BIGINT NOT NULL DEFAULT 0, -- 加解密次數 (由應用程式批次累加)
+    encryption_count BIGINT NOT NULL DEFAULT 0, -- 其中的加密次數，GCM nonce 告警依此判斷 (既有資料庫由 Hibernate 補上)
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+    );
+
+-- 既有資料庫的 key_value / id 欄位型別由 KeyMaterialJdbcRepository.upgradeLegacyColumns 在啟動時檢查並調整
+-- (只在型別不符時執行 ALTER，master_key_alias 等新欄位由 Hibernate 補上)
+
+-- PII 金鑰輪替工作 (last_member_id 為檢查點，重啟後從此繼續)
+CREATE TABLE IF NOT EXISTS key_rotation_jobs (
+                                                 id BIGINT AUTO_INCREMENT PRIMARY KEY,
+                                                 source_key_label VARCHAR(50) NOT NULL, -- 輪替前使用中的金鑰標籤
+    target_key_label VARCHAR(50) NOT NULL, -- 新金鑰標籤
+    status VARCHAR(20) NOT NULL,           -- RUNNING / PAUSED / COMPLETED / FAILED
+    last_member_id BIGINT NOT NULL DEFAULT 0,
+    rotated_rows BIGINT NOT NULL DEFAULT 0,
+    failed_rows BIGINT NOT NULL DEFAULT 0,
+    rows_per_second INT NOT NULL,          -- 節流上限
+    error_message VARCHAR(500),
+    completed_at TIMESTAMP NULL,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
     );
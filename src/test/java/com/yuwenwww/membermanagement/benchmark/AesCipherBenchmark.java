@@ -0,0 +1,100 @@
+package com.yuwenwww.membermanagement.benchmark;
+
+import com.yuwenwww.membermanagement.service.AesCipherEngine;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 比較 email + phone 兩個欄位的 AES/CBC 加解密成本：
+ * 每次呼叫都 Cipher.getInstance + new SecureRandom (舊做法) 與 AesCipherEngine 重複使用 Cipher/DRBG，
+ * 並比較 Bouncy Castle 與 JDK 內建 SunJCE (AES-NI intrinsic) Provider。
+ * 執行方式：./mvnw -Pbenchmark test -Djmh.includes=AesCipherBenchmark
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AesCipherBenchmark {
+
+    private static final String AES_TRANSFORMATION = "AES/CBC/PKCS5Padding";
+
+    @Param({"BC", "SunJCE"})
+    public String provider;
+
+    private AesCipherEngine engine;
+    private SecretKey secretKey;
+    private byte[] email;
+    private byte[] phone;
+    private IvParameterSpec emailIv;
+    private IvParameterSpec phoneIv;
+    private byte[] encryptedEmail;
+    private byte[] encryptedPhone;
+
+    @Setup
+    public void setup() throws Exception {
+        engine = new AesCipherEngine(provider);
+        byte[] keyBytes = new byte[32];
+        new SecureRandom().nextBytes(keyBytes);
+        secretKey = new SecretKeySpec(keyBytes, "AES");
+        email = "benchmark.user@example.com".getBytes(StandardCharsets.UTF_8);
+        phone = "0912345678".getBytes(StandardCharsets.UTF_8);
+        emailIv = new IvParameterSpec(new byte[16]);
+        phoneIv = new IvParameterSpec(new byte[16]);
+        encryptedEmail = engine.doFinal(AES_TRANSFORMATION, Cipher.ENCRYPT_MODE, secretKey, emailIv, email);
+        encryptedPhone = engine.doFinal(AES_TRANSFORMATION, Cipher.ENCRYPT_MODE, secretKey, phoneIv, phone);
+    }
+
+    @Benchmark
+    public void encryptPerCallLookup(Blackhole bh) throws Exception {
+        bh.consume(encryptPerCall(email));
+        bh.consume(encryptPerCall(phone));
+    }
+
+    @Benchmark
+    public void encryptPooled(Blackhole bh) throws Exception {
+        bh.consume(encryptPooled(email));
+        bh.consume(encryptPooled(phone));
+    }
+
+    @Benchmark
+    public void decryptPerCallLookup(Blackhole bh) throws Exception {
+        bh.consume(decryptPerCall(encryptedEmail, emailIv));
+        bh.consume(decryptPerCall(encryptedPhone, phoneIv));
+    }
+
+    @Benchmark
+    public void decryptPooled(Blackhole bh) throws Exception {
+        bh.consume(engine.doFinal(AES_TRANSFORMATION, Cipher.DECRYPT_MODE, secretKey, emailIv, encryptedEmail));
+        bh.consume(engine.doFinal(AES_TRANSFORMATION, Cipher.DECRYPT_MODE, secretKey, phoneIv, encryptedPhone));
+    }
+
+    private byte[] encryptPerCall(byte[] plainText) throws Exception {
+        byte[] iv = new byte[16];
+        new SecureRandom().nextBytes(iv);
+        Cipher cipher = Cipher.getInstance(AES_TRANSFORMATION, provider);
+        cipher.init(Cipher.ENCRYPT_MODE, secretKey, new IvParameterSpec(iv));
+        return cipher.doFinal(plainText);
+    }
+
+    private byte[] encryptPooled(byte[] plainText) throws Exception {
+        byte[] iv = new byte[16];
+        engine.nextBytes(iv);
+        return engine.doFinal(AES_TRANSFORMATION, Cipher.ENCRYPT_MODE, secretKey, new IvParameterSpec(iv), plainText);
+    }
+
+    private byte[] decryptPerCall(byte[] cipherText, IvParameterSpec iv) throws Exception {
+        Cipher cipher = Cipher.getInstance(AES_TRANSFORMATION, provider);
+        cipher.init(Cipher.DECRYPT_MODE, secretKey, iv);
+        return cipher.doFinal(cipherText);
+    }
+}
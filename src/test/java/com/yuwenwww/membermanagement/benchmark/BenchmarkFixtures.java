@@ -0,0 +1,81 @@
+package com.yuwenwww.membermanagement.benchmark;
+
+import com.yuwenwww.membermanagement.entity.KeyMaterial;
+import com.yuwenwww.membermanagement.repository.KeyMaterialRepository;
+import com.yuwenwww.membermanagement.service.AesCbcPiiCodec;
+import com.yuwenwww.membermanagement.service.AesCipherEngine;
+import com.yuwenwww.membermanagement.service.AesGcmPiiCodec;
+import com.yuwenwww.membermanagement.service.EnvelopeKeyService;
+import com.yuwenwww.membermanagement.service.KeyUsageCounter;
+import com.yuwenwww.membermanagement.service.MemberMetrics;
+import com.yuwenwww.membermanagement.service.MemberShardRouter;
+import com.yuwenwww.membermanagement.service.PiiEncryptionService;
+import com.yuwenwww.membermanagement.service.PiiKeyCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * 不啟動 Spring 容器，手動組裝基準測試需要的服務 (key_material 以 Mockito 模擬)。
+ */
+final class BenchmarkFixtures {
+
+    static final String KEY_LABEL = "pii_aes_key";
+    static final long KEY_ID = 1L;
+
+    // 基準測試中的度量只寫入記憶體，與正式環境的 Prometheus registry 記錄成本相近
+    static final MemberMetrics MEMBER_METRICS = new MemberMetrics(new SimpleMeterRegistry());
+
+    private BenchmarkFixtures() {
+    }
+
+    static PiiKeyCache piiKeyCache() {
+        byte[] keyValue = new byte[32];
+        new SecureRandom().nextBytes(keyValue);
+        KeyMaterial keyMaterial = new KeyMaterial(KEY_LABEL, keyValue, new byte[16], 256);
+        keyMaterial.setId(KEY_ID);
+
+        KeyMaterialRepository keyMaterialRepository = Mockito.mock(KeyMaterialRepository.class);
+        Mockito.when(keyMaterialRepository.findByKeyLabel(KEY_LABEL)).thenReturn(Optional.of(keyMaterial));
+        Mockito.when(keyMaterialRepository.findById(KEY_ID)).thenReturn(Optional.of(keyMaterial));
+
+        PiiKeyCache piiKeyCache = new PiiKeyCache();
+        ReflectionTestUtils.setField(piiKeyCache, "keyMaterialRepository", keyMaterialRepository);
+        ReflectionTestUtils.setField(piiKeyCache, "envelopeKeyService", new EnvelopeKeyService()); // 未包裝的金鑰不需要主金鑰
+        ReflectionTestUtils.setField(piiKeyCache, "ttl", Duration.ofHours(1));
+        ReflectionTestUtils.setField(piiKeyCache, "maxEntries", 16);
+        ReflectionTestUtils.setField(piiKeyCache, "memberMetrics", MEMBER_METRICS);
+        ReflectionTestUtils.setField(piiKeyCache, "memberShardRouter", new MemberShardRouter("", 0));
+        return piiKeyCache;
+    }
+
+    /**
+     * @param provider JCE Provider 名稱
+     * @param codec 寫入格式 (gcm 或 cbc)
+     */
+    static PiiEncryptionService piiEncryptionService(String provider, String codec) {
+        PiiKeyCache piiKeyCache = piiKeyCache();
+        AesCipherEngine engine = new AesCipherEngine(provider);
+
+        AesCbcPiiCodec cbcCodec = new AesCbcPiiCodec();
+        ReflectionTestUtils.setField(cbcCodec, "aesCipherEngine", engine);
+        ReflectionTestUtils.setField(cbcCodec, "piiKeyCache", piiKeyCache);
+
+        AesGcmPiiCodec gcmCodec = new AesGcmPiiCodec();
+        ReflectionTestUtils.setField(gcmCodec, "aesCipherEngine", engine);
+        ReflectionTestUtils.setField(gcmCodec, "piiKeyCache", piiKeyCache);
+
+        PiiEncryptionService service = new PiiEncryptionService();
+        ReflectionTestUtils.setField(service, "piiKeyCache", piiKeyCache);
+        ReflectionTestUtils.setField(service, "aesCbcPiiCodec", cbcCodec);
+        ReflectionTestUtils.setField(service, "aesGcmPiiCodec", gcmCodec);
+        ReflectionTestUtils.setField(service, "writeCodec", codec);
+        ReflectionTestUtils.setField(service, "keyUsageCounter", new KeyUsageCounter());
+        ReflectionTestUtils.setField(service, "memberMetrics", MEMBER_METRICS);
+        return service;
+    }
+}
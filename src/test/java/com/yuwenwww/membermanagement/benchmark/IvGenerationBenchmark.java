@@ -0,0 +1,43 @@
+package com.yuwenwww.membermanagement.benchmark;
+
+import com.yuwenwww.membermanagement.service.AesCipherEngine;
+import org.openjdk.jmh.annotations.*;
+
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 比較舊版 MemberService.generateIv (每次 new SecureRandom) 與 AesCipherEngine 共用 DRBG 產生 IV 的成本。
+ * 以多執行緒執行，一併反映 DRBG 分段 (stripe) 的競爭情形。
+ * 執行方式：./mvnw -Pbenchmark test -Djmh.includes=IvGenerationBenchmark
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class IvGenerationBenchmark {
+
+    private AesCipherEngine engine;
+
+    @Setup
+    public void setup() {
+        engine = new AesCipherEngine("SunJCE");
+    }
+
+    @Benchmark
+    public byte[] newSecureRandom() {
+        byte[] iv = new byte[16];
+        new SecureRandom().nextBytes(iv);
+        return iv;
+    }
+
+    @Benchmark
+    public byte[] sharedDrbg() {
+        byte[] iv = new byte[16];
+        engine.nextBytes(iv);
+        return iv;
+    }
+}
@@ -0,0 +1,154 @@
+package com.yuwenwww.membermanagement.benchmark;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.OutputStreamAppender;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.MDC;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 比較多個請求執行緒同時寫日誌時，呼叫端的成本：
+ * show-sql / System.out.println (同步、共用一把鎖)、同步的 logback appender，以及 logback-spring.xml 使用的 AsyncAppender。
+ * 輸出端以 sinkLatencyMicros 模擬 stdout 被終端機、管線或容器日誌驅動拖慢的情況。
+ * AsyncAppender 在佇列滿時會丟棄事件 (neverBlock)，因此它量測的是請求執行緒的成本，而非實際寫出的筆數。
+ * 執行方式：./mvnw -Pbenchmark test -Djmh.includes=LoggingBenchmark
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class LoggingBenchmark {
+
+    private static final String PATTERN = "%d{yyyy-MM-dd'T'HH:mm:ss.SSSXXX} %5p [%t] [%X{correlationId:-}] %-40.40logger{39} : %m%n";
+    private static final String SQL = "select m1_0.id,m1_0.created_at,m1_0.email,m1_0.email_bidx,m1_0.email_iv,m1_0.encryption_key_label,"
+            + "m1_0.password,m1_0.phone_bidx,m1_0.phone_iv,m1_0.phone_number,m1_0.updated_at,m1_0.username from members m1_0 where m1_0.id=?";
+
+    @Param({"0", "20"})
+    public int sinkLatencyMicros;
+
+    private PrintStream stdout;
+    private LoggerContext loggerContext;
+    private Logger syncLogger;
+    private Logger asyncLogger;
+
+    @Setup
+    public void setup() {
+        stdout = new PrintStream(new SlowSink(sinkLatencyMicros), true); // 與 System.out 相同：autoflush、內部同步
+        loggerContext = new LoggerContext();
+        loggerContext.setMDCAdapter(MDC.getMDCAdapter()); // 與 CorrelationIdFilter 寫入的 MDC 共用
+        loggerContext.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME).setLevel(Level.INFO); // 與 logback-spring.xml 相同
+        loggerContext.start();
+
+        syncLogger = loggerContext.getLogger("benchmark.sync");
+        syncLogger.setAdditive(false);
+        syncLogger.addAppender(outputAppender("sync"));
+
+        AsyncAppender async = new AsyncAppender();
+        async.setContext(loggerContext);
+        async.setName("async");
+        async.setQueueSize(8192);
+        async.setNeverBlock(true);
+        async.addAppender(outputAppender("async-delegate"));
+        async.start();
+        asyncLogger = loggerContext.getLogger("benchmark.async");
+        asyncLogger.setAdditive(false);
+        asyncLogger.addAppender(async);
+    }
+
+    @TearDown
+    public void tearDown() {
+        loggerContext.stop();
+    }
+
+    // spring.jpa.show-sql=true 的做法：每條 SQL 以 System.out.println 輸出
+    @Benchmark
+    public void showSqlStdout() {
+        stdout.println("Hibernate: " + SQL);
+    }
+
+    @Benchmark
+    public void syncAppender(RequestContext requestContext) {
+        syncLogger.info("Loaded profile for member ID {}", 42L);
+    }
+
+    @Benchmark
+    public void asyncAppender(RequestContext requestContext) {
+        asyncLogger.info("Loaded profile for member ID {}", 42L);
+    }
+
+    // 未啟用的 DEBUG (例如抽樣比例為 0 的 SQL 記錄)：只剩一次層級檢查
+    @Benchmark
+    public void disabledDebug() {
+        asyncLogger.debug("{}", SQL);
+    }
+
+    private OutputStreamAppender<ILoggingEvent> outputAppender(String name) {
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(loggerContext);
+        encoder.setPattern(PATTERN);
+        encoder.start();
+
+        OutputStreamAppender<ILoggingEvent> appender = new OutputStreamAppender<>();
+        appender.setContext(loggerContext);
+        appender.setName(name);
+        appender.setEncoder(encoder);
+        appender.setOutputStream(new SlowSink(sinkLatencyMicros));
+        appender.start();
+        return appender;
+    }
+
+    /**
+     * 每個 JMH 執行緒模擬一個請求執行緒，MDC 中帶有 correlationId。
+     */
+    @State(Scope.Thread)
+    public static class RequestContext {
+        @Setup
+        public void setup() {
+            MDC.put("correlationId", Long.toHexString(Thread.currentThread().getId()) + "3f2a9c1be4d07a65");
+        }
+
+        @TearDown
+        public void tearDown() {
+            MDC.clear();
+        }
+    }
+
+    /**
+     * 丟棄所有資料，但每次寫入延遲指定的時間。
+     */
+    private static final class SlowSink extends OutputStream {
+        private final long latencyNanos;
+
+        SlowSink(int latencyMicros) {
+            this.latencyNanos = TimeUnit.MICROSECONDS.toNanos(latencyMicros);
+        }
+
+        @Override
+        public void write(int b) {
+            delay();
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            delay();
+        }
+
+        private void delay() {
+            if (latencyNanos > 0) {
+                LockSupport.parkNanos(latencyNanos);
+            }
+        }
+    }
+}
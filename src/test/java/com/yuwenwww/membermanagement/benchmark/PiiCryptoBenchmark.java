@@ -0,0 +1,54 @@
+package com.yuwenwww.membermanagement.benchmark;
+
+import com.yuwenwww.membermanagement.service.EncryptedPii;
+import com.yuwenwww.membermanagement.service.PiiEncryptionService;
+import com.yuwenwww.membermanagement.service.PiiField;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 量測 PiiEncryptionService 的加解密成本 (含金鑰快取查詢與使用次數計數)。
+ * codec=gcm 為目前的寫入格式，cbc 為舊版格式 (IV 另存)。
+ * 執行方式：./mvnw -Pbenchmark test -Djmh.includes=PiiCryptoBenchmark
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PiiCryptoBenchmark {
+
+    @Param({"gcm", "cbc"})
+    public String codec;
+
+    private PiiEncryptionService piiEncryptionService;
+    private byte[] email;
+    private byte[] phone;
+    private EncryptedPii encryptedEmail;
+    private EncryptedPii encryptedPhone;
+
+    @Setup
+    public void setup() throws Exception {
+        piiEncryptionService = BenchmarkFixtures.piiEncryptionService("SunJCE", codec);
+        email = "benchmark.user@example.com".getBytes(StandardCharsets.UTF_8);
+        phone = "0912345678".getBytes(StandardCharsets.UTF_8);
+        encryptedEmail = piiEncryptionService.encrypt(PiiField.EMAIL, email, BenchmarkFixtures.KEY_LABEL);
+        encryptedPhone = piiEncryptionService.encrypt(PiiField.PHONE, phone, BenchmarkFixtures.KEY_LABEL);
+    }
+
+    @Benchmark
+    public void encrypt(Blackhole bh) throws Exception {
+        bh.consume(piiEncryptionService.encrypt(PiiField.EMAIL, email, BenchmarkFixtures.KEY_LABEL));
+        bh.consume(piiEncryptionService.encrypt(PiiField.PHONE, phone, BenchmarkFixtures.KEY_LABEL));
+    }
+
+    @Benchmark
+    public void decrypt(Blackhole bh) throws Exception {
+        bh.consume(piiEncryptionService.decrypt(PiiField.EMAIL, encryptedEmail.data(), encryptedEmail.iv(), BenchmarkFixtures.KEY_LABEL));
+        bh.consume(piiEncryptionService.decrypt(PiiField.PHONE, encryptedPhone.data(), encryptedPhone.iv(), BenchmarkFixtures.KEY_LABEL));
+    }
+}
@@ -0,0 +1,111 @@
+package com.yuwenwww.membermanagement.benchmark;
+
+import com.yuwenwww.membermanagement.dto.MemberProfileResponse;
+import com.yuwenwww.membermanagement.repository.MemberProfileView;
+import com.yuwenwww.membermanagement.repository.MemberRepository;
+import com.yuwenwww.membermanagement.service.EncryptedPii;
+import com.yuwenwww.membermanagement.service.MemberService;
+import com.yuwenwww.membermanagement.service.MemberShardRouter;
+import com.yuwenwww.membermanagement.service.PiiEncryptionService;
+import com.yuwenwww.membermanagement.service.PiiField;
+import com.yuwenwww.membermanagement.service.ReadYourWritesTracker;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 比較前端逐一呼叫 GET /api/members/{id} (N 次 findProfileById + 解密) 與 POST /api/members/batch
+ * (一次 findProfilesByIdIn + 平行解密) 的成本。資料庫以模擬的往返延遲代替 (roundTripMicros)。
+ * 執行方式：./mvnw -Pbenchmark test -Djmh.includes=ProfileLookupBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProfileLookupBenchmark {
+
+    @Param({"50", "200"})
+    public int batchSize;
+
+    @Param({"0", "250"})
+    public long roundTripMicros;
+
+    private MemberService memberService;
+    private List<Long> ids;
+
+    @Setup
+    public void setup() throws Exception {
+        PiiEncryptionService piiEncryptionService = BenchmarkFixtures.piiEncryptionService("SunJCE", "gcm");
+        Map<Long, MemberProfileView> stored = new HashMap<>();
+        ids = new ArrayList<>(batchSize);
+        for (long id = 1; id <= batchSize; id++) {
+            EncryptedPii email = piiEncryptionService.encrypt(PiiField.EMAIL, ("member" + id + "@example.com").getBytes(StandardCharsets.UTF_8), BenchmarkFixtures.KEY_LABEL);
+            EncryptedPii phone = piiEncryptionService.encrypt(PiiField.PHONE, "0912345678".getBytes(StandardCharsets.UTF_8), BenchmarkFixtures.KEY_LABEL);
+            stored.put(id, new MemberProfileView(id, "member" + id, email.data(), email.iv(), phone.data(), phone.iv(),
+                    BenchmarkFixtures.KEY_LABEL, null, null));
+            ids.add(id);
+        }
+
+        // 每次查詢都返回新的投影副本，模擬從資料庫載入
+        MemberRepository memberRepository = Mockito.mock(MemberRepository.class);
+        Mockito.when(memberRepository.findProfileById(Mockito.anyLong())).thenAnswer(invocation -> {
+            simulateRoundTrip();
+            return Optional.ofNullable(stored.get(invocation.<Long>getArgument(0))).map(ProfileLookupBenchmark::copy);
+        });
+        Mockito.when(memberRepository.findProfilesByIdIn(Mockito.any())).thenAnswer(invocation -> {
+            simulateRoundTrip();
+            List<MemberProfileView> result = new ArrayList<>();
+            for (Long id : invocation.<Collection<Long>>getArgument(0)) {
+                MemberProfileView member = stored.get(id);
+                if (member != null) {
+                    result.add(copy(member));
+                }
+            }
+            return result;
+        });
+
+        memberService = new MemberService();
+        ReflectionTestUtils.setField(memberService, "memberRepository", memberRepository);
+        ReflectionTestUtils.setField(memberService, "piiEncryptionService", piiEncryptionService);
+        // 未設定讀取副本與分片：查詢直接在呼叫端執行
+        ReflectionTestUtils.setField(memberService, "readYourWritesTracker", new ReadYourWritesTracker("", Duration.ofSeconds(5), 1));
+        ReflectionTestUtils.setField(memberService, "memberShardRouter", new MemberShardRouter("", 0));
+    }
+
+    @Benchmark
+    public void perIdCalls(Blackhole bh) {
+        for (Long id : ids) {
+            bh.consume(memberService.loadMemberProfile(id));
+        }
+    }
+
+    @Benchmark
+    public List<MemberProfileResponse> batchCall() {
+        return memberService.getMemberProfiles(ids);
+    }
+
+    private void simulateRoundTrip() {
+        if (roundTripMicros > 0) {
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(roundTripMicros));
+        }
+    }
+
+    private static MemberProfileView copy(MemberProfileView source) {
+        return new MemberProfileView(source.id(), source.username(), source.email(), source.emailIv(),
+                source.phoneNumber(), source.phoneIv(), source.encryptionKeyLabel(), source.createdAt(), source.updatedAt());
+    }
+}
@@ -0,0 +1,97 @@
+package com.yuwenwww.membermanagement.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yuwenwww.membermanagement.dto.MemberProfileResponse;
+import com.yuwenwww.membermanagement.repository.MemberProfileView;
+import com.yuwenwww.membermanagement.repository.MemberRepository;
+import com.yuwenwww.membermanagement.service.EncryptedPii;
+import com.yuwenwww.membermanagement.service.MemberProfileCache;
+import com.yuwenwww.membermanagement.service.MemberService;
+import com.yuwenwww.membermanagement.service.MemberShardRouter;
+import com.yuwenwww.membermanagement.service.PiiEncryptionService;
+import com.yuwenwww.membermanagement.service.PiiField;
+import com.yuwenwww.membermanagement.service.ReadYourWritesTracker;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 量測 GET /api/members/{id} 回應的組成成本：MemberProfileView → MemberProfileResponse (含解密)、
+ * 會員資料快取命中時的複製，以及 Jackson 序列化為 JSON。
+ * 執行方式：./mvnw -Pbenchmark test -Djmh.includes=ProfileMappingBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProfileMappingBenchmark {
+
+    private static final Long MEMBER_ID = 1L;
+
+    private MemberService memberService;
+    private ObjectMapper objectMapper;
+    private MemberProfileResponse profile;
+
+    @Setup
+    public void setup() throws Exception {
+        PiiEncryptionService piiEncryptionService = BenchmarkFixtures.piiEncryptionService("SunJCE", "gcm");
+        EncryptedPii email = piiEncryptionService.encrypt(PiiField.EMAIL, "benchmark.user@example.com".getBytes(StandardCharsets.UTF_8), BenchmarkFixtures.KEY_LABEL);
+        EncryptedPii phone = piiEncryptionService.encrypt(PiiField.PHONE, "0912345678".getBytes(StandardCharsets.UTF_8), BenchmarkFixtures.KEY_LABEL);
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        MemberProfileView member = new MemberProfileView(MEMBER_ID, "benchmark.user", email.data(), email.iv(),
+                phone.data(), phone.iv(), BenchmarkFixtures.KEY_LABEL, now, now);
+
+        // stubOnly：不記錄呼叫，盡量降低模擬 repository 本身的成本
+        MemberRepository memberRepository = Mockito.mock(MemberRepository.class, Mockito.withSettings().stubOnly());
+        Mockito.when(memberRepository.findProfileById(MEMBER_ID)).thenReturn(Optional.of(member));
+        Mockito.when(memberRepository.findProfilesByIdIn(Mockito.any())).thenReturn(List.of(member));
+
+        MemberProfileCache memberProfileCache = new MemberProfileCache();
+        ReflectionTestUtils.setField(memberProfileCache, "enabled", true);
+        ReflectionTestUtils.setField(memberProfileCache, "maxEntries", 16);
+        ReflectionTestUtils.setField(memberProfileCache, "ttl", Duration.ofHours(1));
+
+        memberService = new MemberService();
+        ReflectionTestUtils.setField(memberService, "memberRepository", memberRepository);
+        ReflectionTestUtils.setField(memberService, "piiEncryptionService", piiEncryptionService);
+        ReflectionTestUtils.setField(memberService, "memberProfileCache", memberProfileCache);
+        // 未設定讀取副本與分片：查詢直接在呼叫端執行
+        ReflectionTestUtils.setField(memberService, "readYourWritesTracker", new ReadYourWritesTracker("", Duration.ofSeconds(5), 1));
+        ReflectionTestUtils.setField(memberService, "memberShardRouter", new MemberShardRouter("", 0));
+
+        // 與 Spring Boot 自動設定的 ObjectMapper 相同的預設值
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        profile = memberService.getMemberProfile(MEMBER_ID); // 同時放入快取
+    }
+
+    // 快取未命中的路徑：解密 email / phone 並建立 DTO
+    @Benchmark
+    public List<MemberProfileResponse> mapDecrypted() {
+        return memberService.getMemberProfiles(List.of(MEMBER_ID));
+    }
+
+    @Benchmark
+    public MemberProfileResponse mapCached() {
+        return memberService.getMemberProfile(MEMBER_ID);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws Exception {
+        return objectMapper.writeValueAsBytes(profile);
+    }
+
+    @Benchmark
+    public byte[] mapDecryptedAndSerialize() throws Exception {
+        return objectMapper.writeValueAsBytes(memberService.getMemberProfiles(List.of(MEMBER_ID)).get(0));
+    }
+}
@@ -0,0 +1,111 @@
+package com.yuwenwww.membermanagement.config;
+
+import com.yuwenwww.membermanagement.dto.MemberUpdateRequest;
+import com.yuwenwww.membermanagement.entity.Member;
+import com.yuwenwww.membermanagement.service.AuthenticatedCredentialCache;
+import com.yuwenwww.membermanagement.service.KeyRotationService;
+import com.yuwenwww.membermanagement.service.MemberService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 認證快取以登入時輸入的名稱為鍵：以大小寫不同的 email 登入後變更密碼，舊密碼必須立即失效，
+ * 快取命中時的 principal 也必須是會員的用戶名。舊雜湊在驗證成功後升級。
+ */
+@SpringBootTest
+@ActiveProfiles("loadtest")
+class CachingAuthenticationProviderTest {
+
+    @Autowired
+    private CachingAuthenticationProvider authenticationProvider;
+
+    @Autowired
+    private AuthenticatedCredentialCache credentialCache;
+
+    @Autowired
+    private MemberService memberService;
+
+    @Autowired
+    private KeyRotationService keyRotationService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void oldPasswordIsRejectedAfterPasswordChangeForEveryLoginName() {
+        Member member = new Member();
+        member.setUsername("cache_owner");
+        member.setPassword("old-pass");
+        member.setEmail("cache.owner@example.com".getBytes(StandardCharsets.UTF_8));
+        member = memberService.registerNewMember(member, keyRotationService.getActiveKeyLabel());
+
+        String mixedCaseEmail = "Cache.Owner@Example.COM";
+        assertThat(authenticate(mixedCaseEmail, "old-pass").getName()).isEqualTo("cache_owner");
+        long hits = credentialCache.getHitCount();
+        assertThat(authenticate(mixedCaseEmail, "old-pass").getName()).as("cached principal").isEqualTo("cache_owner");
+        assertThat(credentialCache.getHitCount()).isEqualTo(hits + 1);
+
+        MemberUpdateRequest request = new MemberUpdateRequest();
+        request.setPassword("new-pass");
+        memberService.updateMember(member.getId(), request, keyRotationService.getActiveKeyLabel());
+
+        assertThatThrownBy(() -> authenticate(mixedCaseEmail, "old-pass")).isInstanceOf(BadCredentialsException.class);
+        assertThatThrownBy(() -> authenticate("cache_owner", "old-pass")).isInstanceOf(BadCredentialsException.class);
+        assertThat(authenticate(mixedCaseEmail, "new-pass").getName()).isEqualTo("cache_owner");
+    }
+
+    @Test
+    void loginThatLoadedTheOldHashCannotCacheItAfterPasswordChange() {
+        Member member = new Member();
+        member.setUsername("racing_login");
+        member.setPassword("old-pass");
+        member = memberService.registerNewMember(member, keyRotationService.getActiveKeyLabel());
+
+        // 登入已讀到舊雜湊並驗證成功，但在寫入快取前密碼被變更 (失效在提交後執行)
+        long loadSequence = credentialCache.beginLoad();
+        MemberUpdateRequest request = new MemberUpdateRequest();
+        request.setPassword("new-pass");
+        memberService.updateMember(member.getId(), request, keyRotationService.getActiveKeyLabel());
+        credentialCache.put("racing_login", "old-pass", "racing_login", List.of(), loadSequence);
+
+        assertThat(credentialCache.lookup("racing_login", "old-pass")).isEmpty();
+        assertThatThrownBy(() -> authenticate("racing_login", "old-pass")).isInstanceOf(BadCredentialsException.class);
+
+        // 失效之後才開始的載入照常寫入
+        credentialCache.put("racing_login", "new-pass", "racing_login", List.of(), credentialCache.beginLoad());
+        assertThat(credentialCache.lookup("racing_login", "new-pass")).isPresent();
+    }
+
+    @Test
+    void legacyHashIsUpgradedAfterSuccessfulLogin() {
+        Member member = new Member();
+        member.setUsername("legacy_hash_owner");
+        member.setPassword("legacy-pass");
+        memberService.registerNewMember(member, keyRotationService.getActiveKeyLabel());
+        // 加入 {bcrypt} 前綴前、以較低 cost 產生的雜湊
+        jdbcTemplate.update("UPDATE members SET password = ? WHERE username = ?",
+                new BCryptPasswordEncoder(4).encode("legacy-pass"), "legacy_hash_owner");
+
+        assertThat(authenticate("legacy_hash_owner", "legacy-pass").getName()).isEqualTo("legacy_hash_owner");
+        String upgraded = jdbcTemplate.queryForObject("SELECT password FROM members WHERE username = ?",
+                String.class, "legacy_hash_owner");
+        assertThat(upgraded).startsWith("{bcrypt}$2a$10$");
+    }
+
+    private Authentication authenticate(String loginName, String password) {
+        return authenticationProvider.authenticate(UsernamePasswordAuthenticationToken.unauthenticated(loginName, password));
+    }
+}
@@ -0,0 +1,128 @@
+package com.yuwenwww.membermanagement.config;
+
+import com.yuwenwww.membermanagement.dto.MemberProfileResponse;
+import com.yuwenwww.membermanagement.entity.Member;
+import com.yuwenwww.membermanagement.service.KeyRotationService;
+import com.yuwenwww.membermanagement.service.MemberService;
+import com.yuwenwww.membermanagement.service.MemberShardRouter;
+import com.yuwenwww.membermanagement.service.SnowflakeIdGenerator;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 以三個 H2 記憶體資料庫作為會員分片：會員依用戶名寫入單一分片、ID 帶有分片編號，
+ * 依 ID / 用戶名的查詢只存取該分片，管理員列表與 email 唯一性檢查查詢所有分片。
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:shard0" + MemberShardingTest.H2_OPTIONS,
+        "member.sharding.additional-shard-urls=" + MemberShardingTest.SHARD1_URL + "," + MemberShardingTest.SHARD2_URL
+})
+@ActiveProfiles("loadtest")
+class MemberShardingTest {
+
+    static final String H2_OPTIONS = ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;CASE_INSENSITIVE_IDENTIFIERS=TRUE;DB_CLOSE_DELAY=-1";
+    static final String SHARD1_URL = "jdbc:h2:mem:shard1" + H2_OPTIONS;
+    static final String SHARD2_URL = "jdbc:h2:mem:shard2" + H2_OPTIONS;
+
+    @Autowired
+    private MemberService memberService;
+
+    @Autowired
+    private MemberShardRouter memberShardRouter;
+
+    @Autowired
+    private KeyRotationService keyRotationService;
+
+    @Test
+    void membersAreRoutedByUsernameAndIdEncodesShard() {
+        assertThat(memberShardRouter.getShardCount()).isEqualTo(3);
+        List<Member> registered = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            registered.add(register("routed_" + i, "routed_" + i + "@example.com"));
+        }
+
+        for (Member member : registered) {
+            int shard = memberShardRouter.shardForUsername(member.getUsername());
+            assertThat(SnowflakeIdGenerator.shardOf(member.getId())).isEqualTo(shard);
+            for (int other = 0; other < 3; other++) {
+                assertThat(countOnShard(other, member.getUsername())).isEqualTo(other == shard ? 1 : 0);
+            }
+            assertThat(memberService.getMemberProfile(member.getId()).getEmail()).isEqualTo(member.getUsername() + "@example.com");
+            assertThat(memberService.validateMember(member.getUsername(), "shard-pass")).isPresent();
+        }
+        assertThat(registered.stream().map(member -> memberShardRouter.shardForUsername(member.getUsername())).distinct().count())
+                .as("shards used by 12 usernames")
+                .isGreaterThan(1);
+    }
+
+    @Test
+    void usernamesDifferingOnlyInCaseShareAShard() {
+        // 同一分片內由 members.username 的唯一索引 (MySQL 預設定序不分大小寫) 擋下
+        assertThat(memberShardRouter.shardForUsername("CaseUser")).isEqualTo(memberShardRouter.shardForUsername("caseuser"));
+    }
+
+    @Test
+    void emailUniquenessIsCheckedOnAllShards() {
+        Member first = register("email_owner", "shared@example.com");
+        String otherShardUsername = usernameOnOtherShard(memberShardRouter.shardForUsername(first.getUsername()));
+        assertThatThrownBy(() -> register(otherShardUsername, "shared@example.com")).hasMessageContaining("Email already registered");
+        assertThat(memberService.findProfilesByEmail("SHARED@example.com")).extracting(MemberProfileResponse::getId)
+                .containsExactly(first.getId());
+    }
+
+    @Test
+    void adminListingMergesAllShardsInIdOrder() {
+        for (int i = 0; i < 9; i++) {
+            register("listed_" + i, null);
+        }
+        List<Long> ids = new ArrayList<>();
+        long afterId = 0;
+        List<MemberProfileResponse> page;
+        do {
+            page = memberService.listProfiles(afterId, 4);
+            page.forEach(profile -> ids.add(profile.getId()));
+            if (!page.isEmpty()) {
+                afterId = page.get(page.size() - 1).getId();
+            }
+        } while (page.size() == 4);
+
+        long total = memberService.countMembersPerShard().stream().mapToLong(Long::longValue).sum();
+        assertThat(ids).hasSize((int) total).isSorted().doesNotHaveDuplicates();
+        assertThat(memberService.countMembersPerShard()).filteredOn(count -> count > 0).hasSizeGreaterThan(1);
+    }
+
+    private Member register(String username, String email) {
+        Member member = new Member();
+        member.setUsername(username);
+        member.setPassword("shard-pass");
+        member.setEmail(email != null ? email.getBytes(StandardCharsets.UTF_8) : null);
+        return memberService.registerNewMember(member, keyRotationService.getActiveKeyLabel());
+    }
+
+    private String usernameOnOtherShard(int shard) {
+        for (int i = 0; ; i++) {
+            String candidate = "other_" + i;
+            if (memberShardRouter.shardForUsername(candidate) != shard) {
+                return candidate;
+            }
+        }
+    }
+
+    // 直接連到分片的資料庫計數，不經過應用程式的路由
+    private static int countOnShard(int shard, String username) {
+        String url = shard == 0 ? "jdbc:h2:mem:shard0" + H2_OPTIONS : shard == 1 ? SHARD1_URL : SHARD2_URL;
+        return new JdbcTemplate(new DriverManagerDataSource(url, "sa", ""))
+                .queryForObject("SELECT COUNT(*) FROM members WHERE username = ?", Integer.class, username);
+    }
+}
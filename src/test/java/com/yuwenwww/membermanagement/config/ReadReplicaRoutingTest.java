@@ -0,0 +1,103 @@
+package com.yuwenwww.membermanagement.config;
+
+import com.yuwenwww.membermanagement.entity.Member;
+import com.yuwenwww.membermanagement.repository.MemberRepository;
+import com.yuwenwww.membermanagement.service.KeyRotationService;
+import com.yuwenwww.membermanagement.service.MemberService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 以兩個 H2 記憶體資料庫 (主庫與讀取副本，之間沒有複寫) 驗證讀寫分離：
+ * 唯讀查詢走副本、剛寫入的會員在 read-your-writes 視窗內走主庫、副本故障時改走主庫。
+ */
+@SpringBootTest(properties = "member.datasource.replica-health-interval=PT1H") // 健康檢查由測試直接呼叫
+@ActiveProfiles("loadtest")
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class ReadReplicaRoutingTest {
+
+    private static final String H2_OPTIONS = ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;CASE_INSENSITIVE_IDENTIFIERS=TRUE;DB_CLOSE_DELAY=-1";
+    private static final String REPLICA_URL = "jdbc:h2:mem:replicadb" + H2_OPTIONS;
+
+    // 副本先在測試中建立並套用 schema.sql；應用程式以 IFEXISTS 連線，副本關閉後就無法再連上 (模擬故障)
+    private static final SingleConnectionDataSource replica =
+            new SingleConnectionDataSource(REPLICA_URL + ";INIT=RUNSCRIPT FROM 'classpath:schema.sql'", "sa", "", true);
+
+    @Autowired
+    private MemberRepository memberRepository;
+
+    @Autowired
+    private MemberService memberService;
+
+    @Autowired
+    private KeyRotationService keyRotationService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ReplicaRoutingDataSource replicaRoutingDataSource;
+
+    @DynamicPropertySource
+    static void dataSources(DynamicPropertyRegistry registry) {
+        new JdbcTemplate(replica).execute("SELECT 1");
+        registry.add("spring.datasource.url", () -> "jdbc:h2:mem:primarydb" + H2_OPTIONS);
+        registry.add("member.datasource.replica-urls", () -> REPLICA_URL + ";IFEXISTS=TRUE");
+    }
+
+    @AfterAll
+    static void closeReplica() {
+        replica.destroy();
+    }
+
+    @Test
+    @Order(1)
+    void readOnlyQueriesGoToReplica() {
+        new JdbcTemplate(replica).update("INSERT INTO members (username, password) VALUES ('replica_only', 'x')");
+        jdbcTemplate.update("INSERT INTO members (username, password) VALUES ('primary_only', 'x')"); // 非唯讀：走主庫
+
+        assertThat(memberRepository.findByUsername("replica_only")).isPresent();
+        assertThat(memberRepository.findByUsername("primary_only")).isEmpty(); // 副本尚未「複寫」
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM members WHERE username = 'replica_only'", Integer.class))
+                .isZero();
+    }
+
+    @Test
+    @Order(2)
+    void recentlyRegisteredMemberIsReadFromPrimary() {
+        Member member = new Member();
+        member.setUsername("fresh_member");
+        member.setPassword("fresh-pass");
+        member.setEmail("fresh@example.com".getBytes(StandardCharsets.UTF_8));
+        Member registered = memberService.registerNewMember(member, keyRotationService.getActiveKeyLabel());
+
+        assertThat(memberService.validateMember("fresh_member", "fresh-pass")).isPresent();
+        assertThat(memberService.getMemberProfile(registered.getId()).getEmail()).isEqualTo("fresh@example.com");
+        assertThat(replicaRoutingDataSource.getReadYourWritesRouteCount()).isPositive();
+    }
+
+    @Test
+    @Order(3)
+    void failsOverToPrimaryWhenReplicaIsDown() {
+        new JdbcTemplate(replica).execute("SHUTDOWN");
+        replicaRoutingDataSource.checkHealth();
+
+        assertThat(replicaRoutingDataSource.getHealthyReplicaCount()).isZero();
+        assertThat(memberRepository.findByUsername("primary_only")).isPresent();
+        assertThat(replicaRoutingDataSource.getPrimaryFallbackCount()).isPositive();
+    }
+}
@@ -0,0 +1,93 @@
+package com.yuwenwww.membermanagement.controller;
+
+import com.yuwenwww.membermanagement.dto.ImportReport;
+import com.yuwenwww.membermanagement.entity.Member;
+import com.yuwenwww.membermanagement.service.KeyRotationService;
+import com.yuwenwww.membermanagement.service.MemberImportService;
+import com.yuwenwww.membermanagement.service.MemberService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * 本人檢查：用戶名恰好等於他人 email 的會員 (例如 '@' 限制加入前的舊資料) 不可修改或刪除該會員；
+ * 新的用戶名 (註冊與匯入) 不可含 '@'。
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("loadtest")
+class MemberControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MemberService memberService;
+
+    @Autowired
+    private MemberImportService memberImportService;
+
+    @Autowired
+    private KeyRotationService keyRotationService;
+
+    @Test
+    void memberNamedAfterAnotherMembersEmailCannotUpdateOrDeleteThem() throws Exception {
+        Member victim = register("owner_victim", "victim.owner@example.com");
+        register("victim.owner@example.com", null);
+
+        mockMvc.perform(patch("/api/members/{id}", victim.getId())
+                        .with(httpBasic("victim.owner@example.com", "attack-pass"))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"phoneNumber\":\"0900000000\"}"))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(delete("/api/members/{id}", victim.getId())
+                        .with(httpBasic("victim.owner@example.com", "attack-pass")))
+                .andExpect(status().isForbidden());
+
+        mockMvc.perform(patch("/api/members/{id}", victim.getId())
+                        .with(httpBasic("owner_victim", "attack-pass"))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"phoneNumber\":\"0900000000\"}"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void usernamesContainingAtSignAreRejectedOnRegisterAndImport() throws Exception {
+        mockMvc.perform(post("/api/members/register")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"username\":\"someone@example.com\",\"password\":\"attack-pass\"}"))
+                .andExpect(status().isBadRequest());
+
+        String csv = "username,password\nimported@example.com,attack-pass\n";
+        ImportReport report = memberImportService.importMembers(
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), MemberImportService.Format.CSV,
+                keyRotationService.getActiveKeyLabel());
+        assertThat(report.getImportedRows()).isZero();
+        assertThat(report.getErrors()).singleElement()
+                .satisfies(error -> assertThat(error.getMessage()).isEqualTo("Username must not contain '@'"));
+    }
+
+    private Member register(String username, String email) {
+        Member member = new Member();
+        member.setUsername(username);
+        member.setPassword("attack-pass");
+        if (email != null) {
+            member.setEmail(email.getBytes(StandardCharsets.UTF_8));
+        }
+        return memberService.registerNewMember(member, keyRotationService.getActiveKeyLabel());
+    }
+}
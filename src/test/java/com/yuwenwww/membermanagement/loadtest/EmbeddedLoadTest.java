@@ -0,0 +1,103 @@
+package com.yuwenwww.membermanagement.loadtest;
+
+import com.yuwenwww.membermanagement.entity.Member;
+import com.yuwenwww.membermanagement.service.KeyRotationService;
+import com.yuwenwww.membermanagement.service.MemberService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 不需要 MySQL 的端對端負載測試：以 H2 (MySQL 相容模式) 啟動完整應用程式，
+ * 經由 MemberService.registerNewMember 建立種子會員後，對 /api/members/register 與 /api/members/{id}
+ * 送出混合流量，輸出各端點的吞吐量與 p50/p95/p99 延遲。
+ * <p>
+ * 執行：./mvnw -Pload-test-embedded test (可加上 -Dload.concurrency=32 -Dload.mix=register=2,profile=6,login=2 等參數)
+ * 設定 load.maxP99Millis 或 load.maxErrorRate 時，超過門檻即測試失敗，可作為效能關卡。
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("loadtest")
+@EnabledIfSystemProperty(named = "load.embedded", matches = "true")
+class EmbeddedLoadTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private MemberService memberService;
+
+    @Autowired
+    private KeyRotationService keyRotationService;
+
+    @Test
+    void mixedTraffic() throws Exception {
+        int concurrency = Integer.getInteger("load.concurrency", 32);
+        Duration duration = Duration.parse(System.getProperty("load.duration", "PT20S"));
+        Duration warmup = Duration.parse(System.getProperty("load.warmup", "PT5S"));
+        int seedMembers = Integer.getInteger("load.seedMembers", 200);
+        Map<String, Integer> weights = HttpLoadDriver.parseMix(System.getProperty("load.mix", "register=2,profile=6,login=2"));
+        double maxP99Millis = Double.parseDouble(System.getProperty("load.maxP99Millis", "0"));
+        double maxErrorRate = Double.parseDouble(System.getProperty("load.maxErrorRate", "0.01"));
+        Path result = Path.of(System.getProperty("load.result", "target/load-result-embedded.json"));
+
+        String baseUrl = "http://localhost:" + port;
+        HttpLoadDriver driver = new HttpLoadDriver(baseUrl, "testuser", "testpass");
+        seed(driver, seedMembers);
+
+        driver.runMix(weights, concurrency, warmup); // 暖機結果不計入
+        Map<String, Map<String, Object>> results = driver.runMix(weights, concurrency, duration);
+        results.forEach((name, summary) -> System.out.printf("%-10s %s%n", name, summary));
+        HttpLoadDriver.writeReport(result, "embedded", baseUrl, concurrency, duration, results);
+
+        results.forEach((name, summary) -> {
+            long requests = ((Number) summary.get("requests")).longValue();
+            long errors = ((Number) summary.get("errors")).longValue();
+            assertThat(requests).as("requests for %s", name).isPositive();
+            assertThat((double) errors / requests).as("error rate for %s", name).isLessThanOrEqualTo(maxErrorRate);
+            if (maxP99Millis > 0) {
+                assertThat(((Number) summary.get("p99Millis")).doubleValue()).as("p99 for %s", name).isLessThanOrEqualTo(maxP99Millis);
+            }
+        });
+    }
+
+    // 經由正式的註冊流程 (BCrypt、PII 加密、盲索引) 建立會員；BCrypt 較慢，以 CPU 核心數平行執行
+    private void seed(HttpLoadDriver driver, int count) throws Exception {
+        String keyLabel = keyRotationService.getActiveKeyLabel();
+        ExecutorService seeders = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        try {
+            List<Future<Member>> futures = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                String username = "seed_" + i;
+                futures.add(seeders.submit(() -> {
+                    Member member = new Member();
+                    member.setUsername(username);
+                    member.setPassword(HttpLoadDriver.MEMBER_PASSWORD);
+                    member.setEmail((username + "@example.com").getBytes(StandardCharsets.UTF_8));
+                    member.setPhoneNumber("0912345678".getBytes(StandardCharsets.UTF_8));
+                    return memberService.registerNewMember(member, keyLabel);
+                }));
+            }
+            for (Future<Member> future : futures) {
+                Member member = future.get();
+                driver.addSeededMember(member.getId(), member.getUsername());
+            }
+        } finally {
+            seeders.shutdown();
+        }
+    }
+}
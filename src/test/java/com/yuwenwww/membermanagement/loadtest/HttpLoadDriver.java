@@ -0,0 +1,269 @@
+package com.yuwenwww.membermanagement.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 對執行中的應用程式施加 HTTP 負載，量測 register / profile / login 的吞吐量與 p50/p95/p99 延遲。
+ * 用於比較不同設定 (例如執行緒池大小、日後在 Java 21 上的虛擬執行緒)：每種設定啟動一次應用程式，
+ * 以相同參數與不同的 load.label 各執行一次，比較輸出的 JSON。
+ * <p>
+ * 執行：./mvnw -Pload-test test -Dload.baseUrl=http://localhost:8080 -Dload.label=baseline
+ * 預設依序執行各情境；指定 -Dload.mix=register=2,profile=6,login=2 時改為依權重同時執行的混合流量。
+ * 不需要外部伺服器與 MySQL 的版本見 EmbeddedLoadTest。
+ * <ul>
+ *     <li>register：以不重複的用戶名呼叫 POST /api/members/register (BCrypt + 加密 + INSERT)</li>
+ *     <li>profile：以管理員帳號 GET /api/members/{id} (認證快取命中，主要量測查詢與解密)</li>
+ *     <li>login：以隨機的已註冊會員帳密 GET /api/members/{id}；要量測每次都執行 BCrypt 的登入，
+ *     應用程式請以 member.auth-cache.ttl=PT0S 啟動</li>
+ * </ul>
+ */
+public final class HttpLoadDriver {
+
+    private static final Pattern REGISTERED_ID = Pattern.compile("ID: (\\d+)");
+    static final String MEMBER_PASSWORD = "loadtest-pass";
+
+    private final HttpClient client;
+    private final String baseUrl;
+    private final String adminAuthorization;
+    private final String runId = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong usernameSequence = new AtomicLong();
+    private final List<SeededMember> seededMembers = new ArrayList<>();
+
+    private record SeededMember(long id, String authorization) {
+    }
+
+    HttpLoadDriver(String baseUrl, String adminUser, String adminPassword) {
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        this.baseUrl = baseUrl;
+        this.adminAuthorization = basic(adminUser, adminPassword);
+    }
+
+    public static void main(String[] args) throws Exception {
+        String baseUrl = System.getProperty("load.baseUrl", "http://localhost:8080");
+        int concurrency = Integer.getInteger("load.concurrency", 64);
+        Duration duration = Duration.parse(System.getProperty("load.duration", "PT30S"));
+        Duration warmup = Duration.parse(System.getProperty("load.warmup", "PT10S"));
+        int seedMembers = Integer.getInteger("load.seedMembers", 200);
+        String[] scenarios = System.getProperty("load.scenarios", "register,profile,login").split(",");
+        String mix = System.getProperty("load.mix");
+        String label = System.getProperty("load.label", "default");
+        Path result = Path.of(System.getProperty("load.result", "target/load-result.json"));
+
+        HttpLoadDriver driver = new HttpLoadDriver(baseUrl,
+                System.getProperty("load.adminUser", "testuser"), System.getProperty("load.adminPassword", "testpass"));
+        driver.seed(seedMembers);
+
+        Map<String, Object> results = new LinkedHashMap<>();
+        if (mix != null && !mix.isBlank()) {
+            // 混合流量：所有情境同時執行，依權重分配請求
+            Map<String, Integer> weights = parseMix(mix);
+            driver.runMix(weights, concurrency, warmup); // 暖機結果不計入
+            results.putAll(driver.runMix(weights, concurrency, duration));
+        } else {
+            for (String scenario : scenarios) {
+                Map<String, Integer> single = Map.of(scenario.trim(), 1);
+                driver.runMix(single, concurrency, warmup);
+                results.putAll(driver.runMix(single, concurrency, duration));
+            }
+        }
+        results.forEach((name, summary) -> System.out.printf("%-10s %s%n", name, summary));
+        writeReport(result, label, baseUrl, concurrency, duration, results);
+    }
+
+    /**
+     * 將結果寫成 JSON，方便比較不同版本或不同執行緒模式的結果。
+     */
+    static void writeReport(Path result, String label, String baseUrl, int concurrency, Duration duration,
+                            Map<String, ?> scenarios) throws IOException {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("label", label);
+        report.put("baseUrl", baseUrl);
+        report.put("concurrency", concurrency);
+        report.put("durationSeconds", duration.toSeconds());
+        report.put("scenarios", scenarios);
+        Files.createDirectories(result.toAbsolutePath().getParent());
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(result.toFile(), report);
+        System.out.println("Results written to " + result);
+    }
+
+    /**
+     * 透過註冊 API 建立 login / profile 情境使用的會員。
+     * @param count 會員數
+     */
+    private void seed(int count) throws IOException, InterruptedException {
+        for (int i = 0; i < count; i++) {
+            String username = nextUsername();
+            HttpResponse<String> response = send(registerRequest(username));
+            Matcher matcher = REGISTERED_ID.matcher(response.body());
+            if (response.statusCode() == 201 && matcher.find()) {
+                addSeededMember(Long.parseLong(matcher.group(1)), username);
+            }
+        }
+        if (seededMembers.isEmpty()) {
+            throw new IllegalStateException("Failed to seed members against " + baseUrl);
+        }
+        System.out.printf("Seeded %d members%n", seededMembers.size());
+    }
+
+    /**
+     * 在指定時間內以固定數量的工作執行緒送出請求，每個請求依權重隨機選擇情境。
+     * @param weights 情境名稱與權重，例如 register=2, profile=6, login=2
+     * @param concurrency 工作執行緒數
+     * @param duration 執行時間
+     * @return 各情境的請求數、錯誤數、吞吐量與延遲百分位數
+     */
+    Map<String, Map<String, Object>> runMix(Map<String, Integer> weights, int concurrency, Duration duration) throws Exception {
+        List<String> scenarios = new ArrayList<>(weights.keySet());
+        int[] cumulativeWeights = new int[scenarios.size()];
+        int totalWeight = 0;
+        for (int i = 0; i < scenarios.size(); i++) {
+            totalWeight += weights.get(scenarios.get(i));
+            cumulativeWeights[i] = totalWeight;
+        }
+        int weightSum = totalWeight;
+
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+        long start = System.nanoTime();
+        long deadline = start + duration.toNanos();
+        List<Future<LatencyRecorder[]>> futures = new ArrayList<>(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            futures.add(workers.submit(() -> {
+                LatencyRecorder[] recorders = newRecorders(scenarios.size());
+                while (System.nanoTime() < deadline) {
+                    int scenario = pick(cumulativeWeights, ThreadLocalRandom.current().nextInt(weightSum));
+                    HttpRequest request = request(scenarios.get(scenario));
+                    long requestStart = System.nanoTime();
+                    boolean success;
+                    try {
+                        int status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                        success = status >= 200 && status < 300;
+                    } catch (IOException e) {
+                        success = false;
+                    }
+                    recorders[scenario].record(System.nanoTime() - requestStart, success);
+                }
+                return recorders;
+            }));
+        }
+        LatencyRecorder[] totals = newRecorders(scenarios.size());
+        for (Future<LatencyRecorder[]> future : futures) {
+            LatencyRecorder[] recorders = future.get();
+            for (int i = 0; i < totals.length; i++) {
+                totals[i].merge(recorders[i]);
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        workers.shutdown();
+
+        Map<String, Map<String, Object>> summaries = new LinkedHashMap<>();
+        for (int i = 0; i < scenarios.size(); i++) {
+            summaries.put(scenarios.get(i), totals[i].summarize(elapsed));
+        }
+        return summaries;
+    }
+
+    /**
+     * 加入一位已註冊的會員，供 profile / login 情境使用。
+     * @param id 會員 ID
+     * @param username 用戶名 (密碼須為 MEMBER_PASSWORD)
+     */
+    void addSeededMember(long id, String username) {
+        seededMembers.add(new SeededMember(id, basic(username, MEMBER_PASSWORD)));
+    }
+
+    /**
+     * @param mix 例如 "register=2,profile=6,login=2"
+     * @return 情境名稱與權重
+     */
+    static Map<String, Integer> parseMix(String mix) {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split("=");
+            weights.put(parts[0].trim(), parts.length > 1 ? Integer.parseInt(parts[1].trim()) : 1);
+        }
+        return weights;
+    }
+
+    private static LatencyRecorder[] newRecorders(int size) {
+        LatencyRecorder[] recorders = new LatencyRecorder[size];
+        for (int i = 0; i < size; i++) {
+            recorders[i] = new LatencyRecorder();
+        }
+        return recorders;
+    }
+
+    private static int pick(int[] cumulativeWeights, int value) {
+        int index = 0;
+        while (value >= cumulativeWeights[index]) {
+            index++;
+        }
+        return index;
+    }
+
+    private HttpRequest request(String scenario) {
+        // 每個工作執行緒只讀取，種子會員在施壓前已全部加入
+        SeededMember member = seededMembers.get(ThreadLocalRandom.current().nextInt(seededMembers.size()));
+        return switch (scenario) {
+            case "register" -> registerRequest(nextUsername());
+            case "profile" -> get("/api/members/" + member.id(), adminAuthorization);
+            case "login" -> get("/api/members/" + member.id(), member.authorization());
+            default -> throw new IllegalArgumentException("Unknown scenario: " + scenario);
+        };
+    }
+
+    private HttpRequest registerRequest(String username) {
+        String body = "{\"username\":\"" + username + "\",\"password\":\"" + MEMBER_PASSWORD + "\","
+                + "\"email\":\"" + username + "@example.com\",\"phoneNumber\":\"0912345678\"}";
+        return HttpRequest.newBuilder(URI.create(baseUrl + "/api/members/register"))
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private HttpRequest get(String path, String authorization) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(Duration.ofSeconds(30))
+                .header("Authorization", authorization)
+                .GET()
+                .build();
+    }
+
+    private HttpResponse<String> send(HttpRequest request) throws IOException, InterruptedException {
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private String nextUsername() {
+        return "lt" + runId + "_" + usernameSequence.incrementAndGet();
+    }
+
+    private static String basic(String username, String password) {
+        return "Basic " + Base64.getEncoder().encodeToString((username + ":" + password).getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,62 @@
+package com.yuwenwww.membermanagement.loadtest;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 單一情境的延遲紀錄 (每個工作執行緒各自一份，結束後再合併)，計算吞吐量與百分位數。
+ */
+final class LatencyRecorder {
+
+    private long[] latencies = new long[1024];
+    private int count;
+    private long errors;
+
+    void record(long nanos, boolean success) {
+        if (!success) {
+            errors++;
+        }
+        if (count == latencies.length) {
+            latencies = Arrays.copyOf(latencies, count * 2);
+        }
+        latencies[count++] = nanos;
+    }
+
+    void merge(LatencyRecorder other) {
+        for (int i = 0; i < other.count; i++) {
+            record(other.latencies[i], true);
+        }
+        errors += other.errors;
+    }
+
+    /**
+     * @param elapsedNanos 情境的實際執行時間
+     * @return 請求數、錯誤數、吞吐量與 p50/p95/p99/max (毫秒)
+     */
+    Map<String, Object> summarize(long elapsedNanos) {
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("requests", count);
+        summary.put("errors", errors);
+        summary.put("throughputPerSec", round(count / (elapsedNanos / 1_000_000_000.0)));
+        summary.put("p50Millis", percentileMillis(sorted, 0.50));
+        summary.put("p95Millis", percentileMillis(sorted, 0.95));
+        summary.put("p99Millis", percentileMillis(sorted, 0.99));
+        summary.put("maxMillis", sorted.length == 0 ? 0 : round(sorted[sorted.length - 1] / 1_000_000.0));
+        return summary;
+    }
+
+    private static double percentileMillis(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return round(sorted[Math.max(0, index)] / 1_000_000.0);
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+}
@@ -0,0 +1,172 @@
+package com.yuwenwww.membermanagement.service;
+
+import com.yuwenwww.membermanagement.dto.MemberUpdateRequest;
+import com.yuwenwww.membermanagement.entity.KeyRotationJob;
+import com.yuwenwww.membermanagement.entity.Member;
+import com.yuwenwww.membermanagement.repository.KeyRotationJobRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * PII 金鑰輪替：批次重新加密、檢查點、暫停後從檢查點繼續，
+ * 以及其他實例以舊金鑰改寫已走訪資料列時的最後檢查與寫入金鑰標籤的 TTL。
+ */
+@SpringBootTest
+@ActiveProfiles("keyrotation")
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class KeyRotationServiceTest {
+
+    private static final int MEMBERS = 7;
+
+    @Autowired
+    private KeyRotationService keyRotationService;
+
+    @Autowired
+    private KeyRotationJobRepository keyRotationJobRepository;
+
+    @Autowired
+    private MemberService memberService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private static boolean seeded;
+
+    @BeforeEach
+    void seedMembers() {
+        if (seeded) {
+            return;
+        }
+        for (int i = 0; i < MEMBERS; i++) {
+            Member member = new Member();
+            member.setUsername("rotated_" + i);
+            member.setPassword("rotate-pass");
+            member.setEmail(("rotated_" + i + "@example.com").getBytes(StandardCharsets.UTF_8));
+            member.setPhoneNumber(("091234567" + i).getBytes(StandardCharsets.UTF_8));
+            memberService.registerNewMember(member, keyRotationService.getActiveKeyLabel());
+        }
+        seeded = true;
+    }
+
+    @Test
+    @Order(1)
+    void rotationReencryptsEveryRowInBatches() throws Exception {
+        String sourceLabel = keyRotationService.getActiveKeyLabel();
+        KeyRotationJob job = keyRotationService.startRotation(1000);
+        assertThat(keyRotationService.getActiveKeyLabel()).isEqualTo(job.getTargetKeyLabel()).isNotEqualTo(sourceLabel);
+
+        Map<String, Object> status = awaitStatus(KeyRotationJob.Status.COMPLETED);
+        assertThat(status.get("rotatedRows")).isEqualTo((long) MEMBERS);
+        assertThat(status.get("failedRows")).isEqualTo(0L);
+        assertThat(keyLabels()).containsOnly(job.getTargetKeyLabel());
+        assertProfilesDecrypt();
+    }
+
+    @Test
+    @Order(2)
+    void pausedRotationKeepsItsCheckpointAndResumes() throws Exception {
+        // 每秒 2 筆：第一批 2 筆提交後節流約 1 秒，在這段時間內要求暫停
+        KeyRotationJob job = keyRotationService.startRotation(2);
+        Thread.sleep(300);
+        keyRotationService.pauseRotation();
+        Map<String, Object> paused = awaitStatus(KeyRotationJob.Status.PAUSED);
+
+        long checkpoint = (Long) paused.get("lastMemberId");
+        assertThat(checkpoint).isPositive();
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList("SELECT id, encryption_key_label FROM members ORDER BY id");
+        for (Map<String, Object> row : rows) {
+            boolean beforeCheckpoint = ((Number) row.get("id")).longValue() <= checkpoint;
+            assertThat(row.get("encryption_key_label").equals(job.getTargetKeyLabel()))
+                    .as("row %s rotated (checkpoint %d)", row.get("id"), checkpoint)
+                    .isEqualTo(beforeCheckpoint);
+        }
+
+        keyRotationService.resumeRotation(1000);
+        Map<String, Object> completed = awaitStatus(KeyRotationJob.Status.COMPLETED);
+        assertThat(completed.get("rotatedRows")).as("rows are not rotated twice").isEqualTo((long) MEMBERS);
+        assertThat(keyLabels()).containsOnly(job.getTargetKeyLabel());
+        assertProfilesDecrypt();
+    }
+
+    @Test
+    @Order(3)
+    void rowsRewrittenWithTheOldKeyBehindTheCheckpointAreRotated() throws Exception {
+        String sourceLabel = keyRotationService.getActiveKeyLabel();
+        KeyRotationJob job = keyRotationService.startRotation(2);
+        Thread.sleep(300);
+        keyRotationService.pauseRotation();
+        long checkpoint = (Long) awaitStatus(KeyRotationJob.Status.PAUSED).get("lastMemberId");
+
+        // 模擬尚未讀到新標籤的其他實例：以舊金鑰更新檢查點之前的資料列
+        MemberUpdateRequest request = new MemberUpdateRequest();
+        request.setPhoneNumber("0987654321");
+        memberService.updateMember(checkpoint, request, sourceLabel);
+        assertThat(keyLabels()).contains(sourceLabel);
+
+        keyRotationService.resumeRotation(1000);
+        awaitStatus(KeyRotationJob.Status.COMPLETED);
+        assertThat(keyLabels()).containsOnly(job.getTargetKeyLabel());
+        assertThat(memberService.loadMemberProfile(checkpoint).getPhoneNumber()).isEqualTo("0987654321");
+    }
+
+    @Test
+    @Order(4)
+    void rotationsStartedBackToBackGetDistinctKeyLabels() throws Exception {
+        KeyRotationJob first = keyRotationService.startRotation(1000);
+        awaitStatus(KeyRotationJob.Status.COMPLETED);
+        KeyRotationJob second = keyRotationService.startRotation(1000);
+        awaitStatus(KeyRotationJob.Status.COMPLETED);
+
+        assertThat(second.getTargetKeyLabel()).isNotEqualTo(first.getTargetKeyLabel());
+        assertThat(keyLabels()).containsOnly(second.getTargetKeyLabel());
+    }
+
+    @Test
+    @Order(5)
+    void activeKeyLabelFollowsRotationsStartedByOtherInstances() throws Exception {
+        String before = keyRotationService.getActiveKeyLabel();
+        KeyRotationJob other = new KeyRotationJob(before, "pii_aes_key_other_instance", 500);
+        other.setStatus(KeyRotationJob.Status.COMPLETED);
+        keyRotationJobRepository.save(other);
+        assertThat(keyRotationService.getActiveKeyLabel()).as("cached within the TTL").isEqualTo(before);
+
+        Thread.sleep(600);
+        assertThat(keyRotationService.getActiveKeyLabel()).isEqualTo("pii_aes_key_other_instance");
+    }
+
+    private Map<String, Object> awaitStatus(KeyRotationJob.Status expected) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(30).toNanos();
+        while (System.nanoTime() < deadline) {
+            Map<String, Object> status = keyRotationService.getStatus();
+            if (status.get("status") == expected && Boolean.FALSE.equals(status.get("running"))) {
+                return status;
+            }
+            Thread.sleep(50);
+        }
+        throw new AssertionError("Key rotation did not reach " + expected + ": " + keyRotationService.getStatus());
+    }
+
+    private List<String> keyLabels() {
+        return jdbcTemplate.queryForList("SELECT encryption_key_label FROM members", String.class);
+    }
+
+    private void assertProfilesDecrypt() {
+        List<Long> ids = jdbcTemplate.queryForList("SELECT id FROM members ORDER BY id", Long.class);
+        assertThat(memberService.getMemberProfiles(ids))
+                .allSatisfy(profile -> assertThat(profile.getEmail()).isEqualTo(profile.getUsername() + "@example.com"));
+    }
+}
@@ -0,0 +1,125 @@
+package com.yuwenwww.membermanagement.service;
+
+import com.yuwenwww.membermanagement.dto.MemberProfileResponse;
+import com.yuwenwww.membermanagement.dto.MemberUpdateRequest;
+import com.yuwenwww.membermanagement.entity.Member;
+import com.yuwenwww.membermanagement.repository.MemberRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.AEADBadTagException;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * PII 密文格式：AES-GCM 的往返、竄改與欄位綁定，舊版 AES-CBC 的解密 (有 IV 即視為 CBC)，以及新舊格式混合的資料列。
+ */
+@SpringBootTest
+@ActiveProfiles("loadtest")
+class PiiEncryptionServiceTest {
+
+    private static final byte[] EMAIL = "codec.owner@example.com".getBytes(StandardCharsets.UTF_8);
+
+    @Autowired
+    private PiiEncryptionService piiEncryptionService;
+
+    @Autowired
+    private AesCbcPiiCodec aesCbcPiiCodec;
+
+    @Autowired
+    private MemberService memberService;
+
+    @Autowired
+    private MemberRepository memberRepository;
+
+    @Autowired
+    private PiiKeyCache piiKeyCache;
+
+    @Autowired
+    private KeyRotationService keyRotationService;
+
+    @Test
+    void gcmValueRoundTrips() throws Exception {
+        String label = keyRotationService.getActiveKeyLabel();
+        EncryptedPii encrypted = piiEncryptionService.encrypt(PiiField.EMAIL, EMAIL, label);
+
+        assertThat(encrypted.iv()).isNull();
+        assertThat(encrypted.data()[0]).isEqualTo(AesGcmPiiCodec.VERSION);
+        assertThat(piiEncryptionService.decrypt(PiiField.EMAIL, encrypted.data(), null, label)).isEqualTo(EMAIL);
+    }
+
+    @Test
+    void tamperedGcmValueIsRejected() throws Exception {
+        String label = keyRotationService.getActiveKeyLabel();
+        byte[] data = piiEncryptionService.encrypt(PiiField.EMAIL, EMAIL, label).data();
+        data[data.length - 1] ^= 0x01;
+
+        assertThatThrownBy(() -> piiEncryptionService.decrypt(PiiField.EMAIL, data, null, label))
+                .isInstanceOf(AEADBadTagException.class);
+    }
+
+    @Test
+    void gcmValueIsBoundToItsField() throws Exception {
+        String label = keyRotationService.getActiveKeyLabel();
+        byte[] data = piiEncryptionService.encrypt(PiiField.EMAIL, EMAIL, label).data();
+
+        assertThatThrownBy(() -> piiEncryptionService.decrypt(PiiField.PHONE, data, null, label))
+                .isInstanceOf(AEADBadTagException.class);
+    }
+
+    @Test
+    void legacyCbcValueDecrypts() throws Exception {
+        String label = keyRotationService.getActiveKeyLabel();
+        EncryptedPii legacy = aesCbcPiiCodec.encrypt(PiiField.EMAIL, EMAIL, piiKeyCache.getKey(label));
+
+        assertThat(legacy.iv()).hasSize(16);
+        assertThat(piiEncryptionService.decrypt(PiiField.EMAIL, legacy.data(), legacy.iv(), label)).isEqualTo(EMAIL);
+    }
+
+    @Test
+    void cbcValueStartingWithGcmVersionByteDecryptsAsCbc() throws Exception {
+        String label = keyRotationService.getActiveKeyLabel();
+        PiiKey key = piiKeyCache.getKey(label);
+        EncryptedPii legacy;
+        do {
+            legacy = aesCbcPiiCodec.encrypt(PiiField.EMAIL, EMAIL, key);
+        } while (legacy.data()[0] != AesGcmPiiCodec.VERSION);
+
+        assertThat(piiEncryptionService.decrypt(PiiField.EMAIL, legacy.data(), legacy.iv(), label)).isEqualTo(EMAIL);
+    }
+
+    @Test
+    void rowWithCbcEmailAndGcmPhoneDecrypts() {
+        String label = keyRotationService.getActiveKeyLabel();
+        Member member = new Member();
+        member.setUsername("codec_mixed_row");
+        member.setPassword("mixed-pass");
+        member.setEmail("mixed.row@example.com".getBytes(StandardCharsets.UTF_8));
+        member.setPhoneNumber("0911000000".getBytes(StandardCharsets.UTF_8));
+        ReflectionTestUtils.setField(piiEncryptionService, "writeCodec", "cbc");
+        Long id;
+        try {
+            id = memberService.registerNewMember(member, label).getId();
+        } finally {
+            ReflectionTestUtils.setField(piiEncryptionService, "writeCodec", "gcm");
+        }
+        // 只改寫 phone_number：email 維持 AES-CBC，phone_number 改為 AES-GCM
+        MemberUpdateRequest request = new MemberUpdateRequest();
+        request.setPhoneNumber("0922000000");
+        memberService.updateMember(id, request, label);
+
+        Member row = memberRepository.findById(id).orElseThrow();
+        assertThat(row.getEmailIv()).hasSize(16);
+        assertThat(row.getPhoneIv()).isNull();
+        assertThat(AesGcmPiiCodec.isEncoded(row.getPhoneNumber())).isTrue();
+
+        MemberProfileResponse profile = memberService.loadMemberProfile(id);
+        assertThat(profile.getEmail()).isEqualTo("mixed.row@example.com");
+        assertThat(profile.getPhoneNumber()).isEqualTo("0922000000");
+    }
+}